@@ -2,6 +2,7 @@ plugins {
     java
     kotlin("jvm") version "2.1.0"
     `maven-publish`
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.github.snowykte0426"
@@ -34,6 +35,7 @@ dependencies {
     compileOnly("org.springframework.boot:spring-boot-starter:3.1.5")
     compileOnly("org.springframework.boot:spring-boot-configuration-processor:3.1.5")
     compileOnly("org.springframework:spring-web:6.2.8")
+    compileOnly("com.fasterxml.jackson.core:jackson-databind:2.15.2")
     compileOnly("org.springframework.security:spring-security-web:6.3.5")
     compileOnly("org.springframework.security:spring-security-config:6.3.5")
     compileOnly("org.hibernate.validator:hibernate-validator:8.0.1.Final")
@@ -85,6 +87,15 @@ dependencies {
     testImplementation("org.springframework.boot:spring-boot-test-autoconfigure:3.1.5")
 
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    jmh("ch.qos.logback:logback-classic:1.5.13")
+    jmh("org.jetbrains.kotlinx:kotlinx-coroutines-core:1.7.3")
+}
+
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
 }
 
 tasks.test {
@@ -0,0 +1,56 @@
+package com.github.snowykte0426.peanut.butter.logging
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OperationsPerInvocation
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compares the per-statement `withContext(Dispatchers.IO)` hop the coroutine helpers used to
+ * make with handing the statement to [AsyncLogDispatcher].
+ *
+ * Run with `./gradlew jmh`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class CoroutineLoggingBenchmark {
+
+    private companion object {
+        private const val STATEMENTS = 100
+    }
+
+    private val target = Any()
+    private val logger = target.logger()
+
+    @Benchmark
+    @OperationsPerInvocation(STATEMENTS)
+    fun dispatcherHop() = runBlocking {
+        repeat(STATEMENTS) { index ->
+            withContext(Dispatchers.IO) {
+                logger.info("statement {}", index)
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATEMENTS)
+    fun asyncDispatcher() = runBlocking {
+        repeat(STATEMENTS) { index ->
+            target.logInfoAsync("statement {}", index)
+        }
+    }
+
+    @TearDown
+    fun flush() {
+        AsyncLogDispatcher.default.flush(10000L)
+    }
+}
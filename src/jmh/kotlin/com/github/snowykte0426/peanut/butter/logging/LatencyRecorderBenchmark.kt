@@ -0,0 +1,56 @@
+package com.github.snowykte0426.peanut.butter.logging
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Threads
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures recording one timing from many threads into a single histogram and into the
+ * striped recorder behind `logExecutionTime`.
+ *
+ * Run with `./gradlew jmh`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(8)
+open class LatencyRecorderBenchmark {
+
+    private val histogram = LatencyHistogram()
+    private val recorder = StripedLatencyRecorder()
+    private val target = Target()
+
+    @Setup(Level.Trial)
+    fun enableRecording() {
+        LatencyRecorders.enabled = true
+    }
+
+    @TearDown(Level.Trial)
+    fun disableRecording() {
+        LatencyRecorders.enabled = false
+        LatencyRecorders.clear()
+    }
+
+    @Benchmark
+    fun sharedHistogram() {
+        histogram.record(1234L)
+    }
+
+    @Benchmark
+    fun stripedRecorder() {
+        recorder.record(1234L)
+    }
+
+    @Benchmark
+    fun timedOperation(): Int = target.logExecutionTime("benchmark") { 42 }
+
+    class Target
+}
@@ -0,0 +1,46 @@
+package com.github.snowykte0426.peanut.butter.logging
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Threads
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compares resolving the logger through [LoggerFactory] on every call, as `logger()` used to,
+ * with the cached lookup, both on its own and behind a disabled debug statement.
+ *
+ * Run with `./gradlew jmh`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+open class LoggerLookupBenchmark {
+
+    private val target = Target()
+    private val argument = 42
+
+    @Benchmark
+    fun factoryLookup(): Logger = LoggerFactory.getLogger(target.javaClass)
+
+    @Benchmark
+    fun cachedLookup(): Logger = target.logger()
+
+    @Benchmark
+    fun disabledDebugWithFactoryLookup() {
+        LoggerFactory.getLogger(target.javaClass).debug("value {}", argument)
+    }
+
+    @Benchmark
+    fun disabledDebugWithCachedLookup() {
+        target.logDebug("value {}", argument)
+    }
+
+    class Target
+}
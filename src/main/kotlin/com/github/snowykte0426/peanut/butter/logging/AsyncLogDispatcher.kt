@@ -0,0 +1,213 @@
+package com.github.snowykte0426.peanut.butter.logging
+
+import org.slf4j.Logger
+import org.slf4j.MDC
+import org.slf4j.event.Level
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * Hands log statements to one dedicated consumer thread so that callers never block or suspend.
+ *
+ * Producers append to a lock-free queue and only wake the consumer when it is parked. Events
+ * are written in the order they were enqueued, so statements of one coroutine (or thread) keep
+ * their order. The MDC and the correlation id are captured at enqueue time and installed on
+ * the consumer while the event is written. When more than [capacity] events are pending, new
+ * events are dropped and counted; the consumer reports the count once it catches up, and
+ * likewise reports statements an appender failed to write.
+ *
+ * @param capacity Maximum number of pending events
+ * @param name Name of the consumer thread
+ */
+class AsyncLogDispatcher(
+    private val capacity: Int = 65536,
+    name: String = "async-log-dispatcher"
+) : AutoCloseable {
+
+    companion object {
+        const val CORRELATION_ID_KEY = LoggingCoroutineContext.CORRELATION_ID_KEY
+        private const val PARK_NANOS = 100_000_000L
+        private val NO_ARGS = emptyArray<Any?>()
+
+        /**
+         * Dispatcher used by the coroutine logging helpers, flushed on JVM shutdown.
+         */
+        val default: AsyncLogDispatcher by lazy {
+            AsyncLogDispatcher().also { dispatcher ->
+                Runtime.getRuntime().addShutdownHook(Thread({ dispatcher.close() }, "async-log-dispatcher-shutdown"))
+            }
+        }
+    }
+
+    private class LogEvent(
+        val logger: Logger,
+        val level: Level,
+        val message: String,
+        val args: Array<out Any?>,
+        val throwable: Throwable?,
+        val mdc: Map<String, String>?
+    )
+
+    private val queue = ConcurrentLinkedQueue<LogEvent>()
+    private val pending = AtomicInteger()
+    private val dropped = AtomicLong()
+    private val written = AtomicLong()
+    private val failed = AtomicLong()
+
+    @Volatile
+    private var lastFailure: Exception? = null
+    private val parked = AtomicBoolean()
+
+    @Volatile
+    private var running = true
+
+    private val consumer = Thread(::consume, name).apply {
+        isDaemon = true
+        start()
+    }
+
+    /**
+     * Queues a statement for [logger] unless [level] is disabled for it.
+     *
+     * @param throwable Logged as the statement's exception
+     * @param correlationId Added to the captured MDC unless the MDC already has one
+     * @return false if the statement was dropped because the queue is full or closed
+     */
+    fun enqueue(
+        logger: Logger,
+        level: Level,
+        message: String,
+        args: Array<out Any?> = NO_ARGS,
+        throwable: Throwable? = null,
+        correlationId: String? = null
+    ): Boolean {
+        if (!logger.isEnabledForLevel(level)) return true
+        if (!running) {
+            dropped.incrementAndGet()
+            return false
+        }
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet()
+            dropped.incrementAndGet()
+            return false
+        }
+
+        queue.offer(LogEvent(logger, level, message, args, throwable, captureMdc(correlationId)))
+        if (parked.get()) {
+            LockSupport.unpark(consumer)
+        }
+        return true
+    }
+
+    /**
+     * Waits until every event enqueued so far has been written.
+     *
+     * @return false if [timeoutMillis] passed first
+     */
+    fun flush(timeoutMillis: Long): Boolean {
+        val deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+        while (pending.get() > 0) {
+            if (System.nanoTime() >= deadline) return false
+            LockSupport.unpark(consumer)
+            Thread.sleep(1)
+        }
+        return true
+    }
+
+    fun pendingCount(): Int = pending.get()
+
+    fun droppedCount(): Long = dropped.get()
+
+    fun writtenCount(): Long = written.get()
+
+    fun failedCount(): Long = failed.get()
+
+    /**
+     * Writes what is pending, for at most five seconds, and stops the consumer.
+     */
+    override fun close() {
+        flush(5000L)
+        running = false
+        LockSupport.unpark(consumer)
+    }
+
+    private fun captureMdc(correlationId: String?): Map<String, String>? {
+        val mdc = MDC.getCopyOfContextMap()
+        if (correlationId == null || mdc?.containsKey(CORRELATION_ID_KEY) == true) {
+            return mdc?.takeIf { it.isNotEmpty() }
+        }
+        return (mdc ?: HashMap(2)).apply { put(CORRELATION_ID_KEY, correlationId) }
+    }
+
+    private fun consume() {
+        var reportedDropped = 0L
+        var reportedFailed = 0L
+        while (running || queue.isNotEmpty()) {
+            val event = queue.poll()
+            if (event == null) {
+                val droppedSoFar = dropped.get()
+                if (droppedSoFar != reportedDropped) {
+                    logWarn("Dropped {} log statements because the async log queue was full", droppedSoFar - reportedDropped)
+                    reportedDropped = droppedSoFar
+                }
+                val failedSoFar = failed.get()
+                if (failedSoFar != reportedFailed) {
+                    logWarn("Failed to write {} log statements", failedSoFar - reportedFailed, lastFailure)
+                    reportedFailed = failedSoFar
+                }
+                parked.set(true)
+                if (queue.isEmpty() && running) {
+                    LockSupport.parkNanos(this, PARK_NANOS)
+                }
+                parked.set(false)
+                continue
+            }
+
+            try {
+                write(event)
+            } catch (e: Exception) {
+                // A failing appender must not stop the consumer; the failure is reported when idle
+                lastFailure = e
+                failed.incrementAndGet()
+            } finally {
+                written.incrementAndGet()
+                pending.decrementAndGet()
+            }
+        }
+    }
+
+    private fun write(event: LogEvent) {
+        val mdc = event.mdc
+        if (mdc == null) MDC.clear() else MDC.setContextMap(mdc)
+
+        val logger = event.logger
+        val throwable = event.throwable
+        if (event.args.isNotEmpty()) {
+            // The cause travels separately so that a stray {} in the message cannot consume it
+            val builder = logger.atLevel(event.level).setMessage(event.message)
+            event.args.forEach { builder.addArgument(it) }
+            if (throwable != null) builder.setCause(throwable)
+            builder.log()
+        } else if (throwable != null) {
+            when (event.level) {
+                Level.TRACE -> logger.trace(event.message, throwable)
+                Level.DEBUG -> logger.debug(event.message, throwable)
+                Level.INFO -> logger.info(event.message, throwable)
+                Level.WARN -> logger.warn(event.message, throwable)
+                Level.ERROR -> logger.error(event.message, throwable)
+            }
+        } else {
+            when (event.level) {
+                Level.TRACE -> logger.trace(event.message)
+                Level.DEBUG -> logger.debug(event.message)
+                Level.INFO -> logger.info(event.message)
+                Level.WARN -> logger.warn(event.message)
+                Level.ERROR -> logger.error(event.message)
+            }
+        }
+    }
+}
@@ -1,112 +1,129 @@
 package com.github.snowykte0426.peanut.butter.logging
 
 import kotlinx.coroutines.*
+import org.slf4j.Logger
 import org.slf4j.MDC
+import org.slf4j.event.Level
 import java.util.UUID
+import java.util.concurrent.TimeUnit
 import kotlin.coroutines.AbstractCoroutineContextElement
 import kotlin.coroutines.CoroutineContext
-import kotlin.system.measureTimeMillis
 
 /**
  * Coroutine-aware logging extensions that maintain context and provide async-safe logging.
+ *
+ * Statements are handed to [AsyncLogDispatcher.default] instead of switching dispatchers, so
+ * logging never suspends the caller; the MDC and correlation id are captured when the
+ * statement is made.
  */
 
+/**
+ * Queues a statement on the shared [AsyncLogDispatcher] with the correlation id of the current
+ * [LoggingCoroutineContext], if any.
+ */
+@PublishedApi
+internal suspend fun logAsync(
+    logger: Logger,
+    level: Level,
+    message: String,
+    args: Array<out Any?> = emptyArray(),
+    throwable: Throwable? = null
+) {
+    AsyncLogDispatcher.default.enqueue(
+        logger,
+        level,
+        message,
+        args,
+        throwable,
+        currentCoroutineContext()[LoggingCoroutineContext]?.getCorrelationId()
+    )
+}
+
 /**
  * Suspend function to log a debug message in coroutine context.
  */
 suspend fun Any.logDebugAsync(message: String) {
-    withContext(Dispatchers.IO) {
-        logger().debug(message)
-    }
+    logAsync(logger(), Level.DEBUG, message)
 }
 
 /**
  * Suspend function to log a debug message with arguments in coroutine context.
  */
 suspend fun Any.logDebugAsync(message: String, vararg args: Any?) {
-    withContext(Dispatchers.IO) {
-        logger().debug(message, *args)
-    }
+    logAsync(logger(), Level.DEBUG, message, args)
 }
 
 /**
  * Suspend function to log an info message in coroutine context.
  */
 suspend fun Any.logInfoAsync(message: String) {
-    withContext(Dispatchers.IO) {
-        logger().info(message)
-    }
+    logAsync(logger(), Level.INFO, message)
 }
 
 /**
  * Suspend function to log an info message with arguments in coroutine context.
  */
 suspend fun Any.logInfoAsync(message: String, vararg args: Any?) {
-    withContext(Dispatchers.IO) {
-        logger().info(message, *args)
-    }
+    logAsync(logger(), Level.INFO, message, args)
 }
 
 /**
  * Suspend function to log a warn message in coroutine context.
  */
 suspend fun Any.logWarnAsync(message: String) {
-    withContext(Dispatchers.IO) {
-        logger().warn(message)
-    }
+    logAsync(logger(), Level.WARN, message)
 }
 
 /**
  * Suspend function to log a warn message with arguments in coroutine context.
  */
 suspend fun Any.logWarnAsync(message: String, vararg args: Any?) {
-    withContext(Dispatchers.IO) {
-        logger().warn(message, *args)
-    }
+    logAsync(logger(), Level.WARN, message, args)
 }
 
 /**
  * Suspend function to log an error message in coroutine context.
  */
 suspend fun Any.logErrorAsync(message: String) {
-    withContext(Dispatchers.IO) {
-        logger().error(message)
-    }
+    logAsync(logger(), Level.ERROR, message)
 }
 
 /**
  * Suspend function to log an error message with arguments in coroutine context.
  */
 suspend fun Any.logErrorAsync(message: String, vararg args: Any?) {
-    withContext(Dispatchers.IO) {
-        logger().error(message, *args)
-    }
+    logAsync(logger(), Level.ERROR, message, args)
 }
 
 /**
  * Suspend function to log an error message with throwable in coroutine context.
  */
 suspend fun Any.logErrorAsync(message: String, throwable: Throwable) {
-    withContext(Dispatchers.IO) {
-        logger().error(message, throwable)
-    }
+    logAsync(logger(), Level.ERROR, message, throwable = throwable)
 }
 
 /**
  * Execute a suspend block and log the execution time in coroutine context.
  *
+ * Like [logExecutionTime], the timing goes to [LatencyRecorders] instead of the log while
+ * recording is enabled.
+ *
  * @param operation Description of the operation being timed
  * @param block The suspend block to execute and measure
  * @return The result of the block execution
  */
 suspend inline fun <T> Any.logExecutionTimeAsync(operation: String, crossinline block: suspend () -> T): T {
-    val logger = logger()
-    var result: T
-    val timeMs = measureTimeMillis {
-        result = block()
+    val start = System.nanoTime()
+    val result = try {
+        block()
+    } catch (e: Throwable) {
+        recordTiming(operation, System.nanoTime() - start)
+        throw e
     }
-    withContext(Dispatchers.IO) {
-        logger.debug("$operation completed in ${timeMs}ms")
+    val elapsedNanos = System.nanoTime() - start
+    recordTiming(operation, elapsedNanos)
+    if (!LatencyRecorders.enabled) {
+        logAsync(logger(), Level.DEBUG, "$operation completed in ${TimeUnit.NANOSECONDS.toMillis(elapsedNanos)}ms")
     }
     return result
 }
@@ -129,20 +146,14 @@ suspend inline fun <T> Any.logMethodExecutionAsync(
         params.entries.joinToString(", ") { "${it.key}=${it.value}" }
     } else ""
 
-    withContext(Dispatchers.IO) {
-        logger.debug("Entering method: $methodName${if (paramsString.isNotEmpty()) " with params: $paramsString" else ""}")
-    }
+    logAsync(logger, Level.DEBUG, "Entering method: $methodName${if (paramsString.isNotEmpty()) " with params: $paramsString" else ""}")
 
     return try {
         val result = block()
-        withContext(Dispatchers.IO) {
-            logger.debug("Exiting method: $methodName successfully")
-        }
+        logAsync(logger, Level.DEBUG, "Exiting method: $methodName successfully")
         result
     } catch (e: Exception) {
-        withContext(Dispatchers.IO) {
-            logger.error("Exiting method: $methodName with error: ${e.message}", e)
-        }
+        logAsync(logger, Level.ERROR, "Exiting method: $methodName with error: ${e.message}", throwable = e)
         throw e
     }
 }
@@ -159,9 +170,7 @@ suspend inline fun <T> Any.logOnExceptionAsync(operation: String, crossinline bl
     return try {
         block()
     } catch (e: Exception) {
-        withContext(Dispatchers.IO) {
-            logger.error("Exception in operation '$operation': ${e.message}", e)
-        }
+        logAsync(logger, Level.ERROR, "Exception in operation '$operation': ${e.message}", throwable = e)
         null
     }
 }
@@ -194,25 +203,19 @@ suspend inline fun <T> Any.retryWithLogging(
     while (attempt <= maxAttempts) {
         try {
             if (attempt > 1) {
-                withContext(Dispatchers.IO) {
-                    logger.info("Retrying operation '$operation' - attempt $attempt/$maxAttempts after ${delay}ms delay")
-                }
+                logAsync(logger, Level.INFO, "Retrying operation '$operation' - attempt $attempt/$maxAttempts after ${delay}ms delay")
                 delay(delay)
             } else {
-                withContext(Dispatchers.IO) {
-                    logger.debug("Starting operation '$operation' - attempt $attempt/$maxAttempts")
-                }
+                logAsync(logger, Level.DEBUG, "Starting operation '$operation' - attempt $attempt/$maxAttempts")
             }
 
             return block()
         } catch (e: Exception) {
             lastException = e
-            withContext(Dispatchers.IO) {
-                if (attempt < maxAttempts) {
-                    logger.warn("Operation '$operation' failed on attempt $attempt/$maxAttempts: ${e.message}")
-                } else {
-                    logger.error("Operation '$operation' failed on final attempt $attempt/$maxAttempts: ${e.message}", e)
-                }
+            if (attempt < maxAttempts) {
+                logAsync(logger, Level.WARN, "Operation '$operation' failed on attempt $attempt/$maxAttempts: ${e.message}")
+            } else {
+                logAsync(logger, Level.ERROR, "Operation '$operation' failed on final attempt $attempt/$maxAttempts: ${e.message}", throwable = e)
             }
 
             attempt++
@@ -225,43 +228,112 @@ suspend inline fun <T> Any.retryWithLogging(
 
 /**
  * Enhanced coroutine context with logging metadata.
+ *
+ * The element carries an immutable MDC snapshot that includes the correlation id. Every time
+ * the coroutine resumes, the snapshot's entries are put into the MDC of whichever thread runs
+ * it, and the thread's previous values are restored when the coroutine suspends, so the id
+ * neither gets lost across thread hops nor leaks into unrelated coroutines. Only the snapshot's
+ * own keys are touched, so a resume never copies the thread's whole MDC. Derived contexts
+ * copy the snapshot on write and leave the parent untouched.
  */
-class LoggingCoroutineContext(
-    private val correlationId: String = generateCorrelationId()
-) : AbstractCoroutineContextElement(LoggingCoroutineContext) {
+class LoggingCoroutineContext private constructor(
+    private val correlationId: String,
+    private val entries: Array<String>
+) : AbstractCoroutineContextElement(LoggingCoroutineContext), ThreadContextElement<Array<String?>> {
+
+    /**
+     * @param correlationId Correlation id put into the MDC as [CORRELATION_ID_KEY]
+     * @param mdc Further MDC entries of the snapshot
+     */
+    constructor(
+        correlationId: String = generateCorrelationId(),
+        mdc: Map<String, String> = emptyMap()
+    ) : this(correlationId, flatten(emptyArray(), mdc, correlationId))
 
     companion object Key : CoroutineContext.Key<LoggingCoroutineContext> {
+        const val CORRELATION_ID_KEY = "correlationId"
+
         fun generateCorrelationId(): String = UUID.randomUUID().toString().take(8)
+
+        private fun flatten(base: Array<String>, mdc: Map<String, String>, correlationId: String): Array<String> {
+            val merged = LinkedHashMap<String, String>(base.size / 2 + mdc.size + 1)
+            for (index in base.indices step 2) {
+                merged[base[index]] = base[index + 1]
+            }
+            merged.putAll(mdc)
+            merged[CORRELATION_ID_KEY] = correlationId
+
+            val flat = arrayOfNulls<String>(merged.size * 2)
+            var index = 0
+            merged.forEach { (key, value) ->
+                flat[index++] = key
+                flat[index++] = value
+            }
+            @Suppress("UNCHECKED_CAST")
+            return flat as Array<String>
+        }
     }
 
     fun getCorrelationId(): String = correlationId
+
+    /**
+     * Returns the MDC entries this context installs.
+     */
+    fun mdcSnapshot(): Map<String, String> {
+        val snapshot = LinkedHashMap<String, String>(entries.size / 2)
+        for (index in entries.indices step 2) {
+            snapshot[entries[index]] = entries[index + 1]
+        }
+        return snapshot
+    }
+
+    /**
+     * Returns a context with this snapshot plus [mdc] and the given correlation id.
+     */
+    fun derive(correlationId: String = this.correlationId, mdc: Map<String, String> = emptyMap()): LoggingCoroutineContext =
+        LoggingCoroutineContext(correlationId, flatten(entries, mdc, correlationId))
+
+    override fun updateThreadContext(context: CoroutineContext): Array<String?> {
+        val previous = arrayOfNulls<String>(entries.size / 2)
+        for (index in previous.indices) {
+            val key = entries[index * 2]
+            previous[index] = MDC.get(key)
+            MDC.put(key, entries[index * 2 + 1])
+        }
+        return previous
+    }
+
+    override fun restoreThreadContext(context: CoroutineContext, oldState: Array<String?>) {
+        for (index in oldState.indices) {
+            val key = entries[index * 2]
+            val value = oldState[index]
+            if (value == null) MDC.remove(key) else MDC.put(key, value)
+        }
+    }
 }
 
 /**
  * Execute a block with enhanced logging context that includes correlation ID.
  *
+ * The MDC entries of an enclosing logging context, or else of the calling thread, are carried
+ * into the block on whichever threads it runs.
+ *
  * @param correlationId Optional correlation ID for tracking related operations
+ * @param mdc Additional MDC entries for the block
  * @param block The suspend block to execute with logging context
  * @return The result of the block execution
  */
 suspend inline fun <T> Any.withLoggingContext(
     correlationId: String? = null,
+    mdc: Map<String, String> = emptyMap(),
     crossinline block: suspend CoroutineScope.() -> T
 ): T {
-    val context = LoggingCoroutineContext(correlationId ?: LoggingCoroutineContext.generateCorrelationId())
+    val id = correlationId ?: LoggingCoroutineContext.generateCorrelationId()
+    val context = currentCoroutineContext()[LoggingCoroutineContext]?.derive(id, mdc)
+        ?: LoggingCoroutineContext(id, (MDC.getCopyOfContextMap() ?: emptyMap<String, String>()) + mdc)
 
     return withContext(context) {
-        val previousCorrelationId = MDC.get("correlationId")
-        try {
-            MDC.put("correlationId", context.getCorrelationId())
-            block()
-        } finally {
-            if (previousCorrelationId != null) {
-                MDC.put("correlationId", previousCorrelationId)
-            } else {
-                MDC.remove("correlationId")
-            }
-        }
+        block()
     }
 }
 
@@ -270,9 +342,7 @@ suspend inline fun <T> Any.withLoggingContext(
  */
 suspend fun Any.logCoroutineContext() {
     val logger = logger()
-    withContext(Dispatchers.IO) {
-        logger.debug("Coroutine context - Current thread: ${Thread.currentThread().name}")
-    }
+    logAsync(logger, Level.DEBUG, "Coroutine context - Current thread: ${Thread.currentThread().name}")
 }
 
 /**
@@ -287,9 +357,7 @@ suspend inline fun <T> Any.executeParallelWithLogging(
     val logger = logger()
     val operationList = operations()
 
-    withContext(Dispatchers.IO) {
-        logger.info("Starting parallel execution of ${operationList.size} operations")
-    }
+    logAsync(logger, Level.INFO, "Starting parallel execution of ${operationList.size} operations")
 
     val startTime = System.currentTimeMillis()
 
@@ -301,32 +369,24 @@ suspend inline fun <T> Any.executeParallelWithLogging(
                     try {
                         val result = operation()
                         val opDuration = System.currentTimeMillis() - opStartTime
-                        withContext(Dispatchers.IO) {
-                            logger.debug("Parallel operation $index completed in ${opDuration}ms")
-                        }
+                        logAsync(logger, Level.DEBUG, "Parallel operation $index completed in ${opDuration}ms")
                         result
                     } catch (e: Exception) {
                         val opDuration = System.currentTimeMillis() - opStartTime
-                        withContext(Dispatchers.IO) {
-                            logger.error("Parallel operation $index failed after ${opDuration}ms: ${e.message}", e)
-                        }
+                        logAsync(logger, Level.ERROR, "Parallel operation $index failed after ${opDuration}ms: ${e.message}", throwable = e)
                         throw e
                     }
                 }
             }.awaitAll()
 
             val totalDuration = System.currentTimeMillis() - startTime
-            withContext(Dispatchers.IO) {
-                logger.info("Parallel execution completed in ${totalDuration}ms")
-            }
+            logAsync(logger, Level.INFO, "Parallel execution completed in ${totalDuration}ms")
 
             results
         }
     } catch (e: Exception) {
         val totalDuration = System.currentTimeMillis() - startTime
-        withContext(Dispatchers.IO) {
-            logger.error("Parallel execution failed after ${totalDuration}ms: ${e.message}", e)
-        }
+        logAsync(logger, Level.ERROR, "Parallel execution failed after ${totalDuration}ms: ${e.message}", throwable = e)
         throw e
     }
 }
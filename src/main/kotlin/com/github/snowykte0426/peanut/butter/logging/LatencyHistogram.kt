@@ -0,0 +1,166 @@
+package com.github.snowykte0426.peanut.butter.logging
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Lock-free log-linear histogram of latencies in nanoseconds.
+ *
+ * Every power of two is split into 32 linear sub-buckets, so any recorded value is reported
+ * within about 2% of its true value while the whole range from 1ns to 2^41ns (about 36 minutes)
+ * fits in a fixed array of counters. Recording is one array increment and never allocates; larger
+ * values are clamped into the last bucket.
+ */
+class LatencyHistogram {
+
+    companion object {
+        private const val SUB_BUCKET_BITS = 5
+        private const val SUB_BUCKETS = 1 shl SUB_BUCKET_BITS
+        private const val LINEAR_LIMIT = 2 * SUB_BUCKETS
+        private const val MAX_EXPONENT = 40
+
+        const val BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS
+
+        fun bucketOf(nanos: Long): Int {
+            if (nanos < LINEAR_LIMIT) return nanos.coerceAtLeast(0L).toInt()
+
+            val exponent = 63 - java.lang.Long.numberOfLeadingZeros(nanos)
+            if (exponent > MAX_EXPONENT) return BUCKET_COUNT - 1
+
+            val mantissa = (nanos ushr (exponent - SUB_BUCKET_BITS)).toInt()
+            return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS)
+        }
+
+        /**
+         * Returns the midpoint of the values counted in [bucket].
+         */
+        fun valueOf(bucket: Int): Long {
+            if (bucket < LINEAR_LIMIT) return bucket.toLong()
+
+            val offset = bucket - LINEAR_LIMIT
+            val shift = offset / SUB_BUCKETS + 1
+            val mantissa = (offset % SUB_BUCKETS + SUB_BUCKETS).toLong()
+            val lowest = mantissa shl shift
+            return lowest + (1L shl shift) / 2
+        }
+    }
+
+    private val counts = AtomicLongArray(BUCKET_COUNT)
+    private val total = AtomicLong()
+    private val max = AtomicLong()
+
+    fun record(nanos: Long) {
+        counts.incrementAndGet(bucketOf(nanos))
+        total.incrementAndGet()
+        if (nanos > max.get()) {
+            max.accumulateAndGet(nanos, ::maxOf)
+        }
+    }
+
+    fun count(): Long = total.get()
+
+    /**
+     * Adds the counts of this histogram to [target], which must have [BUCKET_COUNT] entries.
+     *
+     * @return Largest value recorded
+     */
+    fun addTo(target: LongArray): Long {
+        for (bucket in 0 until BUCKET_COUNT) {
+            val count = counts.get(bucket)
+            if (count != 0L) {
+                target[bucket] += count
+            }
+        }
+        return max.get()
+    }
+
+    /**
+     * Moves the counts of this histogram into [target], leaving it empty. Values recorded
+     * concurrently are either moved or kept for the next drain, never lost.
+     *
+     * @return Largest value drained. The maximum is updated after the counts, so when it does
+     *         not fall into the highest drained bucket it belongs to a neighbouring drain and
+     *         the midpoint of that bucket is returned instead.
+     */
+    fun drainTo(target: LongArray): Long {
+        var drained = 0L
+        var highest = -1
+        for (bucket in 0 until BUCKET_COUNT) {
+            if (counts.get(bucket) != 0L) {
+                val count = counts.getAndSet(bucket, 0L)
+                if (count == 0L) continue
+                target[bucket] += count
+                drained += count
+                highest = bucket
+            }
+        }
+        total.addAndGet(-drained)
+
+        val largest = max.getAndSet(0L)
+        return when {
+            highest < 0 -> 0L
+            bucketOf(largest) == highest -> largest
+            else -> valueOf(highest)
+        }
+    }
+
+    fun snapshot(): LatencySnapshot {
+        val target = LongArray(BUCKET_COUNT)
+        val largest = addTo(target)
+        return LatencySnapshot(target, largest)
+    }
+
+    fun reset() {
+        for (bucket in 0 until BUCKET_COUNT) {
+            counts.set(bucket, 0L)
+        }
+        total.set(0L)
+        max.set(0L)
+    }
+}
+
+/**
+ * Immutable view of one or more [LatencyHistogram]s.
+ *
+ * @param counts Counts per bucket
+ * @param maxNanos Largest value recorded
+ */
+class LatencySnapshot(
+    private val counts: LongArray,
+    val maxNanos: Long
+) {
+
+    val count: Long = counts.sum()
+
+    /**
+     * Returns the value below which [percentile] percent of the recorded values fall, or 0 when
+     * nothing was recorded.
+     */
+    fun valueAtPercentile(percentile: Double): Long {
+        if (count == 0L) return 0L
+
+        val rank = Math.ceil(percentile.coerceIn(0.0, 100.0) / 100.0 * count).toLong().coerceAtLeast(1L)
+        var seen = 0L
+        for (bucket in counts.indices) {
+            seen += counts[bucket]
+            if (seen >= rank) {
+                return minOf(LatencyHistogram.valueOf(bucket), maxNanos)
+            }
+        }
+        return maxNanos
+    }
+
+    companion object {
+        val EMPTY = LatencySnapshot(LongArray(LatencyHistogram.BUCKET_COUNT), 0L)
+
+        /**
+         * Combines [histograms] into one snapshot.
+         */
+        fun of(histograms: Iterable<LatencyHistogram>): LatencySnapshot {
+            val target = LongArray(LatencyHistogram.BUCKET_COUNT)
+            var largest = 0L
+            histograms.forEach { largest = maxOf(largest, it.addTo(target)) }
+            return LatencySnapshot(target, largest)
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.snowykte0426.peanut.butter.logging
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Latency recorder of one operation, striped over several [LatencyHistogram]s.
+ *
+ * Each thread records into the stripe picked by its id, so threads timing the same hot
+ * operation rarely touch the same counters. Recording stays lock-free; only readers
+ * synchronize with each other when merging the stripes.
+ *
+ * @param stripes Number of histograms, rounded up to a power of two
+ */
+class StripedLatencyRecorder(stripes: Int = DEFAULT_STRIPES) {
+
+    companion object {
+        val DEFAULT_STRIPES: Int = Runtime.getRuntime().availableProcessors().coerceAtMost(64)
+
+        private fun powerOfTwoAtLeast(value: Int): Int {
+            val bounded = value.coerceIn(1, 1 shl 30)
+            return if (bounded == 1) 1 else Integer.highestOneBit(bounded - 1) shl 1
+        }
+    }
+
+    private val histograms = Array(powerOfTwoAtLeast(stripes)) { LatencyHistogram() }
+    private val mask = histograms.size - 1
+    private val accumulated = LongArray(LatencyHistogram.BUCKET_COUNT)
+    private var accumulatedMax = 0L
+
+    fun record(nanos: Long) {
+        histograms[stripeOf(Thread.currentThread().id)].record(nanos)
+    }
+
+    /**
+     * Returns every timing recorded since creation or the last [reset].
+     */
+    @Synchronized
+    fun snapshot(): LatencySnapshot {
+        val target = accumulated.copyOf()
+        var largest = accumulatedMax
+        histograms.forEach { largest = maxOf(largest, it.addTo(target)) }
+        return LatencySnapshot(target, largest)
+    }
+
+    /**
+     * Returns the timings recorded since the previous call; they remain part of [snapshot].
+     */
+    @Synchronized
+    fun intervalSnapshot(): LatencySnapshot {
+        val target = LongArray(LatencyHistogram.BUCKET_COUNT)
+        var largest = 0L
+        histograms.forEach { largest = maxOf(largest, it.drainTo(target)) }
+
+        for (bucket in target.indices) {
+            accumulated[bucket] += target[bucket]
+        }
+        accumulatedMax = maxOf(accumulatedMax, largest)
+        return LatencySnapshot(target, largest)
+    }
+
+    @Synchronized
+    fun reset() {
+        histograms.forEach { it.reset() }
+        accumulated.fill(0L)
+        accumulatedMax = 0L
+    }
+
+    private fun stripeOf(threadId: Long): Int {
+        val mixed = threadId * -0x61c8864680b583ebL
+        return (mixed ushr 32).toInt() and mask
+    }
+}
+
+/**
+ * Process-wide per-operation latency recorders fed by [logExecutionTime] and its variants.
+ *
+ * While [enabled], every timing is recorded in nanoseconds and the helpers skip their
+ * per-call debug line; [LatencyReporter] logs percentiles per operation instead, and
+ * recording stays enabled until the last open reporter is closed. [snapshot] and [snapshots]
+ * expose the histograms to callers such as health endpoints. At most [MAX_OPERATIONS] distinct
+ * operation names are tracked so that names built from request data cannot grow the registry
+ * without bound.
+ */
+object LatencyRecorders {
+
+    const val MAX_OPERATIONS = 1024
+
+    private val recorders = ConcurrentHashMap<String, StripedLatencyRecorder>()
+    private val rejected = AtomicLong()
+    private var activeReporters = 0
+
+    @Volatile
+    var enabled: Boolean = false
+
+    /**
+     * Enables recording on behalf of a newly started [LatencyReporter].
+     */
+    @Synchronized
+    internal fun reporterStarted() {
+        activeReporters++
+        enabled = true
+    }
+
+    /**
+     * Releases the recording held by a closed [LatencyReporter], disabling it with the last one.
+     */
+    @Synchronized
+    internal fun reporterStopped() {
+        activeReporters = (activeReporters - 1).coerceAtLeast(0)
+        if (activeReporters == 0) {
+            enabled = false
+        }
+    }
+
+    fun record(operation: String, nanos: Long) {
+        if (!enabled) return
+        recorderOf(operation)?.record(nanos)
+    }
+
+    /**
+     * Starts a [LatencyReporter] that logs every [intervalMillis]; recording stays enabled
+     * until it and every other open reporter are closed.
+     */
+    fun startReporting(intervalMillis: Long = 60000L): LatencyReporter = LatencyReporter(intervalMillis)
+
+    fun operations(): Set<String> = recorders.keys.toSortedSet()
+
+    /**
+     * Returns every timing recorded for [operation], or null when it was never recorded.
+     */
+    fun snapshot(operation: String): LatencySnapshot? = recorders[operation]?.snapshot()
+
+    fun snapshots(): Map<String, LatencySnapshot> {
+        return recorders.entries
+            .sortedBy { it.key }
+            .associate { it.key to it.value.snapshot() }
+    }
+
+    /**
+     * Returns the timings per operation recorded since the previous call.
+     */
+    fun intervalSnapshots(): Map<String, LatencySnapshot> {
+        return recorders.entries
+            .sortedBy { it.key }
+            .associate { it.key to it.value.intervalSnapshot() }
+    }
+
+    /**
+     * Number of timings dropped because [MAX_OPERATIONS] operations were already tracked.
+     */
+    fun rejectedCount(): Long = rejected.get()
+
+    fun clear() {
+        recorders.clear()
+        rejected.set(0L)
+    }
+
+    private fun recorderOf(operation: String): StripedLatencyRecorder? {
+        recorders[operation]?.let { return it }
+        if (recorders.size >= MAX_OPERATIONS) {
+            rejected.incrementAndGet()
+            return null
+        }
+        return recorders.computeIfAbsent(operation) { StripedLatencyRecorder() }
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.snowykte0426.peanut.butter.logging
+
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.util.Locale
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Periodically logs p50, p90, p99 and max of every operation in [LatencyRecorders].
+ *
+ * The reporter owns the recording mode: creating it enables [LatencyRecorders] and closing it
+ * logs a final report; recording is disabled again, restoring the per-call debug lines of
+ * [logExecutionTime], once every open reporter has been closed. Each report covers the timings recorded since the previous one;
+ * operations without timings in the interval are skipped.
+ *
+ * @param intervalMillis Time between reports
+ * @param logger Logger the reports are written to at info level
+ */
+class LatencyReporter(
+    intervalMillis: Long = 60000L,
+    private val logger: Logger = LoggerFactory.getLogger(LatencyReporter::class.java)
+) : AutoCloseable {
+
+    private val closed = AtomicBoolean()
+
+    init {
+        LatencyRecorders.reporterStarted()
+    }
+
+    private val scheduler = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, "latency-reporter").apply { isDaemon = true }
+    }.apply {
+        val period = intervalMillis.coerceAtLeast(1L)
+        scheduleAtFixedRate(::reportSafely, period, period, TimeUnit.MILLISECONDS)
+    }
+
+    /**
+     * Logs one line per operation timed since the previous report; called by the scheduler thread.
+     */
+    internal fun report() {
+        LatencyRecorders.intervalSnapshots().forEach { (operation, snapshot) ->
+            if (snapshot.count == 0L) return@forEach
+            logger.info(
+                "Latency of {}: count={}, p50={}, p90={}, p99={}, max={}",
+                operation,
+                snapshot.count,
+                formatNanos(snapshot.valueAtPercentile(50.0)),
+                formatNanos(snapshot.valueAtPercentile(90.0)),
+                formatNanos(snapshot.valueAtPercentile(99.0)),
+                formatNanos(snapshot.maxNanos)
+            )
+        }
+    }
+
+    override fun close() {
+        if (!closed.compareAndSet(false, true)) return
+        scheduler.shutdownNow()
+        LatencyRecorders.reporterStopped()
+        reportSafely()
+    }
+
+    private fun reportSafely() {
+        try {
+            report()
+        } catch (e: Exception) {
+            logError("Failed to report operation latencies", e)
+        }
+    }
+
+    private fun formatNanos(nanos: Long): String {
+        return String.format(Locale.ROOT, "%.3fms", nanos / 1_000_000.0)
+    }
+}
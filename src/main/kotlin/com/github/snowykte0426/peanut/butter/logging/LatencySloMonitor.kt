@@ -0,0 +1,197 @@
+package com.github.snowykte0426.peanut.butter.logging
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Latency objective of a named operation, such as "p99 under 200 ms over one minute".
+ *
+ * @param operation Operation name as passed to [logExecutionTime]
+ * @param percentile Percentile that must stay under [thresholdMillis]
+ * @param thresholdMillis Latency objective in milliseconds
+ * @param windowMillis Sliding window the percentile is computed over
+ */
+data class LatencySlo(
+    val operation: String,
+    val percentile: Double = 99.0,
+    val thresholdMillis: Long = 200L,
+    val windowMillis: Long = 60000L
+)
+
+/**
+ * A change of an objective's state, reported by [LatencySloMonitor].
+ *
+ * @param breached true when the objective started failing, false when it recovered
+ * @param observedNanos Latency at the objective's percentile over the window
+ * @param sampleCount Number of timings in the window
+ */
+data class LatencySloEvent(
+    val slo: LatencySlo,
+    val breached: Boolean,
+    val observedNanos: Long,
+    val sampleCount: Long
+)
+
+/**
+ * Tracks latencies of registered operations and reports objectives that start or stop failing.
+ *
+ * Timings go into a ring of histograms per operation, one per evaluation interval, so the
+ * percentile always covers the last `windowMillis`. Every [evaluationIntervalMillis] each
+ * objective is evaluated on one scheduler thread. Hysteresis keeps a flapping operation from
+ * producing an alert per evaluation: an objective is only reported as breached after
+ * [breachEvaluations] consecutive failing evaluations, and only reported as recovered after
+ * [recoveryEvaluations] consecutive evaluations under `recoveryRatio` times its threshold.
+ * Windows with fewer than [minSamples] timings are not evaluated.
+ *
+ * A new monitor installs itself in [LatencySloRegistry] next to any other open monitor, so it
+ * receives the timings of [logExecutionTime] however it was created; [close] uninstalls it.
+ *
+ * @param slos Objectives to track; timings of other operations are ignored
+ * @param listener Receives breaches and recoveries on the scheduler thread
+ */
+class LatencySloMonitor(
+    slos: Collection<LatencySlo>,
+    private val listener: (LatencySloEvent) -> Unit,
+    private val evaluationIntervalMillis: Long = 10000L,
+    private val breachEvaluations: Int = 2,
+    private val recoveryEvaluations: Int = 3,
+    private val recoveryRatio: Double = 0.8,
+    private val minSamples: Long = 20L
+) : AutoCloseable {
+
+    private inner class Tracker(val slo: LatencySlo) {
+        private val slots = Array(
+            ((slo.windowMillis + evaluationIntervalMillis - 1) / evaluationIntervalMillis).toInt().coerceAtLeast(1)
+        ) { LatencyHistogram() }
+
+        @Volatile
+        private var current = 0
+        private var failing = 0
+        private var passing = 0
+        @Volatile
+        var breached = false
+            private set
+
+        fun record(nanos: Long) {
+            slots[current].record(nanos)
+        }
+
+        fun snapshot(): LatencySnapshot = LatencySnapshot.of(slots.asIterable())
+
+        fun evaluate() {
+            val snapshot = snapshot()
+            rotate()
+            if (snapshot.count < minSamples) return
+
+            val observed = snapshot.valueAtPercentile(slo.percentile)
+            val threshold = TimeUnit.MILLISECONDS.toNanos(slo.thresholdMillis)
+
+            if (observed > threshold) {
+                failing++
+                passing = 0
+            } else if (observed <= threshold * recoveryRatio) {
+                passing++
+                failing = 0
+            } else {
+                failing = 0
+                passing = 0
+            }
+
+            if (!breached && failing >= breachEvaluations) {
+                breached = true
+                listener(LatencySloEvent(slo, true, observed, snapshot.count))
+            } else if (breached && passing >= recoveryEvaluations) {
+                breached = false
+                listener(LatencySloEvent(slo, false, observed, snapshot.count))
+            }
+        }
+
+        private fun rotate() {
+            val next = (current + 1) % slots.size
+            slots[next].reset()
+            current = next
+        }
+    }
+
+    private val trackers = ConcurrentHashMap<String, Tracker>().apply {
+        slos.forEach { put(it.operation, Tracker(it)) }
+    }
+
+    private val scheduler = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, "latency-slo-monitor").apply { isDaemon = true }
+    }.apply {
+        val period = evaluationIntervalMillis.coerceAtLeast(1L)
+        scheduleAtFixedRate(::evaluateSafely, period, period, TimeUnit.MILLISECONDS)
+    }
+
+    init {
+        LatencySloRegistry.install(this)
+    }
+
+    /**
+     * Records one timing of [operation]; a no-op for operations without an objective.
+     */
+    fun record(operation: String, nanos: Long) {
+        trackers[operation]?.record(nanos)
+    }
+
+    /**
+     * Returns the latencies of [operation] over its window, or null when it has no objective.
+     */
+    fun snapshot(operation: String): LatencySnapshot? = trackers[operation]?.snapshot()
+
+    fun isBreached(operation: String): Boolean = trackers[operation]?.breached ?: false
+
+    /**
+     * Evaluates every objective now; called by the scheduler thread.
+     */
+    internal fun evaluate() {
+        trackers.values.forEach { it.evaluate() }
+    }
+
+    override fun close() {
+        LatencySloRegistry.uninstall(this)
+        scheduler.shutdownNow()
+    }
+
+    private fun evaluateSafely() {
+        try {
+            evaluate()
+        } catch (e: Exception) {
+            logError("Failed to evaluate latency objectives", e)
+        }
+    }
+}
+
+/**
+ * Process-wide hook through which the performance helpers report timings to every installed
+ * [LatencySloMonitor].
+ *
+ * The monitors are kept in a copy-on-write array, so [record] reads one snapshot without
+ * locking or allocating while monitors are installed and uninstalled.
+ */
+object LatencySloRegistry {
+
+    private val monitors = AtomicReference<Array<LatencySloMonitor>>(emptyArray())
+
+    fun install(monitor: LatencySloMonitor) {
+        monitors.updateAndGet { current ->
+            if (current.any { it === monitor }) current else current + monitor
+        }
+    }
+
+    fun uninstall(monitor: LatencySloMonitor) {
+        monitors.updateAndGet { current ->
+            if (current.none { it === monitor }) current else current.filter { it !== monitor }.toTypedArray()
+        }
+    }
+
+    fun record(operation: String, nanos: Long) {
+        val current = monitors.get()
+        for (index in current.indices) {
+            current[index].record(operation, nanos)
+        }
+    }
+}
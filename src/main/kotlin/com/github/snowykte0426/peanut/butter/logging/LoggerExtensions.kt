@@ -16,8 +16,11 @@ import org.slf4j.LoggerFactory
  *     }
  * }
  * ```
+ *
+ * The logger is resolved from the logging backend once per class and cached, so calling this
+ * on every log statement costs a [ClassValue] lookup rather than a backend lookup.
  */
-fun Any.logger(): Logger = LoggerFactory.getLogger(this.javaClass)
+fun Any.logger(): Logger = LoggerCache.get(this.javaClass)
 
 /**
  * Extension function to get a logger with a specific name.
@@ -33,7 +36,7 @@ fun Any.logger(name: String): Logger = LoggerFactory.getLogger(name)
  * @param clazz Class to create logger for
  * @return Logger instance for the specified class
  */
-fun Any.logger(clazz: Class<*>): Logger = LoggerFactory.getLogger(clazz)
+fun Any.logger(clazz: Class<*>): Logger = LoggerCache.get(clazz)
 
 /**
  * Inline extension function for lazy logger initialization.
@@ -47,7 +50,7 @@ fun Any.logger(clazz: Class<*>): Logger = LoggerFactory.getLogger(clazz)
  * }
  * ```
  */
-inline fun <reified T : Any> T.lazyLogger(): Lazy<Logger> = lazy { LoggerFactory.getLogger(T::class.java) }
+inline fun <reified T : Any> T.lazyLogger(): Lazy<Logger> = lazy { LoggerCache.get(T::class.java) }
 
 /**
  * Extension function for companion objects to get a logger for the outer class.
@@ -65,8 +68,16 @@ fun Any.companionLogger(): Logger {
     val companionClass = this.javaClass
     val enclosingClass = companionClass.enclosingClass
     return if (enclosingClass != null) {
-        LoggerFactory.getLogger(enclosingClass)
+        LoggerCache.get(enclosingClass)
     } else {
-        LoggerFactory.getLogger(companionClass)
+        LoggerCache.get(companionClass)
     }
 }
+
+/**
+ * Loggers by class, computed once per class through [LoggerFactory].
+ */
+@PublishedApi
+internal object LoggerCache : ClassValue<Logger>() {
+    override fun computeValue(type: Class<*>): Logger = LoggerFactory.getLogger(type)
+}
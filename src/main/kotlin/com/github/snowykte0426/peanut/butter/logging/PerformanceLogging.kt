@@ -1,27 +1,35 @@
 package com.github.snowykte0426.peanut.butter.logging
 
 import org.slf4j.Logger
+import java.util.concurrent.TimeUnit
 import kotlin.system.measureTimeMillis
 
 /**
  * Utility functions for performance logging and method execution tracking.
  */
 
+/**
+ * Reports one timing to [LatencySloRegistry] and [LatencyRecorders].
+ */
+@PublishedApi
+internal fun recordTiming(operation: String, nanos: Long) {
+    LatencySloRegistry.record(operation, nanos)
+    LatencyRecorders.record(operation, nanos)
+}
+
 /**
  * Execute a block of code and log the execution time.
  * 
+ * The timing is also reported to [LatencySloRegistry], so operations with a registered
+ * latency objective are tracked whether or not debug logging is enabled. While
+ * [LatencyRecorders] is enabled the timing is recorded there instead of being logged.
+ * 
  * @param operation Description of the operation being timed
  * @param block The code block to execute and measure
  * @return The result of the block execution
  */
 inline fun <T> Any.logExecutionTime(operation: String, block: () -> T): T {
-    val logger = logger()
-    var result: T
-    val timeMs = measureTimeMillis {
-        result = block()
-    }
-    logger.debug("$operation completed in ${timeMs}ms")
-    return result
+    return logExecutionTime(logger(), operation, block)
 }
 
 /**
@@ -33,11 +41,18 @@ inline fun <T> Any.logExecutionTime(operation: String, block: () -> T): T {
  * @return The result of the block execution
  */
 inline fun <T> logExecutionTime(logger: Logger, operation: String, block: () -> T): T {
-    var result: T
-    val timeMs = measureTimeMillis {
-        result = block()
+    val start = System.nanoTime()
+    val result = try {
+        block()
+    } catch (e: Throwable) {
+        recordTiming(operation, System.nanoTime() - start)
+        throw e
+    }
+    val elapsedNanos = System.nanoTime() - start
+    recordTiming(operation, elapsedNanos)
+    if (!LatencyRecorders.enabled && logger.isDebugEnabled) {
+        logger.debug("$operation completed in ${TimeUnit.NANOSECONDS.toMillis(elapsedNanos)}ms")
     }
-    logger.debug("$operation completed in ${timeMs}ms")
     return result
 }
 
@@ -61,6 +76,7 @@ inline fun <T> Any.logMethodExecution(
     
     logger.debug("Entering method: $methodName${if (paramsString.isNotEmpty()) " with params: $paramsString" else ""}")
     
+    val start = System.nanoTime()
     return try {
         val result = block()
         logger.debug("Exiting method: $methodName successfully")
@@ -68,6 +84,8 @@ inline fun <T> Any.logMethodExecution(
     } catch (e: Exception) {
         logger.error("Exiting method: $methodName with error: ${e.message}", e)
         throw e
+    } finally {
+        recordTiming(methodName, System.nanoTime() - start)
     }
 }
 
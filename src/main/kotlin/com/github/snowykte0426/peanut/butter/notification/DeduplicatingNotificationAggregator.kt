@@ -0,0 +1,107 @@
+package com.github.snowykte0426.peanut.butter.notification
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Lets the first event of a kind through and suppresses repeats for [windowMillis].
+ *
+ * The first event after the window carries the number of suppressed repeats in the
+ * [NotificationEvent.SUPPRESSED_ATTRIBUTE] attribute. Expired windows are swept at most once
+ * per window length while events arrive, so keys that never repeat do not accumulate; a swept
+ * window with suppressed repeats emits its latest repeat carrying the count, as do windows
+ * still pending at [close], so that none go unreported.
+ *
+ * @param windowMillis How long repeats of an emitted event are suppressed
+ * @param keyOf What makes two events repeats of each other
+ */
+class DeduplicatingNotificationAggregator(
+    private val windowMillis: Long,
+    private val keyOf: (NotificationEvent) -> Any = ::defaultKey
+) : NotificationAggregator {
+
+    private class Window(val startedAtNanos: Long) {
+        var suppressed = 0L
+        var latest: NotificationEvent? = null
+    }
+
+    private val windows = ConcurrentHashMap<Any, Window>()
+    private val windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis)
+    private val lastSweepNanos = AtomicLong(System.nanoTime())
+
+    @Volatile
+    private var emitOnClose: (NotificationEvent) -> Unit = {}
+
+    override fun aggregate(event: NotificationEvent, emit: (NotificationEvent) -> Unit) {
+        emitOnClose = emit
+        val now = System.nanoTime()
+        sweepExpired(now, emit)
+        var suppressedBefore = 0L
+        var emitted = false
+
+        windows.compute(keyOf(event)) { _, window ->
+            if (window == null || now - window.startedAtNanos >= windowNanos) {
+                suppressedBefore = window?.suppressed ?: 0L
+                emitted = true
+                Window(now)
+            } else {
+                window.suppressed++
+                window.latest = event
+                window
+            }
+        }
+
+        if (emitted) {
+            emit(if (suppressedBefore > 0) event.withSuppressed(suppressedBefore) else event)
+        }
+    }
+
+    fun pendingWindows(): Int = windows.size
+
+    /**
+     * Removes the windows that expired, emitting the repeats they suppressed; runs at most once
+     * per window length.
+     */
+    private fun sweepExpired(now: Long, emit: (NotificationEvent) -> Unit) {
+        val last = lastSweepNanos.get()
+        if (now - last < windowNanos || !lastSweepNanos.compareAndSet(last, now)) return
+
+        windows.keys.forEach { key ->
+            var evicted: Window? = null
+            windows.computeIfPresent(key) { _, window ->
+                if (now - window.startedAtNanos >= windowNanos) {
+                    evicted = window
+                    null
+                } else {
+                    window
+                }
+            }
+
+            val latest = evicted?.latest
+            val suppressed = evicted?.suppressed ?: 0L
+            if (suppressed > 0 && latest != null) {
+                emit(latest.withSuppressed(suppressed))
+            }
+        }
+    }
+
+    override fun close() {
+        val emit = emitOnClose
+        windows.values.forEach { window ->
+            val latest = window.latest
+            if (window.suppressed > 0 && latest != null) {
+                emit(latest.withSuppressed(window.suppressed))
+            }
+        }
+        windows.clear()
+    }
+
+    private fun NotificationEvent.withSuppressed(count: Long): NotificationEvent =
+        withAttributes(mapOf(NotificationEvent.SUPPRESSED_ATTRIBUTE to count.toString()))
+
+    private companion object {
+        private fun defaultKey(event: NotificationEvent): Any =
+            Triple(event.type, event.title, event.exception?.javaClass ?: event.message)
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.snowykte0426.peanut.butter.notification
+
+import java.time.Instant
+
+/**
+ * A transport-neutral notification as it travels through the [NotificationPipeline].
+ *
+ * @param type What happened, such as `startup` or `exception`; used for aggregation keys
+ * @param title Short headline
+ * @param message Body text
+ * @param severity How urgent the notification is
+ * @param exception The exception being reported, if any
+ * @param attributes Extra key/value pairs added by the caller or by enrichers
+ * @param timestamp When the event was raised
+ */
+data class NotificationEvent(
+    val type: String,
+    val title: String,
+    val message: String = "",
+    val severity: NotificationSeverity = NotificationSeverity.INFO,
+    val exception: Throwable? = null,
+    val attributes: Map<String, String> = emptyMap(),
+    val timestamp: Instant = Instant.now()
+) {
+
+    fun withAttributes(extra: Map<String, String>): NotificationEvent =
+        if (extra.isEmpty()) this else copy(attributes = attributes + extra)
+
+    companion object {
+        const val CONTEXT_ATTRIBUTE = "context"
+        const val SUPPRESSED_ATTRIBUTE = "suppressed"
+    }
+}
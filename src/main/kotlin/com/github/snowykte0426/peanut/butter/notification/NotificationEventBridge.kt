@@ -0,0 +1,59 @@
+package com.github.snowykte0426.peanut.butter.notification
+
+import com.github.snowykte0426.peanut.butter.notification.discord.UncaughtExceptionEvent
+import org.springframework.boot.context.event.ApplicationReadyEvent
+import org.springframework.context.event.ContextClosedEvent
+import org.springframework.context.event.EventListener
+
+/**
+ * Publishes application startup, shutdown and uncaught exceptions to the [NotificationPipeline],
+ * so channels such as Slack or a file receive them without a Discord webhook.
+ *
+ * Only registered while Discord is not one of the pipeline's sinks; otherwise the Discord
+ * service raises these notifications itself and publishes them to the pipeline.
+ *
+ * @param publisher Pipeline the events are published to
+ * @param applicationName Name shown in the startup and shutdown notifications
+ */
+class NotificationEventBridge(
+    private val publisher: NotificationPublisher,
+    private val applicationName: String
+) {
+
+    @EventListener
+    fun handleApplicationReady(event: ApplicationReadyEvent) {
+        publisher.publish(NotificationEvent(type = "startup", title = "Server Started", message = "$applicationName is ready"))
+    }
+
+    @EventListener
+    fun handleContextClosed(event: ContextClosedEvent) {
+        publisher.publish(NotificationEvent(type = "shutdown", title = "Server Stopping", message = "$applicationName is shutting down"))
+    }
+
+    @EventListener
+    fun handleUncaughtException(event: UncaughtExceptionEvent) {
+        publishException(event.exception, "Uncaught Exception in ${event.source}")
+    }
+
+    /**
+     * Publishes [exception] with an optional [context], such as the request it failed.
+     *
+     * @return false if the pipeline discarded the event
+     */
+    fun publishException(
+        exception: Throwable,
+        context: String = "",
+        severity: NotificationSeverity = NotificationSeverity.ERROR
+    ): Boolean {
+        return publisher.publish(
+            NotificationEvent(
+                type = "exception",
+                title = exception.javaClass.simpleName,
+                message = exception.message ?: "",
+                severity = severity,
+                exception = exception,
+                attributes = if (context.isEmpty()) emptyMap() else mapOf(NotificationEvent.CONTEXT_ATTRIBUTE to context)
+            )
+        )
+    }
+}
@@ -0,0 +1,249 @@
+package com.github.snowykte0426.peanut.butter.notification
+
+import com.github.snowykte0426.peanut.butter.logging.logError
+import com.github.snowykte0426.peanut.butter.logging.logWarn
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Runs events through enrichment and aggregation and fans them out to every sink.
+ *
+ * Each sink has its own bounded queue whose capacity and [OverflowPolicy] come from the sink's
+ * backpressure settings. The queues share one small worker pool: a sink is scheduled on the
+ * pool whenever it has queued events and drains at most [DRAIN_BATCH] of them before yielding,
+ * so a slow sink holds at most one worker and never delays the others' queues.
+ *
+ * @param sinks Destinations of every event
+ * @param enrichers Applied in order on the publishing thread
+ * @param aggregator Decides which enriched events reach the sinks
+ * @param threads Size of the shared worker pool
+ * @param name Prefix of the worker thread names
+ * @param shutdownTimeoutMillis Time [close] gives the sinks to deliver queued events
+ */
+class NotificationPipeline(
+    sinks: List<NotificationSink>,
+    private val enrichers: List<NotificationEnricher> = emptyList(),
+    private val aggregator: NotificationAggregator = NotificationAggregator.NONE,
+    threads: Int = 2,
+    name: String = "notification-pipeline",
+    private val shutdownTimeoutMillis: Long = 0L
+) : NotificationPublisher, AutoCloseable {
+
+    private companion object {
+        private const val DRAIN_BATCH = 32
+        private const val SHUTDOWN_POLL_MILLIS = 10L
+    }
+
+    private val threadCount = AtomicInteger()
+    private val executor = Executors.newFixedThreadPool(threads.coerceAtLeast(1)) { runnable ->
+        Thread(runnable, "$name-${threadCount.incrementAndGet()}").apply { isDaemon = true }
+    }
+
+    private val queues = sinks.map { SinkQueue(it) }
+
+    @Volatile
+    private var publishing = true
+
+    /**
+     * Enriches [event] and hands it to the aggregator, which passes it on to the sink queues.
+     *
+     * @return false if the pipeline is shutting down and the event was discarded
+     */
+    override fun publish(event: NotificationEvent): Boolean {
+        if (!publishing) return false
+
+        return try {
+            var enriched = event
+            for (enricher in enrichers) {
+                enriched = enricher.enrich(enriched)
+            }
+            aggregator.aggregate(enriched, ::fanOut)
+            true
+        } catch (e: Exception) {
+            logError("Failed to publish notification", e)
+            false
+        }
+    }
+
+    /**
+     * Returns queue depth and delivery counters per sink name.
+     */
+    fun stats(): Map<String, SinkStats> = queues.associate { it.sink.name to it.stats() }
+
+    /**
+     * Stops accepting events, flushes the aggregator and gives the sinks up to [timeoutMillis]
+     * to deliver what is queued. An interrupt cuts the wait short; the sinks are closed either
+     * way and the interrupt flag is kept.
+     *
+     * @return Number of events still queued (and therefore abandoned) when the deadline passed
+     */
+    fun shutdown(timeoutMillis: Long): Int {
+        publishing = false
+        val deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+
+        try {
+            aggregator.close()
+        } catch (e: Exception) {
+            logError("Failed to flush notification aggregator", e)
+        }
+        queues.forEach { it.accepting = false }
+
+        try {
+            while (queues.any { it.busy() } && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(SHUTDOWN_POLL_MILLIS)
+            }
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+        } finally {
+            executor.shutdownNow()
+        }
+
+        val abandoned = queues.sumOf { it.abandon() }
+        queues.forEach { queue ->
+            try {
+                queue.sink.close()
+            } catch (e: Exception) {
+                logError("Failed to close notification sink {}", queue.sink.name, e)
+            }
+        }
+        if (abandoned > 0) {
+            logWarn("Notification pipeline stopped with {} undelivered events", abandoned)
+        }
+        return abandoned
+    }
+
+    override fun close() {
+        shutdown(shutdownTimeoutMillis)
+    }
+
+    private fun fanOut(event: NotificationEvent) {
+        queues.forEach { it.offer(event) }
+    }
+
+    private inner class SinkQueue(val sink: NotificationSink) {
+
+        private val backpressure = sink.backpressure
+        private val queue = ArrayBlockingQueue<NotificationEvent>(backpressure.queueCapacity.coerceAtLeast(1))
+        private val scheduled = AtomicBoolean()
+        private val submitted = AtomicLong()
+        private val delivered = AtomicLong()
+        private val failed = AtomicLong()
+        private val dropped = AtomicLong()
+
+        @Volatile
+        var accepting = true
+
+        fun offer(event: NotificationEvent) {
+            if (!accepting) {
+                dropped.incrementAndGet()
+                return
+            }
+
+            val accepted = when (backpressure.overflowPolicy) {
+                OverflowPolicy.DROP_NEWEST -> queue.offer(event)
+                OverflowPolicy.BLOCK -> offerBlocking(event)
+                OverflowPolicy.DROP_OLDEST -> offerDroppingOldest(event)
+            }
+
+            if (accepted) {
+                submitted.incrementAndGet()
+                schedule()
+            } else {
+                dropped.incrementAndGet()
+            }
+        }
+
+        fun busy(): Boolean = queue.isNotEmpty() || scheduled.get()
+
+        fun abandon(): Int {
+            val abandoned = queue.size
+            queue.clear()
+            dropped.addAndGet(abandoned.toLong())
+            return abandoned
+        }
+
+        fun stats(): SinkStats {
+            return SinkStats(
+                queueDepth = queue.size,
+                queueCapacity = backpressure.queueCapacity,
+                submitted = submitted.get(),
+                delivered = delivered.get(),
+                failed = failed.get(),
+                dropped = dropped.get()
+            )
+        }
+
+        private fun schedule() {
+            if (!scheduled.compareAndSet(false, true)) return
+
+            try {
+                executor.execute(::drain)
+            } catch (e: RejectedExecutionException) {
+                scheduled.set(false)
+            }
+        }
+
+        private fun drain() {
+            try {
+                var drained = 0
+                while (drained < DRAIN_BATCH) {
+                    val event = queue.poll() ?: break
+                    deliver(event)
+                    drained++
+                }
+            } finally {
+                scheduled.set(false)
+            }
+            if (queue.isNotEmpty()) {
+                schedule()
+            }
+        }
+
+        private fun deliver(event: NotificationEvent) {
+            val success = try {
+                sink.deliver(event)
+            } catch (e: Exception) {
+                logError("Notification sink {} failed to deliver event", sink.name, e)
+                false
+            }
+
+            if (success) {
+                delivered.incrementAndGet()
+            } else {
+                failed.incrementAndGet()
+            }
+        }
+
+        private fun offerBlocking(event: NotificationEvent): Boolean {
+            return try {
+                queue.offer(event, backpressure.offerTimeout, TimeUnit.MILLISECONDS)
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                false
+            }
+        }
+
+        private fun offerDroppingOldest(event: NotificationEvent): Boolean {
+            while (!queue.offer(event)) {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet()
+                }
+            }
+            return true
+        }
+    }
+}
+
+data class SinkStats(
+    val queueDepth: Int,
+    val queueCapacity: Int,
+    val submitted: Long,
+    val delivered: Long,
+    val failed: Long,
+    val dropped: Long
+)
@@ -0,0 +1,101 @@
+package com.github.snowykte0426.peanut.butter.notification
+
+import com.github.snowykte0426.peanut.butter.notification.discord.DiscordAutoConfiguration
+import com.github.snowykte0426.peanut.butter.notification.discord.DiscordNotificationSink
+import com.github.snowykte0426.peanut.butter.notification.discord.DiscordWebhookService
+import com.github.snowykte0426.peanut.butter.notification.file.JsonLinesFileSink
+import com.github.snowykte0426.peanut.butter.notification.slack.SlackNotificationSink
+import org.springframework.beans.factory.ObjectProvider
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.autoconfigure.AutoConfiguration
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
+import org.springframework.boot.context.properties.EnableConfigurationProperties
+import org.springframework.context.annotation.Bean
+import org.springframework.http.client.SimpleClientHttpRequestFactory
+import org.springframework.web.client.RestTemplate
+import java.nio.file.Paths
+
+@AutoConfiguration(after = [DiscordAutoConfiguration::class])
+@EnableConfigurationProperties(NotificationProperties::class)
+@ConditionalOnProperty(
+    name = ["peanut-butter.notification.pipeline.enabled"],
+    havingValue = "true"
+)
+class NotificationPipelineAutoConfiguration {
+
+    @Bean
+    @ConditionalOnBean(DiscordWebhookService::class)
+    @ConditionalOnProperty(
+        name = ["peanut-butter.notification.pipeline.discord.enabled"],
+        havingValue = "true",
+        matchIfMissing = true
+    )
+    fun discordNotificationSink(
+        discordWebhookService: DiscordWebhookService,
+        notificationProperties: NotificationProperties
+    ): DiscordNotificationSink {
+        return DiscordNotificationSink(discordWebhookService, notificationProperties.pipeline.discord.backpressure)
+    }
+
+    @Bean
+    @ConditionalOnProperty(
+        name = ["peanut-butter.notification.pipeline.slack.enabled"],
+        havingValue = "true"
+    )
+    fun slackNotificationSink(notificationProperties: NotificationProperties): SlackNotificationSink {
+        val slack = notificationProperties.pipeline.slack
+        val requestFactory = SimpleClientHttpRequestFactory().apply {
+            setConnectTimeout(slack.timeout.toInt())
+            setReadTimeout(slack.timeout.toInt())
+        }
+        return SlackNotificationSink(slack.url, RestTemplate(requestFactory), slack.backpressure)
+    }
+
+    @Bean
+    @ConditionalOnProperty(
+        name = ["peanut-butter.notification.pipeline.file.enabled"],
+        havingValue = "true"
+    )
+    fun jsonLinesFileSink(notificationProperties: NotificationProperties): JsonLinesFileSink {
+        val file = notificationProperties.pipeline.file
+        return JsonLinesFileSink(Paths.get(file.path), file.maxFileSize, file.maxFiles, file.backpressure)
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    fun notificationAggregator(notificationProperties: NotificationProperties): NotificationAggregator {
+        val window = notificationProperties.pipeline.deduplicationWindow
+        return if (window > 0) DeduplicatingNotificationAggregator(window) else NotificationAggregator.NONE
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    fun notificationPipeline(
+        notificationProperties: NotificationProperties,
+        sinks: ObjectProvider<NotificationSink>,
+        enrichers: ObjectProvider<NotificationEnricher>,
+        notificationAggregator: NotificationAggregator
+    ): NotificationPipeline {
+        val sinkList = sinks.orderedStream().toList()
+        val pipeline = NotificationPipeline(
+            sinks = sinkList,
+            enrichers = enrichers.orderedStream().toList(),
+            aggregator = notificationAggregator,
+            threads = notificationProperties.pipeline.threads,
+            shutdownTimeoutMillis = notificationProperties.pipeline.shutdownTimeout
+        )
+        sinkList.filterIsInstance<DiscordNotificationSink>().forEach { it.publishThrough(pipeline) }
+        return pipeline
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(DiscordNotificationSink::class, NotificationEventBridge::class)
+    fun notificationEventBridge(
+        notificationPipeline: NotificationPipeline,
+        @Value("\${spring.application.name:Unknown Application}") applicationName: String
+    ): NotificationEventBridge {
+        return NotificationEventBridge(notificationPipeline, applicationName)
+    }
+}
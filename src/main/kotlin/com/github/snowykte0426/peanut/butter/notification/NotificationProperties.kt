@@ -0,0 +1,44 @@
+package com.github.snowykte0426.peanut.butter.notification
+
+import org.springframework.boot.context.properties.ConfigurationProperties
+
+@ConfigurationProperties(prefix = "peanut-butter.notification")
+data class NotificationProperties(
+    val pipeline: PipelineProperties = PipelineProperties()
+) {
+    data class PipelineProperties(
+        val enabled: Boolean = false,
+        val threads: Int = 2,
+        val shutdownTimeout: Long = 10000L,
+        val deduplicationWindow: Long = 0L,
+        val discord: DiscordSinkProperties = DiscordSinkProperties(),
+        val slack: SlackSinkProperties = SlackSinkProperties(),
+        val file: FileSinkProperties = FileSinkProperties()
+    )
+
+    data class BackpressureProperties(
+        val queueCapacity: Int = 1000,
+        val overflowPolicy: OverflowPolicy = OverflowPolicy.DROP_OLDEST,
+        val offerTimeout: Long = 100L
+    )
+
+    data class DiscordSinkProperties(
+        val enabled: Boolean = true,
+        val backpressure: BackpressureProperties = BackpressureProperties()
+    )
+
+    data class SlackSinkProperties(
+        val enabled: Boolean = false,
+        val url: String = "",
+        val timeout: Long = 5000L,
+        val backpressure: BackpressureProperties = BackpressureProperties()
+    )
+
+    data class FileSinkProperties(
+        val enabled: Boolean = false,
+        val path: String = "logs/notifications.jsonl",
+        val maxFileSize: Long = 10L * 1024 * 1024,
+        val maxFiles: Int = 5,
+        val backpressure: BackpressureProperties = BackpressureProperties(queueCapacity = 10000)
+    )
+}
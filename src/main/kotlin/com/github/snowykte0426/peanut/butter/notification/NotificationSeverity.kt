@@ -0,0 +1,23 @@
+package com.github.snowykte0426.peanut.butter.notification
+
+/**
+ * How urgent a notification is, used to route it to a webhook or sink.
+ *
+ * Lifecycle notifications are sent as [INFO] and exception notifications as [ERROR] unless
+ * the caller says otherwise.
+ */
+enum class NotificationSeverity {
+    INFO,
+    WARNING,
+    ERROR,
+    CRITICAL
+}
+
+/**
+ * What a bounded notification queue does when it is full.
+ */
+enum class OverflowPolicy {
+    DROP_OLDEST,
+    DROP_NEWEST,
+    BLOCK
+}
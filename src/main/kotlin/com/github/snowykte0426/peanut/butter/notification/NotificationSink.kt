@@ -0,0 +1,90 @@
+package com.github.snowykte0426.peanut.butter.notification
+
+/**
+ * Entry point through which notifications are raised; implemented by [NotificationPipeline].
+ */
+fun interface NotificationPublisher {
+    /**
+     * @return false if the event was discarded
+     */
+    fun publish(event: NotificationEvent): Boolean
+}
+
+/**
+ * Adds information to every event before it is aggregated, such as host or tenant.
+ */
+fun interface NotificationEnricher {
+    fun enrich(event: NotificationEvent): NotificationEvent
+}
+
+/**
+ * Decides which events reach the sinks, for example by folding repeats into one.
+ *
+ * Implementations call `emit` for every event that should go out, either right away or later
+ * from their own thread, and emit whatever they still hold on [close].
+ */
+interface NotificationAggregator : AutoCloseable {
+
+    fun aggregate(event: NotificationEvent, emit: (NotificationEvent) -> Unit)
+
+    override fun close() {}
+
+    companion object {
+        /**
+         * Passes every event through unchanged.
+         */
+        val NONE: NotificationAggregator = object : NotificationAggregator {
+            override fun aggregate(event: NotificationEvent, emit: (NotificationEvent) -> Unit) = emit(event)
+        }
+    }
+}
+
+/**
+ * Turns an event into the message format of one channel.
+ */
+fun interface NotificationRenderer<T> {
+    fun render(event: NotificationEvent): T
+}
+
+/**
+ * Delivers a rendered message.
+ */
+fun interface NotificationTransport<T> {
+    /**
+     * @return true once the channel accepted the message
+     */
+    fun send(message: T): Boolean
+}
+
+/**
+ * Destination of the [NotificationPipeline]. Each sink gets its own queue sized by
+ * [backpressure], so a slow or failing channel only sheds its own messages.
+ */
+interface NotificationSink : AutoCloseable {
+
+    val name: String
+
+    val backpressure: NotificationProperties.BackpressureProperties
+
+    /**
+     * Delivers [event]; called from a pipeline worker, never concurrently for the same sink.
+     *
+     * @return true once the channel accepted the event
+     */
+    fun deliver(event: NotificationEvent): Boolean
+
+    override fun close() {}
+}
+
+/**
+ * Sink made of a [NotificationRenderer] and a [NotificationTransport].
+ */
+open class RenderingNotificationSink<T>(
+    override val name: String,
+    override val backpressure: NotificationProperties.BackpressureProperties,
+    private val renderer: NotificationRenderer<T>,
+    private val transport: NotificationTransport<T>
+) : NotificationSink {
+
+    override fun deliver(event: NotificationEvent): Boolean = transport.send(renderer.render(event))
+}
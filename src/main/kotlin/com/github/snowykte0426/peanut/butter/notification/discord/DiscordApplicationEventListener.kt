@@ -1,6 +1,7 @@
 package com.github.snowykte0426.peanut.butter.notification.discord
 
 import com.github.snowykte0426.peanut.butter.logging.logInfo
+import com.github.snowykte0426.peanut.butter.logging.logWarn
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
 import org.springframework.boot.context.event.ApplicationReadyEvent
 import org.springframework.context.event.ContextClosedEvent
@@ -13,13 +14,27 @@ import org.springframework.stereotype.Component
     havingValue = "true"
 )
 class DiscordApplicationEventListener(
-    private val discordWebhookService: DiscordWebhookService
+    private val discordWebhookService: DiscordWebhookService,
+    private val discordProperties: DiscordProperties? = null
 ) {
 
     @EventListener
     fun handleApplicationReady(event: ApplicationReadyEvent) {
         logInfo("Application ready - sending Discord notification")
-        discordWebhookService.sendStartupNotification()
+        discordWebhookService.replayOutbox()
+        discordWebhookService.sendStartupNotification(startupTiming(event))
+    }
+
+    private fun startupTiming(event: ApplicationReadyEvent): StartupTimingSummary? {
+        val startupTiming = discordProperties?.startupTiming ?: return null
+        if (!startupTiming.enabled) return null
+
+        return try {
+            StartupTimingSummary.from(event, startupTiming.slowestBeans, startupTiming.bufferCapacity)
+        } catch (e: Exception) {
+            logWarn("Failed to summarize startup timing", e)
+            null
+        }
     }
 
     @EventListener
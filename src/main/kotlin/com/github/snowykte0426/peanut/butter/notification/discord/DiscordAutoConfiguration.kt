@@ -1,11 +1,14 @@
 package com.github.snowykte0426.peanut.butter.notification.discord
 
+import com.github.snowykte0426.peanut.butter.logging.LatencySlo
+import com.github.snowykte0426.peanut.butter.logging.LatencySloMonitor
 import org.springframework.boot.autoconfigure.AutoConfiguration
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
 import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.ComponentScan
+import org.springframework.http.client.SimpleClientHttpRequestFactory
 import org.springframework.web.client.RestTemplate
 
 @AutoConfiguration
@@ -19,7 +22,65 @@ class DiscordAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    fun discordRestTemplate(): RestTemplate {
-        return RestTemplate()
+    fun discordRestTemplate(discordProperties: DiscordProperties): RestTemplate {
+        val requestFactory = SimpleClientHttpRequestFactory().apply {
+            setConnectTimeout(discordProperties.webhook.connectTimeout.toInt())
+            setReadTimeout(discordProperties.webhook.timeout.toInt())
+        }
+        return RestTemplate(requestFactory)
     }
-}
\ No newline at end of file
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(
+        name = ["peanut-butter.notification.discord.sampling.enabled"],
+        havingValue = "true"
+    )
+    fun exceptionAdmissionController(discordProperties: DiscordProperties): ExceptionAdmissionController {
+        val sampling = discordProperties.sampling
+        return ExceptionAdmissionController(
+            threshold = sampling.threshold,
+            windowMillis = sampling.window,
+            buckets = sampling.buckets,
+            minRatio = sampling.minRatio
+        )
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(
+        name = ["peanut-butter.notification.discord.shutdown.drain-enabled"],
+        havingValue = "true",
+        matchIfMissing = true
+    )
+    fun discordNotificationLifecycle(
+        discordWebhookService: DiscordWebhookService,
+        discordProperties: DiscordProperties
+    ): DiscordNotificationLifecycle {
+        return DiscordNotificationLifecycle(discordWebhookService, discordProperties.shutdown.timeout)
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(
+        name = ["peanut-butter.notification.discord.latency-slo.enabled"],
+        havingValue = "true"
+    )
+    fun latencySloMonitor(
+        discordWebhookService: DiscordWebhookService,
+        discordProperties: DiscordProperties
+    ): LatencySloMonitor {
+        val latencySlo = discordProperties.latencySlo
+        return LatencySloMonitor(
+            slos = latencySlo.operations.map { (operation, slo) ->
+                LatencySlo(operation, slo.percentile, slo.threshold, slo.window)
+            },
+            listener = DiscordLatencySloNotifier(discordWebhookService),
+            evaluationIntervalMillis = latencySlo.evaluationInterval,
+            breachEvaluations = latencySlo.breachEvaluations,
+            recoveryEvaluations = latencySlo.recoveryEvaluations,
+            recoveryRatio = latencySlo.recoveryRatio,
+            minSamples = latencySlo.minSamples
+        )
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+/**
+ * Packs embeds into as few webhook messages as Discord's limits allow.
+ *
+ * A message carries at most [maxEmbedsPerMessage] embeds (Discord allows 10) and at most
+ * [maxCharactersPerMessage] characters across the titles, descriptions, field names and values
+ * and footers of its embeds (Discord allows 6000). Embed order is preserved.
+ *
+ * @param maxEmbedsPerMessage Upper bound on embeds per message
+ * @param maxCharactersPerMessage Upper bound on counted characters per message
+ */
+class DiscordEmbedBatcher(
+    private val maxEmbedsPerMessage: Int = MAX_EMBEDS_PER_MESSAGE,
+    private val maxCharactersPerMessage: Int = MAX_CHARACTERS_PER_MESSAGE
+) {
+
+    companion object {
+        const val MAX_EMBEDS_PER_MESSAGE = 10
+        const val MAX_CHARACTERS_PER_MESSAGE = 6000
+
+        /**
+         * Counts the characters Discord includes in its per-message embed limit.
+         */
+        fun embedSize(embed: Map<String, Any>): Int {
+            var size = textLength(embed["title"]) + textLength(embed["description"])
+
+            (embed["fields"] as? List<*>)?.forEach { field ->
+                val fieldMap = field as? Map<*, *> ?: return@forEach
+                size += textLength(fieldMap["name"]) + textLength(fieldMap["value"])
+            }
+            (embed["footer"] as? Map<*, *>)?.let { size += textLength(it["text"]) }
+            (embed["author"] as? Map<*, *>)?.let { size += textLength(it["name"]) }
+
+            return size
+        }
+
+        private fun textLength(value: Any?): Int = (value as? String)?.length ?: 0
+    }
+
+    private val embedLimit = maxEmbedsPerMessage.coerceIn(1, MAX_EMBEDS_PER_MESSAGE)
+    private val characterLimit = maxCharactersPerMessage.coerceIn(1, MAX_CHARACTERS_PER_MESSAGE)
+
+    /**
+     * Splits [embeds] into messages. An embed that exceeds the character limit on its own is
+     * sent alone rather than dropped.
+     *
+     * @return Embed lists, one per webhook message
+     */
+    fun pack(embeds: List<Map<String, Any>>): List<List<Map<String, Any>>> {
+        if (embeds.isEmpty()) return emptyList()
+
+        val messages = mutableListOf<List<Map<String, Any>>>()
+        var current = mutableListOf<Map<String, Any>>()
+        var currentSize = 0
+
+        embeds.forEach { embed ->
+            val size = embedSize(embed)
+            if (current.isNotEmpty() &&
+                (current.size >= embedLimit || currentSize + size > characterLimit)
+            ) {
+                messages.add(current)
+                current = mutableListOf()
+                currentSize = 0
+            }
+            current.add(embed)
+            currentSize += size
+        }
+        messages.add(current)
+
+        return messages
+    }
+
+    /**
+     * Whether a pending batch of [embedCount] embeds totalling [characterCount] characters is
+     * full and should be flushed without waiting for the flush window.
+     */
+    fun isFull(embedCount: Int, characterCount: Int): Boolean {
+        return embedCount >= embedLimit || characterCount >= characterLimit
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.fasterxml.jackson.core.SerializableString
+import com.fasterxml.jackson.core.io.SerializedString
+import com.fasterxml.jackson.databind.ObjectMapper
+
+/**
+ * The parts of an embed that never change for a running application: the application, profile
+ * and hostname fields with their localized labels, and the footer.
+ *
+ * They are built once for the configured locale, shared by every embed, and serialized to JSON
+ * once, so [DiscordPayloadWriter] copies their bytes instead of walking the maps for each
+ * message.
+ *
+ * @param messages Localized labels
+ * @param applicationName Value of the application field
+ * @param activeProfiles Value of the profile field
+ * @param hostname Value of the hostname field, or null to omit it
+ * @param footerText Footer text, or empty to omit the footer
+ */
+class DiscordEmbedTemplate(
+    messages: DiscordMessages,
+    applicationName: String,
+    activeProfiles: String,
+    hostname: String?,
+    footerText: String
+) {
+
+    private companion object {
+        private val objectMapper = ObjectMapper()
+    }
+
+    val fields: List<Map<String, Any>> = buildList {
+        add(field(messages.applicationLabel, applicationName))
+        add(field(messages.profileLabel, activeProfiles))
+        if (hostname != null) {
+            add(field(messages.hostnameLabel, hostname))
+        }
+    }
+
+    val footer: Map<String, Any>? = if (footerText.isNotEmpty()) mapOf("text" to footerText) else null
+
+    private val fieldsJson = SerializedString(objectMapper.writeValueAsString(fields))
+
+    private val footerJson = footer?.let { SerializedString(objectMapper.writeValueAsString(it)) }
+
+    /**
+     * Returns the pre-serialized JSON of [value] if it is one of this template's shared fragments.
+     */
+    fun fragmentFor(value: Any): SerializableString? = when {
+        value === fields -> fieldsJson
+        value === footer -> footerJson
+        else -> null
+    }
+
+    private fun field(name: String, value: String): Map<String, Any> = mapOf(
+        "name" to name,
+        "value" to value,
+        "inline" to true
+    )
+}
@@ -0,0 +1,151 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.logging.logError
+import com.github.snowykte0426.peanut.butter.logging.logWarn
+import com.github.snowykte0426.peanut.butter.notification.NotificationSeverity
+import java.time.Instant
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Counts exception occurrences per [ExceptionFingerprint] and reports them once per time window.
+ *
+ * Recording is a map lookup and an atomic increment, so a storm of identical failures costs
+ * neither a stack trace rendering nor a webhook call per occurrence. Every window the table is
+ * swapped for an empty one and each fingerprint seen in it is handed to [sink] as a single
+ * [ExceptionSummary] carrying the highest severity recorded for it. At most `maxFingerprints`
+ * distinct fingerprints are tracked per window; occurrences of further ones are counted as
+ * overflow and logged.
+ *
+ * @param properties Window length, fingerprint depth and table bound
+ * @param sink Receives the summaries of one window
+ * @param name Name of the flush thread
+ */
+class DiscordExceptionAggregator(
+    private val properties: DiscordProperties.AggregationProperties,
+    private val sink: (List<ExceptionSummary>) -> Unit,
+    name: String = "discord-exception-aggregator"
+) : AutoCloseable {
+
+    private class Occurrences(
+        val sample: Throwable,
+        val sampleContext: String,
+        val firstSeen: Instant
+    ) {
+        val count = AtomicLong()
+        val severity = AtomicReference(NotificationSeverity.INFO)
+
+        @Volatile
+        var lastSeen: Instant = firstSeen
+
+        @Volatile
+        var samplingRatio: Double = 1.0
+    }
+
+    private val window = AtomicReference(ConcurrentHashMap<ExceptionFingerprint, Occurrences>())
+    private val overflow = AtomicLong()
+
+    private val scheduler = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, name).apply { isDaemon = true }
+    }.apply {
+        val period = properties.window.coerceAtLeast(1L)
+        scheduleWithFixedDelay(::flushSafely, period, period, TimeUnit.MILLISECONDS)
+    }
+
+    /**
+     * Records one occurrence of [exception]. The first occurrence of a fingerprint within the
+     * window keeps its exception and [context] as the sample shown in the summary.
+     *
+     * @return The fingerprint the occurrence was counted under
+     */
+    fun record(
+        exception: Throwable,
+        context: String = "",
+        samplingRatio: Double = 1.0,
+        severity: NotificationSeverity = NotificationSeverity.ERROR
+    ): ExceptionFingerprint {
+        val fingerprint = ExceptionFingerprint.of(exception, properties.frames)
+        val now = Instant.now()
+        val table = window.get()
+
+        var occurrences = table[fingerprint]
+        if (occurrences == null) {
+            if (table.size >= properties.maxFingerprints) {
+                overflow.incrementAndGet()
+                return fingerprint
+            }
+            val created = Occurrences(exception, context, now)
+            occurrences = table.putIfAbsent(fingerprint, created) ?: created
+        }
+
+        occurrences.count.incrementAndGet()
+        occurrences.severity.accumulateAndGet(severity) { current, recorded -> maxOf(current, recorded) }
+        occurrences.lastSeen = now
+        if (samplingRatio < occurrences.samplingRatio) {
+            occurrences.samplingRatio = samplingRatio
+        }
+        return fingerprint
+    }
+
+    fun pendingFingerprints(): Int = window.get().size
+
+    /**
+     * Closes the current window and hands its summaries to the sink.
+     *
+     * @return Summaries of the window that was closed, most frequent first
+     */
+    fun flush(): List<ExceptionSummary> {
+        val closed = window.getAndSet(ConcurrentHashMap())
+        val overflowed = overflow.getAndSet(0)
+        if (overflowed > 0) {
+            logWarn("Discord exception aggregation table was full, {} occurrences were not reported", overflowed)
+        }
+        if (closed.isEmpty()) return emptyList()
+
+        val summaries = closed.map { (fingerprint, occurrences) ->
+            ExceptionSummary(
+                fingerprint = fingerprint,
+                exception = occurrences.sample,
+                context = occurrences.sampleContext,
+                count = occurrences.count.get(),
+                firstSeen = occurrences.firstSeen,
+                lastSeen = occurrences.lastSeen,
+                samplingRatio = occurrences.samplingRatio,
+                severity = occurrences.severity.get()
+            )
+        }.sortedByDescending { it.count }
+
+        sink(summaries)
+        return summaries
+    }
+
+    /**
+     * Stops the window timer and reports whatever was recorded since the last flush.
+     */
+    override fun close() {
+        scheduler.shutdownNow()
+        flushSafely()
+    }
+
+    private fun flushSafely() {
+        try {
+            flush()
+        } catch (e: Exception) {
+            logError("Failed to report aggregated Discord exceptions", e)
+        }
+    }
+}
+
+data class ExceptionSummary(
+    val fingerprint: ExceptionFingerprint,
+    val exception: Throwable,
+    val context: String,
+    val count: Long,
+    val firstSeen: Instant,
+    val lastSeen: Instant,
+    val samplingRatio: Double = 1.0,
+    val severity: NotificationSeverity = NotificationSeverity.ERROR
+)
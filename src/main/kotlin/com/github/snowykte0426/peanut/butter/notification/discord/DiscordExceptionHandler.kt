@@ -1,6 +1,7 @@
 package com.github.snowykte0426.peanut.butter.notification.discord
 
 import com.github.snowykte0426.peanut.butter.logging.logError
+import com.github.snowykte0426.peanut.butter.notification.NotificationSeverity
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
 import org.springframework.context.event.EventListener
 import org.springframework.stereotype.Component
@@ -13,15 +14,20 @@ import org.springframework.web.context.request.ServletRequestAttributes
     havingValue = "true"
 )
 class DiscordExceptionHandler(
-    private val discordWebhookService: DiscordWebhookService
+    private val discordWebhookService: DiscordWebhookService,
+    private val admissionController: ExceptionAdmissionController? = null
 ) {
 
     fun handleException(
         exception: Throwable,
         context: String = "",
-        includeRequestInfo: Boolean = true
+        includeRequestInfo: Boolean = true,
+        severity: NotificationSeverity = NotificationSeverity.ERROR
     ) {
         try {
+            val samplingRatio = admissionController?.admit() ?: 1.0
+            if (samplingRatio <= 0.0) return
+
             var contextInfo = context
             
             if (includeRequestInfo) {
@@ -31,7 +37,7 @@ class DiscordExceptionHandler(
                 }
             }
 
-            discordWebhookService.sendExceptionNotification(exception, contextInfo)
+            discordWebhookService.sendExceptionNotification(exception, contextInfo, severity, samplingRatio)
         } catch (e: Exception) {
             logError("Discord 예외 알림 전송 중 오류 발생", e)
         }
@@ -0,0 +1,21 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.logging.LatencySloEvent
+import com.github.snowykte0426.peanut.butter.logging.logError
+
+/**
+ * Forwards latency objective breaches and recoveries from a
+ * [com.github.snowykte0426.peanut.butter.logging.LatencySloMonitor] to Discord.
+ */
+class DiscordLatencySloNotifier(
+    private val discordWebhookService: DiscordWebhookService
+) : (LatencySloEvent) -> Unit {
+
+    override fun invoke(event: LatencySloEvent) {
+        try {
+            discordWebhookService.sendLatencySloNotification(event)
+        } catch (e: Exception) {
+            logError("Failed to send latency objective notification", e)
+        }
+    }
+}
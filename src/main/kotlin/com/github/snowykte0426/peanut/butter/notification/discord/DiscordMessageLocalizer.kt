@@ -23,7 +23,31 @@ data class DiscordMessages(
     val methodLabel: String,
     val remoteAddressLabel: String,
     val queryStringLabel: String,
-    val stackTraceTruncated: String
+    val stackTraceTruncated: String,
+    val occurrencesLabel: String,
+    val firstSeenLabel: String,
+    val lastSeenLabel: String,
+    val samplingLabel: String,
+    val startupTimeLabel: String,
+    val beansCreatedLabel: String,
+    val slowestBeansLabel: String,
+    val autoConfigurationsLabel: String,
+    val startupTimingTruncated: String,
+    val healthTitle: String,
+    val healthAnomalyTitle: String,
+    val heapLabel: String,
+    val nonHeapLabel: String,
+    val gcLabel: String,
+    val threadsLabel: String,
+    val cpuLabel: String,
+    val gcTimeAnomaly: String,
+    val oldGenAnomaly: String,
+    val latencySloBreachTitle: String,
+    val latencySloRecoveredTitle: String,
+    val operationLabel: String,
+    val objectiveLabel: String,
+    val observedLabel: String,
+    val samplesLabel: String
 )
 
 object DiscordMessageLocalizer {
@@ -46,7 +70,31 @@ object DiscordMessageLocalizer {
             methodLabel = "Method",
             remoteAddressLabel = "Remote Address",
             queryStringLabel = "Query String",
-            stackTraceTruncated = "[Stack trace truncated]"
+            stackTraceTruncated = "[Stack trace truncated]",
+            occurrencesLabel = "Occurrences",
+            firstSeenLabel = "First Seen",
+            lastSeenLabel = "Last Seen",
+            samplingLabel = "Sampling",
+            startupTimeLabel = "Startup Time",
+            beansCreatedLabel = "Beans Created",
+            slowestBeansLabel = "Slowest Beans",
+            autoConfigurationsLabel = "Auto-configurations Applied",
+            startupTimingTruncated = "[Startup steps truncated]",
+            healthTitle = "🩺 JVM Health",
+            healthAnomalyTitle = "⚠️ JVM Health Alert",
+            heapLabel = "Heap",
+            nonHeapLabel = "Non-Heap",
+            gcLabel = "GC",
+            threadsLabel = "Threads (live / peak)",
+            cpuLabel = "Process CPU",
+            gcTimeAnomaly = "GC time exceeded the threshold",
+            oldGenAnomaly = "Old generation stayed above the threshold after GC",
+            latencySloBreachTitle = "🐢 Latency Objective Breached",
+            latencySloRecoveredTitle = "✅ Latency Objective Recovered",
+            operationLabel = "Operation",
+            objectiveLabel = "Objective",
+            observedLabel = "Observed",
+            samplesLabel = "Samples"
         ),
         DiscordLocale.KOREAN to DiscordMessages(
             serverStartTitle = "🚀 서버 시작",
@@ -66,7 +114,31 @@ object DiscordMessageLocalizer {
             methodLabel = "Method",
             remoteAddressLabel = "Remote Address",
             queryStringLabel = "Query String",
-            stackTraceTruncated = "[스택트레이스가 잘렸습니다]"
+            stackTraceTruncated = "[스택트레이스가 잘렸습니다]",
+            occurrencesLabel = "발생 횟수",
+            firstSeenLabel = "최초 발생",
+            lastSeenLabel = "마지막 발생",
+            samplingLabel = "샘플링",
+            startupTimeLabel = "시작 시간",
+            beansCreatedLabel = "생성된 빈",
+            slowestBeansLabel = "가장 느린 빈",
+            autoConfigurationsLabel = "적용된 자동 구성",
+            startupTimingTruncated = "[시작 단계 기록이 잘렸습니다]",
+            healthTitle = "🩺 JVM 상태",
+            healthAnomalyTitle = "⚠️ JVM 상태 경고",
+            heapLabel = "힙",
+            nonHeapLabel = "비힙",
+            gcLabel = "GC",
+            threadsLabel = "스레드 (현재 / 최대)",
+            cpuLabel = "프로세스 CPU",
+            gcTimeAnomaly = "GC 시간이 임계값을 넘었습니다",
+            oldGenAnomaly = "GC 이후에도 Old 영역이 임계값을 넘었습니다",
+            latencySloBreachTitle = "🐢 지연 시간 목표 위반",
+            latencySloRecoveredTitle = "✅ 지연 시간 목표 회복",
+            operationLabel = "작업",
+            objectiveLabel = "목표",
+            observedLabel = "측정값",
+            samplesLabel = "샘플 수"
         )
     )
 
@@ -0,0 +1,271 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.logging.logError
+import com.github.snowykte0426.peanut.butter.logging.logWarn
+import com.github.snowykte0426.peanut.butter.notification.OverflowPolicy
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Bounded in-memory queue of webhook messages drained by one dedicated daemon thread.
+ *
+ * Callers only pay for an enqueue; the HTTP round trip happens on the worker, so a slow or
+ * unreachable Discord never stalls request threads. When the queue is full the configured
+ * [OverflowPolicy] decides whether the oldest message, the newest message, or the caller
+ * (for at most `offerTimeout` milliseconds) gives way.
+ *
+ * With batching enabled the worker holds the first queued message for up to the flush window
+ * and coalesces whatever arrives meanwhile into messages of up to 10 embeds, flushing early
+ * once a message is full.
+ *
+ * @param properties Queue capacity and overflow settings
+ * @param sink Delivers the embeds of one webhook message and reports how it ended
+ * @param name Name of the worker thread
+ * @param batching Embed coalescing settings
+ * @param onSettled Called for every notification that needs no further attempt: accepted or
+ *        rejected for good by Discord, or dropped by the overflow policy
+ */
+class DiscordNotificationDispatcher(
+    private val properties: DiscordProperties.DispatcherProperties,
+    private val sink: (List<Map<String, Any>>) -> WebhookDelivery,
+    name: String = "discord-notification-dispatcher",
+    private val batching: DiscordProperties.BatchingProperties = DiscordProperties.BatchingProperties(),
+    private val onSettled: (DiscordNotification) -> Unit = {}
+) : AutoCloseable {
+
+    private companion object {
+        private const val POLL_INTERVAL_MILLIS = 100L
+    }
+
+    private val queue = ArrayBlockingQueue<DiscordNotification>(properties.queueCapacity.coerceAtLeast(1))
+    private val submitted = AtomicLong()
+    private val delivered = AtomicLong()
+    private val failed = AtomicLong()
+    private val dropped = AtomicLong()
+    private val messagesSent = AtomicLong()
+    private val batcher: DiscordEmbedBatcher? = if (batching.enabled) {
+        DiscordEmbedBatcher(batching.maxEmbedsPerMessage, batching.maxCharactersPerMessage)
+    } else {
+        null
+    }
+
+    @Volatile
+    private var accepting = true
+
+    private val worker = Thread(::drain, name).apply {
+        isDaemon = true
+        start()
+    }
+
+    /**
+     * Enqueues a message for asynchronous delivery.
+     *
+     * @return true if the message was queued, false if it was dropped
+     */
+    fun submit(notification: DiscordNotification): Boolean {
+        if (!accepting) {
+            dropped.incrementAndGet()
+            return false
+        }
+
+        val accepted = when (properties.overflowPolicy) {
+            OverflowPolicy.DROP_NEWEST -> queue.offer(notification)
+            OverflowPolicy.BLOCK -> offerBlocking(notification)
+            OverflowPolicy.DROP_OLDEST -> offerDroppingOldest(notification)
+        }
+
+        if (accepted) {
+            submitted.incrementAndGet()
+        } else {
+            dropped.incrementAndGet()
+            settle(notification)
+        }
+        return accepted
+    }
+
+    fun queueDepth(): Int = queue.size
+
+    fun droppedCount(): Long = dropped.get()
+
+    fun deliveredCount(): Long = delivered.get()
+
+    fun stats(): DispatcherStats {
+        return DispatcherStats(
+            queueDepth = queue.size,
+            queueCapacity = properties.queueCapacity,
+            submitted = submitted.get(),
+            delivered = delivered.get(),
+            failed = failed.get(),
+            dropped = dropped.get(),
+            messagesSent = messagesSent.get()
+        )
+    }
+
+    /**
+     * Stops accepting messages and gives the worker up to [timeoutMillis] to deliver what is queued.
+     *
+     * @return Number of messages still queued (and therefore abandoned) when the deadline passed
+     */
+    fun shutdown(timeoutMillis: Long): Int {
+        accepting = false
+        worker.join(timeoutMillis.coerceAtLeast(1L))
+        if (worker.isAlive) {
+            worker.interrupt()
+        }
+
+        val abandoned = queue.size
+        if (abandoned > 0) {
+            dropped.addAndGet(abandoned.toLong())
+            queue.clear()
+            logWarn("Discord notification dispatcher stopped with {} undelivered messages", abandoned)
+        }
+        return abandoned
+    }
+
+    override fun close() {
+        shutdown(0L)
+    }
+
+    private fun offerBlocking(notification: DiscordNotification): Boolean {
+        return try {
+            queue.offer(notification, properties.offerTimeout, TimeUnit.MILLISECONDS)
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            false
+        }
+    }
+
+    private fun offerDroppingOldest(notification: DiscordNotification): Boolean {
+        while (!queue.offer(notification)) {
+            queue.poll()?.let { oldest ->
+                dropped.incrementAndGet()
+                settle(oldest)
+            }
+        }
+        return true
+    }
+
+    private fun drain() {
+        while (accepting || queue.isNotEmpty()) {
+            val notification = try {
+                queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)
+            } catch (e: InterruptedException) {
+                return
+            } ?: continue
+
+            val activeBatcher = batcher
+            if (activeBatcher == null) {
+                if (deliver(notification.embeds, 1).isSettled) {
+                    settle(notification)
+                }
+            } else {
+                deliverBatch(activeBatcher, collectBatch(activeBatcher, notification))
+            }
+        }
+    }
+
+    /**
+     * Gathers notifications arriving within the flush window after [first], stopping early once
+     * a full message's worth of embeds is pending. Waiting is skipped while shutting down.
+     */
+    private fun collectBatch(batcher: DiscordEmbedBatcher, first: DiscordNotification): List<DiscordNotification> {
+        val pending = mutableListOf(first)
+        var embedCount = first.embeds.size
+        var characterCount = first.characterCount()
+        val deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batching.flushWindow)
+
+        while (!batcher.isFull(embedCount, characterCount)) {
+            val remaining = deadline - System.nanoTime()
+            val next = try {
+                if (accepting && remaining > 0) queue.poll(remaining, TimeUnit.NANOSECONDS) else queue.poll()
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                null
+            } ?: break
+
+            pending.add(next)
+            embedCount += next.embeds.size
+            characterCount += next.characterCount()
+        }
+
+        return pending
+    }
+
+    /**
+     * Sends a batch and settles every notification none of whose messages failed, so a failed
+     * message only leaves its own notifications in the outbox for replay.
+     */
+    private fun deliverBatch(batcher: DiscordEmbedBatcher, notifications: List<DiscordNotification>) {
+        val messages = batcher.pack(notifications.flatMap { it.embeds })
+        // Packing preserves embed order, so the owner of each packed embed follows from the embed counts.
+        val owners = notifications.flatMapIndexed { index, notification -> List(notification.embeds.size) { index } }
+        val outcomes = Array(notifications.size) { WebhookDelivery.SENT }
+        var offset = 0
+        messages.forEach { embeds ->
+            val delivery = deliver(embeds, 0)
+            for (position in offset until offset + embeds.size) {
+                val owner = owners[position]
+                // Declaration order runs from best to worst, so a notification keeps its worst message.
+                if (delivery > outcomes[owner]) {
+                    outcomes[owner] = delivery
+                }
+            }
+            offset += embeds.size
+        }
+
+        notifications.forEachIndexed { index, notification ->
+            if (outcomes[index] == WebhookDelivery.SENT) {
+                delivered.incrementAndGet()
+            } else {
+                failed.incrementAndGet()
+            }
+            if (outcomes[index].isSettled) {
+                settle(notification)
+            }
+        }
+    }
+
+    private fun deliver(embeds: List<Map<String, Any>>, notificationCount: Int): WebhookDelivery {
+        return try {
+            messagesSent.incrementAndGet()
+            sink(embeds).also { delivery ->
+                if (delivery == WebhookDelivery.SENT) {
+                    delivered.addAndGet(notificationCount.toLong())
+                } else {
+                    failed.addAndGet(notificationCount.toLong())
+                }
+            }
+        } catch (e: Exception) {
+            failed.addAndGet(notificationCount.toLong())
+            logError("Failed to deliver queued Discord notification", e)
+            WebhookDelivery.FAILED
+        }
+    }
+
+    private fun settle(notification: DiscordNotification) {
+        try {
+            onSettled(notification)
+        } catch (e: Exception) {
+            logError("Failed to acknowledge settled Discord notification", e)
+        }
+    }
+}
+
+data class DiscordNotification(
+    val embeds: List<Map<String, Any>>,
+    val enqueuedAtNanos: Long = System.nanoTime(),
+    val outboxId: Long? = null
+) {
+    fun characterCount(): Int = embeds.sumOf { DiscordEmbedBatcher.embedSize(it) }
+}
+
+data class DispatcherStats(
+    val queueDepth: Int,
+    val queueCapacity: Int,
+    val submitted: Long,
+    val delivered: Long,
+    val failed: Long,
+    val dropped: Long,
+    val messagesSent: Long = 0
+)
@@ -0,0 +1,60 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.logging.logInfo
+import com.github.snowykte0426.peanut.butter.logging.logWarn
+import org.springframework.context.SmartLifecycle
+
+/**
+ * Drains queued Discord notifications during application shutdown within a bounded time.
+ *
+ * The lifecycle stops after the embedded web server (a lower phase stops later), so no new
+ * request exceptions arrive while draining. The shutdown notification requested by
+ * [DiscordApplicationEventListener] is held back until the queues are flushed and sent last.
+ *
+ * @param discordWebhookService Service whose queues are drained
+ * @param timeoutMillis Deadline for the whole drain, including the shutdown notification
+ */
+class DiscordNotificationLifecycle(
+    private val discordWebhookService: DiscordWebhookService,
+    private val timeoutMillis: Long
+) : SmartLifecycle {
+
+    companion object {
+        const val PHASE = SmartLifecycle.DEFAULT_PHASE - 4096
+    }
+
+    @Volatile
+    private var running = false
+
+    @Volatile
+    var lastReport: DrainReport? = null
+        private set
+
+    override fun start() {
+        discordWebhookService.deferShutdownNotification()
+        running = true
+    }
+
+    override fun stop() {
+        if (!running) return
+        running = false
+
+        val report = discordWebhookService.drain(timeoutMillis)
+        lastReport = report
+        if (report.abandoned > 0) {
+            logWarn(
+                "Discord notification drain finished in {} ms: {} flushed, {} failed, {} abandoned",
+                report.elapsedMillis, report.flushed, report.failed, report.abandoned
+            )
+        } else {
+            logInfo(
+                "Discord notification drain finished in {} ms: {} flushed, {} failed, {} abandoned",
+                report.elapsedMillis, report.flushed, report.failed, report.abandoned
+            )
+        }
+    }
+
+    override fun isRunning(): Boolean = running
+
+    override fun getPhase(): Int = PHASE
+}
@@ -0,0 +1,33 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.notification.NotificationEvent
+import com.github.snowykte0426.peanut.butter.notification.NotificationProperties
+import com.github.snowykte0426.peanut.butter.notification.NotificationPublisher
+import com.github.snowykte0426.peanut.butter.notification.NotificationSink
+
+/**
+ * Pipeline sink handing events to [DiscordWebhookService], which renders them with the
+ * configured locale and embed template and delivers them through its routes.
+ *
+ * Events are sent synchronously on the pipeline worker, bypassing the routes' own queues, so
+ * [backpressure] is the only queue a pipeline event passes through. Route selection, rate
+ * limiting and the outbox still apply.
+ */
+class DiscordNotificationSink(
+    private val discordWebhookService: DiscordWebhookService,
+    override val backpressure: NotificationProperties.BackpressureProperties =
+        NotificationProperties.BackpressureProperties()
+) : NotificationSink {
+
+    override val name: String = "discord"
+
+    override fun deliver(event: NotificationEvent): Boolean = discordWebhookService.deliverNotification(event)
+
+    /**
+     * Makes the service publish the notifications it raises itself to [publisher], the pipeline
+     * this sink belongs to, so that they reach every other sink as well.
+     */
+    fun publishThrough(publisher: NotificationPublisher) {
+        discordWebhookService.publishThrough(publisher)
+    }
+}
@@ -0,0 +1,301 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.logging.logError
+import com.github.snowykte0426.peanut.butter.logging.logWarn
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.channels.FileLock
+import java.nio.channels.OverlappingFileLockException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.io.path.listDirectoryEntries
+import kotlin.io.path.name
+
+/**
+ * Append-only, memory-mapped journal of webhook payloads awaiting delivery.
+ *
+ * A payload is appended before it is sent and acknowledged once it needs no redelivery
+ * (Discord accepted or rejected it for good, or the queue dropped it), so a crash or an
+ * interrupted shutdown leaves the unacknowledged payloads on disk. Appending is a
+ * copy into a mapped segment and acknowledging flips one status byte, both without a system
+ * call, so the request path never waits on the disk. Records reach the file through the page
+ * cache, which survives a process crash but not a power loss.
+ *
+ * Segments are fixed-size files named `segment-<sequence>.log`. When the active segment is full
+ * a new one is started; a sealed segment whose records are all acknowledged is deleted. On
+ * [open] the pending records of existing segments are compacted into a fresh segment and
+ * returned for redelivery. Delivery is therefore at-least-once, bounded by [maxReplays]: a
+ * record carries the number of times it was replayed and is discarded once that reaches the
+ * limit, so a payload that can never be delivered does not travel from run to run forever.
+ *
+ * The directory belongs to one process at a time: [open] takes an exclusive lock on
+ * `outbox.lock` and leaves the outbox disabled, with every [append] returning null, when another
+ * process holds it or the directory cannot be used.
+ *
+ * Record layout: `int length | byte status | byte replays | long id | payload`, with a zero
+ * length marking the end of a segment.
+ *
+ * @param directory Directory holding the segment files
+ * @param segmentSize Size of one segment file in bytes
+ * @param maxReplays Number of runs a pending record is replayed in before it is discarded
+ */
+class DiscordOutbox(
+    private val directory: Path,
+    private val segmentSize: Int = 4 * 1024 * 1024,
+    private val maxReplays: Int = 5
+) : AutoCloseable {
+
+    private companion object {
+        private const val HEADER_SIZE = Int.SIZE_BYTES + 1 + 1 + Long.SIZE_BYTES
+        private const val STATUS_PENDING: Byte = 1
+        private const val STATUS_ACKNOWLEDGED: Byte = 2
+        private const val SEGMENT_PREFIX = "segment-"
+        private const val SEGMENT_SUFFIX = ".log"
+        private const val SEGMENT_GLOB = "$SEGMENT_PREFIX*$SEGMENT_SUFFIX"
+        private const val LOCK_FILE = "outbox.lock"
+    }
+
+    private class Segment(
+        val sequence: Long,
+        val path: Path,
+        val buffer: MappedByteBuffer
+    ) {
+        var pending = 0
+        var sealed = false
+    }
+
+    private class Location(val segment: Segment, val offset: Int)
+
+    private class PendingRecord(val payload: ByteArray, val replays: Int)
+
+    private val locations = ConcurrentHashMap<Long, Location>()
+    private var active: Segment? = null
+    private var nextId = 1L
+    private var lockChannel: FileChannel? = null
+    private var lock: FileLock? = null
+
+    @Volatile
+    private var closed = false
+
+    /**
+     * Opens the outbox, compacting any segments left by a previous run.
+     *
+     * @return Payloads that were never acknowledged, in append order, already re-appended
+     *         under new ids; empty when the outbox could not be opened
+     */
+    @Synchronized
+    fun open(): List<OutboxEntry> {
+        if (active != null || closed) return emptyList()
+
+        return try {
+            if (!lockDirectory()) {
+                logWarn("Discord outbox {} is in use by another process; running without persistence", directory)
+                disable()
+                return emptyList()
+            }
+            compact()
+        } catch (e: IOException) {
+            logError("Failed to open Discord outbox {}; running without persistence", directory, e)
+            disable()
+            emptyList()
+        }
+    }
+
+    /**
+     * Whether payloads are being persisted, which is only the case after a successful [open].
+     */
+    @Synchronized
+    fun isEnabled(): Boolean = active != null && !closed
+
+    private fun lockDirectory(): Boolean {
+        Files.createDirectories(directory)
+        val channel = FileChannel.open(
+            directory.resolve(LOCK_FILE),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE
+        )
+        val acquired = try {
+            channel.tryLock()
+        } catch (e: OverlappingFileLockException) {
+            null
+        }
+        if (acquired == null) {
+            channel.close()
+            return false
+        }
+        lockChannel = channel
+        lock = acquired
+        return true
+    }
+
+    private fun compact(): List<OutboxEntry> {
+        val previous = directory.listDirectoryEntries(SEGMENT_GLOB)
+            .mapNotNull { path -> sequenceOf(path)?.let { it to path } }
+            .sortedBy { it.first }
+
+        val (records, exhausted) = previous
+            .flatMap { (_, path) -> readPending(path) }
+            .partition { it.replays < maxReplays }
+        active = createSegment((previous.lastOrNull()?.first ?: 0L) + 1)
+
+        if (exhausted.isNotEmpty()) {
+            logWarn("Discarded {} Discord outbox messages after {} replays", exhausted.size, maxReplays)
+        }
+        val replayed = records.mapNotNull { record ->
+            appendRecord(record.payload, record.replays + 1)?.let { OutboxEntry(it, record.payload) }
+        }
+        previous.forEach { (_, path) -> delete(path) }
+        return replayed
+    }
+
+    private fun disable() {
+        closed = true
+        active = null
+        locations.clear()
+        releaseLock()
+    }
+
+    private fun releaseLock() {
+        try {
+            lock?.release()
+            lockChannel?.close()
+        } catch (e: IOException) {
+            logWarn("Failed to release Discord outbox lock {}", directory, e)
+        }
+        lock = null
+        lockChannel = null
+    }
+
+    /**
+     * Persists [payload] as pending.
+     *
+     * @return Id to acknowledge once delivered, or null if the outbox is closed or the payload
+     *         is larger than a segment
+     */
+    @Synchronized
+    fun append(payload: ByteArray): Long? = appendRecord(payload, 0)
+
+    private fun appendRecord(payload: ByteArray, replays: Int): Long? {
+        if (closed) return null
+        val recordSize = HEADER_SIZE + payload.size
+        if (recordSize + Int.SIZE_BYTES > segmentSize) {
+            logWarn("Discord outbox payload of {} bytes exceeds the segment size and is not persisted", payload.size)
+            return null
+        }
+
+        var segment = active ?: return null
+        if (segment.buffer.remaining() < recordSize + Int.SIZE_BYTES) {
+            segment = rotate(segment)
+        }
+
+        val id = nextId++
+        val offset = segment.buffer.position()
+        segment.buffer
+            .putInt(payload.size)
+            .put(STATUS_PENDING)
+            .put(replays.coerceAtMost(Byte.MAX_VALUE.toInt()).toByte())
+            .putLong(id)
+            .put(payload)
+        segment.pending++
+        locations[id] = Location(segment, offset)
+        return id
+    }
+
+    /**
+     * Marks the record [id] as delivered. Unknown ids are ignored.
+     */
+    @Synchronized
+    fun acknowledge(id: Long) {
+        val location = locations.remove(id) ?: return
+        val segment = location.segment
+        if (closed) return
+
+        segment.buffer.put(location.offset + Int.SIZE_BYTES, STATUS_ACKNOWLEDGED)
+        segment.pending--
+        if (segment.sealed && segment.pending == 0) {
+            delete(segment.path)
+        }
+    }
+
+    fun pendingCount(): Int = locations.size
+
+    fun segmentCount(): Int = directory.listDirectoryEntries(SEGMENT_GLOB).size
+
+    /**
+     * Flushes mapped segments to disk. Pending records stay on disk for the next [open].
+     */
+    @Synchronized
+    override fun close() {
+        if (closed) return
+        closed = true
+        locations.values.map { it.segment }.toSet().forEach { it.buffer.force() }
+        active?.buffer?.force()
+        releaseLock()
+    }
+
+    private fun rotate(current: Segment): Segment {
+        current.sealed = true
+        current.buffer.force()
+        if (current.pending == 0) {
+            delete(current.path)
+        }
+        return createSegment(current.sequence + 1).also { active = it }
+    }
+
+    private fun createSegment(sequence: Long): Segment {
+        val path = directory.resolve("$SEGMENT_PREFIX%019d$SEGMENT_SUFFIX".format(sequence))
+        val buffer = FileChannel.open(
+            path,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        ).use { channel ->
+            channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize.toLong())
+        }
+        return Segment(sequence, path, buffer)
+    }
+
+    private fun readPending(path: Path): List<PendingRecord> {
+        val bytes = Files.readAllBytes(path)
+        val buffer = ByteBuffer.wrap(bytes)
+        val records = mutableListOf<PendingRecord>()
+
+        while (buffer.remaining() >= HEADER_SIZE) {
+            val length = buffer.getInt()
+            if (length <= 0 || length > buffer.remaining() - (HEADER_SIZE - Int.SIZE_BYTES)) break
+            val status = buffer.get()
+            val replays = buffer.get().toInt()
+            buffer.getLong()
+            val payload = ByteArray(length).also { buffer.get(it) }
+            if (status == STATUS_PENDING) {
+                records.add(PendingRecord(payload, replays))
+            }
+        }
+        return records
+    }
+
+    private fun delete(path: Path) {
+        try {
+            Files.deleteIfExists(path)
+        } catch (e: IOException) {
+            logWarn("Failed to delete Discord outbox segment {}", path, e)
+        }
+    }
+
+    private fun sequenceOf(path: Path): Long? =
+        path.name.removePrefix(SEGMENT_PREFIX).removeSuffix(SEGMENT_SUFFIX).toLongOrNull()
+}
+
+data class OutboxEntry(
+    val id: Long,
+    val payload: ByteArray
+) {
+    override fun equals(other: Any?): Boolean =
+        other is OutboxEntry && id == other.id && payload.contentEquals(other.payload)
+
+    override fun hashCode(): Int = 31 * id.hashCode() + payload.contentHashCode()
+}
@@ -0,0 +1,106 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.core.SerializableString
+import com.fasterxml.jackson.core.io.SerializedString
+import java.io.ByteArrayOutputStream
+
+/**
+ * Serializes webhook payloads with a streaming JSON generator into a reusable per-thread buffer.
+ *
+ * Maps, lists, strings, numbers and booleans are written directly, without building a Jackson
+ * tree or going through data binding. Shared fragments of registered [DiscordEmbedTemplate]s are
+ * recognised by identity and copied as pre-serialized bytes, so only the per-message parts of
+ * an embed (title, description, color, timestamp) are encoded for each message.
+ */
+class DiscordPayloadWriter(
+    private val jsonFactory: JsonFactory = JsonFactory()
+) {
+
+    private companion object {
+        private const val INITIAL_BUFFER_SIZE = 2048
+        private const val MAX_RETAINED_BUFFER_SIZE = 64 * 1024
+        private val FIELD_NAMES = listOf(
+            "embeds", "route", "title", "description", "color", "fields", "name", "value", "inline",
+            "timestamp", "footer", "text"
+        ).associateWith { SerializedString(it) }
+    }
+
+    private val buffers = ThreadLocal.withInitial { ByteArrayOutputStream(INITIAL_BUFFER_SIZE) }
+
+    @Volatile
+    private var templates: List<DiscordEmbedTemplate> = emptyList()
+
+    /**
+     * Makes the shared fragments of [template] eligible for pre-serialized output.
+     */
+    @Synchronized
+    fun register(template: DiscordEmbedTemplate) {
+        if (templates.none { it === template }) {
+            templates = templates + template
+        }
+    }
+
+    /**
+     * Serializes [payload] to UTF-8 JSON.
+     */
+    fun write(payload: Map<String, Any>): ByteArray {
+        var buffer = buffers.get()
+        if (buffer.size() > MAX_RETAINED_BUFFER_SIZE) {
+            buffer = ByteArrayOutputStream(INITIAL_BUFFER_SIZE).also(buffers::set)
+        }
+        buffer.reset()
+
+        jsonFactory.createGenerator(buffer).use { generator ->
+            writeValue(generator, payload)
+        }
+        return buffer.toByteArray()
+    }
+
+    private fun writeValue(generator: JsonGenerator, value: Any?) {
+        if (value == null) {
+            generator.writeNull()
+            return
+        }
+
+        val fragment = fragmentFor(value)
+        if (fragment != null) {
+            generator.writeRawValue(fragment)
+            return
+        }
+
+        when (value) {
+            is String -> generator.writeString(value)
+            is Int -> generator.writeNumber(value)
+            is Long -> generator.writeNumber(value)
+            is Double -> generator.writeNumber(value)
+            is Float -> generator.writeNumber(value)
+            is Boolean -> generator.writeBoolean(value)
+            is Map<*, *> -> {
+                generator.writeStartObject()
+                value.forEach { (key, entry) ->
+                    val name = key.toString()
+                    val cached = FIELD_NAMES[name]
+                    if (cached != null) generator.writeFieldName(cached) else generator.writeFieldName(name)
+                    writeValue(generator, entry)
+                }
+                generator.writeEndObject()
+            }
+            is Collection<*> -> {
+                generator.writeStartArray()
+                value.forEach { writeValue(generator, it) }
+                generator.writeEndArray()
+            }
+            else -> generator.writeString(value.toString())
+        }
+    }
+
+    private fun fragmentFor(value: Any): SerializableString? {
+        if (value !is Map<*, *> && value !is List<*>) return null
+        for (template in templates) {
+            template.fragmentFor(value)?.let { return it }
+        }
+        return null
+    }
+}
@@ -1,17 +1,34 @@
 package com.github.snowykte0426.peanut.butter.notification.discord
 
+import com.github.snowykte0426.peanut.butter.notification.NotificationSeverity
+import com.github.snowykte0426.peanut.butter.notification.OverflowPolicy
 import org.springframework.boot.context.properties.ConfigurationProperties
 
 @ConfigurationProperties(prefix = "peanut-butter.notification.discord")
 data class DiscordProperties(
     val webhook: WebhookProperties = WebhookProperties(),
     val embed: EmbedProperties = EmbedProperties(),
-    val locale: String = "en"
+    val locale: String = "en",
+    val dispatcher: DispatcherProperties = DispatcherProperties(),
+    val batching: BatchingProperties = BatchingProperties(),
+    val rateLimit: RateLimitProperties = RateLimitProperties(),
+    val aggregation: AggregationProperties = AggregationProperties(),
+    val stackTrace: StackTraceProperties = StackTraceProperties(),
+    val outbox: OutboxProperties = OutboxProperties(),
+    val routes: Map<String, RouteProperties> = emptyMap(),
+    val sampling: SamplingProperties = SamplingProperties(),
+    val shutdown: ShutdownProperties = ShutdownProperties(),
+    val startupTiming: StartupTimingProperties = StartupTimingProperties(),
+    val health: HealthProperties = HealthProperties(),
+    val latencySlo: LatencySloProperties = LatencySloProperties()
 ) {
     data class WebhookProperties(
         val url: String = "",
         val enabled: Boolean = false,
-        val timeout: Long = 5000L
+        val timeout: Long = 5000L,
+        val connectTimeout: Long = 5000L,
+        val transport: WebhookTransportType = WebhookTransportType.REST_TEMPLATE,
+        val sharedClient: Boolean = true
     )
 
     data class EmbedProperties(
@@ -21,4 +38,111 @@ data class DiscordProperties(
         val includeHostname: Boolean = true,
         val includeVersion: Boolean = true
     )
-}
\ No newline at end of file
+
+    data class DispatcherProperties(
+        val enabled: Boolean = false,
+        val queueCapacity: Int = 1000,
+        val overflowPolicy: OverflowPolicy = OverflowPolicy.DROP_OLDEST,
+        val offerTimeout: Long = 100L
+    )
+
+    data class BatchingProperties(
+        val enabled: Boolean = false,
+        val flushWindow: Long = 1000L,
+        val maxEmbedsPerMessage: Int = 10,
+        val maxCharactersPerMessage: Int = 6000
+    )
+
+    data class RateLimitProperties(
+        val enabled: Boolean = true,
+        val maxRetries: Int = 3,
+        val maxRetryDelay: Long = 60000L
+    )
+
+    data class AggregationProperties(
+        val enabled: Boolean = false,
+        val window: Long = 60000L,
+        val frames: Int = 5,
+        val maxFingerprints: Int = 500
+    )
+
+    data class StackTraceProperties(
+        val maxCharacters: Int = 1500,
+        val foldedPackages: List<String> = listOf(
+            "org.springframework.",
+            "org.apache.catalina.",
+            "org.apache.coyote.",
+            "org.apache.tomcat.",
+            "jakarta.servlet.",
+            "java.lang.reflect.",
+            "jdk.internal.reflect."
+        ),
+        val maxCauses: Int = 3,
+        val cacheSize: Int = 256
+    )
+
+    data class OutboxProperties(
+        val enabled: Boolean = false,
+        val directory: String = "",
+        val segmentSize: Int = 4 * 1024 * 1024,
+        val maxReplays: Int = 5
+    )
+
+    data class RouteProperties(
+        val url: String = "",
+        val exceptionTypes: List<String> = emptyList(),
+        val severities: List<NotificationSeverity> = emptyList(),
+        val contextPrefixes: List<String> = emptyList(),
+        val dispatcher: DispatcherProperties = DispatcherProperties(),
+        val batching: BatchingProperties = BatchingProperties(),
+        val priority: Int = 0
+    )
+
+    data class SamplingProperties(
+        val enabled: Boolean = false,
+        val threshold: Double = 100.0,
+        val window: Long = 1000L,
+        val buckets: Int = 10,
+        val minRatio: Double = 0.01
+    )
+
+    data class ShutdownProperties(
+        val drainEnabled: Boolean = true,
+        val timeout: Long = 10000L
+    )
+
+    data class StartupTimingProperties(
+        val enabled: Boolean = false,
+        val bufferCapacity: Int = 10000,
+        val slowestBeans: Int = 5
+    )
+
+    data class HealthProperties(
+        val enabled: Boolean = false,
+        val interval: Long = 3600000L,
+        val sampleInterval: Long = 10000L,
+        val gcTimeThreshold: Double = 10.0,
+        val oldGenThreshold: Double = 85.0
+    )
+
+    data class LatencySloProperties(
+        val enabled: Boolean = false,
+        val evaluationInterval: Long = 10000L,
+        val breachEvaluations: Int = 2,
+        val recoveryEvaluations: Int = 3,
+        val recoveryRatio: Double = 0.8,
+        val minSamples: Long = 20L,
+        val operations: Map<String, OperationSloProperties> = emptyMap()
+    )
+
+    data class OperationSloProperties(
+        val percentile: Double = 99.0,
+        val threshold: Long = 200L,
+        val window: Long = 60000L
+    )
+}
+
+enum class WebhookTransportType {
+    REST_TEMPLATE,
+    HTTP_CLIENT
+}
@@ -0,0 +1,149 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import org.springframework.http.HttpHeaders
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Client-side token bucket per webhook URL, learned from Discord's rate limit headers.
+ *
+ * Every response refreshes the bucket from `X-RateLimit-Remaining` and
+ * `X-RateLimit-Reset-After`; between responses each send spends one token locally, so a burst
+ * is paced before Discord has to answer with 429. When a bucket is empty, [acquire] waits until
+ * it resets. A 429 empties the bucket for the advertised `retry_after`, and a global 429 pauses
+ * every bucket.
+ *
+ * @param maxWaitMillis Upper bound on a single wait, protecting callers from absurd reset values
+ */
+class DiscordRateLimiter(
+    private val maxWaitMillis: Long = 60000L
+) {
+
+    companion object {
+        const val REMAINING_HEADER = "X-RateLimit-Remaining"
+        const val RESET_AFTER_HEADER = "X-RateLimit-Reset-After"
+        const val GLOBAL_HEADER = "X-RateLimit-Global"
+    }
+
+    private class Bucket {
+        var remaining: Int = -1
+        var resetAtNanos: Long = 0L
+    }
+
+    private val buckets = ConcurrentHashMap<String, Bucket>()
+    private val throttledNanos = AtomicLong()
+    private val throttleCount = AtomicLong()
+    private val rateLimitedCount = AtomicLong()
+
+    @Volatile
+    private var globalResetAtNanos: Long = 0L
+
+    /**
+     * Takes a token for [url], waiting for the bucket (or a global limit) to reset when empty.
+     *
+     * The wait happens after the bucket is released, so responses refreshing it and other
+     * senders reserving their own slot are never held up by a sleeping caller.
+     *
+     * @return Time spent waiting, in milliseconds
+     */
+    fun acquire(url: String): Long {
+        val waitMillis = reserve(url)
+        if (waitMillis == 0L) return 0L
+
+        return try {
+            TimeUnit.MILLISECONDS.sleep(waitMillis)
+            waitMillis
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            0L
+        }
+    }
+
+    /**
+     * Takes a token for [url] without waiting.
+     *
+     * Once an empty bucket has been handed out its reset stays the earliest send time for every
+     * caller until it passes, so callers reserving during the same reset all wait for it.
+     *
+     * @return Time in milliseconds the caller has to wait before sending, 0 when it may send now
+     */
+    fun reserve(url: String): Long {
+        val bucket = buckets.computeIfAbsent(url) { Bucket() }
+        synchronized(bucket) {
+            val now = System.nanoTime()
+            var deadline = globalResetAtNanos
+
+            if (bucket.remaining > 0) {
+                bucket.remaining--
+            } else {
+                deadline = maxOf(deadline, bucket.resetAtNanos)
+                bucket.remaining = -1
+            }
+
+            val waitNanos = minOf(deadline - now, TimeUnit.MILLISECONDS.toNanos(maxWaitMillis))
+            if (waitNanos <= 0) return 0L
+
+            throttleCount.incrementAndGet()
+            throttledNanos.addAndGet(waitNanos)
+            return TimeUnit.NANOSECONDS.toMillis(waitNanos).coerceAtLeast(1L)
+        }
+    }
+
+    /**
+     * Refreshes the bucket of [url] from the rate limit headers of a successful response.
+     */
+    fun update(url: String, headers: HttpHeaders) {
+        val remaining = headers.getFirst(REMAINING_HEADER)?.toIntOrNull() ?: return
+        val resetAfterMillis = parseSecondsToMillis(headers.getFirst(RESET_AFTER_HEADER))
+
+        val bucket = buckets.computeIfAbsent(url) { Bucket() }
+        synchronized(bucket) {
+            bucket.remaining = remaining
+            bucket.resetAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(resetAfterMillis ?: 0L)
+        }
+    }
+
+    /**
+     * Records a 429 response: the bucket (or every bucket, for a global limit) stays empty for
+     * [retryAfterMillis].
+     */
+    fun onRateLimited(url: String, retryAfterMillis: Long, global: Boolean = false) {
+        rateLimitedCount.incrementAndGet()
+        val resetAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis.coerceAtLeast(0L))
+
+        if (global) {
+            globalResetAtNanos = maxOf(globalResetAtNanos, resetAtNanos)
+            return
+        }
+
+        val bucket = buckets.computeIfAbsent(url) { Bucket() }
+        synchronized(bucket) {
+            bucket.remaining = 0
+            bucket.resetAtNanos = maxOf(bucket.resetAtNanos, resetAtNanos)
+        }
+    }
+
+    fun stats(): RateLimitStats {
+        return RateLimitStats(
+            throttledMillis = TimeUnit.NANOSECONDS.toMillis(throttledNanos.get()),
+            throttleCount = throttleCount.get(),
+            rateLimitedCount = rateLimitedCount.get()
+        )
+    }
+
+    /**
+     * Parses a seconds value such as `1.234` into milliseconds.
+     */
+    fun parseSecondsToMillis(value: String?): Long? {
+        val seconds = value?.trim()?.toDoubleOrNull() ?: return null
+        return (seconds * 1000).toLong().coerceAtLeast(0L)
+    }
+}
+
+data class RateLimitStats(
+    val throttledMillis: Long,
+    val throttleCount: Long,
+    val rateLimitedCount: Long,
+    val retriedCount: Long = 0
+)
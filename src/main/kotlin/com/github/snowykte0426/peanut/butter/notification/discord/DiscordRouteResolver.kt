@@ -0,0 +1,84 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.notification.NotificationSeverity
+
+/**
+ * Picks the webhook route of a notification.
+ *
+ * Configured routes are tried in declaration order and the first whose criteria all match wins;
+ * an empty criterion matches anything, and a route listing exception types only matches
+ * exception notifications. Nothing matching falls back to the default route.
+ *
+ * The exception type criterion is evaluated once per exception class: a [ClassValue] keeps, for
+ * each class, the routes whose types appear in its class hierarchy, so resolving a route costs a
+ * lookup plus severity and context checks on that short list.
+ *
+ * @param routes Configured routes with their matching criteria, in declaration order
+ * @param defaultRoute Route used when no configured route matches
+ */
+class DiscordRouteResolver(
+    routes: List<Pair<DiscordWebhookRoute, DiscordProperties.RouteProperties>>,
+    val defaultRoute: DiscordWebhookRoute
+) {
+
+    private class CompiledRoute(
+        val route: DiscordWebhookRoute,
+        val exceptionTypes: Set<String>,
+        val severities: Set<NotificationSeverity>,
+        val contextPrefixes: List<String>
+    ) {
+        fun matches(severity: NotificationSeverity, context: String): Boolean =
+            (severities.isEmpty() || severity in severities) &&
+                (contextPrefixes.isEmpty() || contextPrefixes.any { context.startsWith(it) })
+    }
+
+    private val compiled = routes.map { (route, properties) ->
+        CompiledRoute(
+            route = route,
+            exceptionTypes = properties.exceptionTypes.toSet(),
+            severities = properties.severities.toSet(),
+            contextPrefixes = properties.contextPrefixes
+        )
+    }
+
+    private val untypedRoutes = compiled.filter { it.exceptionTypes.isEmpty() }
+
+    private val routesByType = object : ClassValue<List<CompiledRoute>>() {
+        override fun computeValue(type: Class<*>): List<CompiledRoute> {
+            val hierarchy = typeNames(type)
+            return compiled.filter { route ->
+                route.exceptionTypes.isEmpty() || route.exceptionTypes.any { it in hierarchy }
+            }
+        }
+    }
+
+    val routes: List<DiscordWebhookRoute> = listOf(defaultRoute) + compiled.map { it.route }
+
+    /**
+     * All routes, highest priority first; routes of equal priority keep declaration order.
+     */
+    val routesByPriority: List<DiscordWebhookRoute> = routes.sortedByDescending { it.priority }
+
+    fun resolve(
+        severity: NotificationSeverity,
+        exception: Throwable? = null,
+        context: String = ""
+    ): DiscordWebhookRoute {
+        val candidates = if (exception != null) routesByType.get(exception.javaClass) else untypedRoutes
+        return candidates.firstOrNull { it.matches(severity, context) }?.route ?: defaultRoute
+    }
+
+    fun route(name: String): DiscordWebhookRoute? = routes.firstOrNull { it.name == name }
+
+    private fun typeNames(type: Class<*>): Set<String> {
+        val names = mutableSetOf<String>()
+        val pending = ArrayDeque<Class<*>>().apply { add(type) }
+        while (pending.isNotEmpty()) {
+            val current = pending.removeFirst()
+            if (!names.add(current.name)) continue
+            current.superclass?.let(pending::add)
+            pending.addAll(current.interfaces)
+        }
+        return names
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import org.springframework.boot.ConfigurableBootstrapContext
+import org.springframework.boot.SpringApplication
+import org.springframework.boot.SpringApplicationRunListener
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup
+import org.springframework.core.env.ConfigurableEnvironment
+import org.springframework.core.metrics.ApplicationStartup
+
+/**
+ * Switches the application to a [BufferingApplicationStartup] when startup timing is enabled, so
+ * the startup notification can report where startup time went.
+ *
+ * This has to happen before the application context is created, which is why it is a run
+ * listener rather than a bean. An application startup configured by the application itself
+ * is left alone, and the buffer is bounded by `startup-timing.buffer-capacity` steps.
+ */
+class DiscordStartupRunListener(
+    private val application: SpringApplication,
+    @Suppress("UNUSED_PARAMETER") args: Array<String>
+) : SpringApplicationRunListener {
+
+    companion object {
+        private const val PREFIX = "peanut-butter.notification.discord"
+    }
+
+    override fun environmentPrepared(
+        bootstrapContext: ConfigurableBootstrapContext,
+        environment: ConfigurableEnvironment
+    ) {
+        val enabled = environment.getProperty("$PREFIX.webhook.enabled", Boolean::class.java, false) &&
+            environment.getProperty("$PREFIX.startup-timing.enabled", Boolean::class.java, false)
+        if (!enabled || application.applicationStartup !== ApplicationStartup.DEFAULT) return
+
+        val capacity = environment.getProperty(
+            "$PREFIX.startup-timing.buffer-capacity",
+            Int::class.java,
+            DiscordProperties.StartupTimingProperties().bufferCapacity
+        )
+        application.setApplicationStartup(BufferingApplicationStartup(capacity))
+    }
+}
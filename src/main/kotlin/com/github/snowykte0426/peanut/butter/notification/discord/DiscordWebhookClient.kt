@@ -0,0 +1,169 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.logging.logWarn
+import org.springframework.web.client.RestTemplate
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Posts webhook payloads while honouring Discord's rate limits.
+ *
+ * Sends are paced through a [DiscordRateLimiter]. A 429 response is retried after the
+ * `retry_after` Discord advertises, up to `maxRetries` times. Other error statuses end the
+ * send as [WebhookDelivery.REJECTED] (4xx) or [WebhookDelivery.FAILED]; transport errors are
+ * left to the caller.
+ *
+ * @param transport Transport used for the requests
+ * @param properties Rate limit settings
+ * @param rateLimiter Per-URL buckets; clients posting to the same webhooks must share one so
+ *        that a URL keeps a single bucket and a global 429 pauses all of them
+ */
+class DiscordWebhookClient(
+    private val transport: DiscordWebhookTransport,
+    private val properties: DiscordProperties.RateLimitProperties = DiscordProperties.RateLimitProperties(),
+    private val rateLimiter: DiscordRateLimiter = DiscordRateLimiter(properties.maxRetryDelay)
+) {
+
+    constructor(
+        restTemplate: RestTemplate,
+        properties: DiscordProperties.RateLimitProperties = DiscordProperties.RateLimitProperties()
+    ) : this(RestTemplateWebhookTransport(restTemplate), properties)
+
+    private companion object {
+        private const val DEFAULT_RETRY_AFTER_MILLIS = 1000L
+        private val RETRY_AFTER_PATTERN = Regex("\"retry_after\"\\s*:\\s*([0-9.]+)")
+        private val GLOBAL_PATTERN = Regex("\"global\"\\s*:\\s*true")
+    }
+
+    private val retried = AtomicLong()
+
+    /**
+     * Posts [payload] to [url], blocking while rate limited.
+     *
+     * @return true once Discord accepted the message, false if it was rejected or stayed rate
+     *         limited after all retries
+     */
+    fun send(url: String, payload: Map<String, Any>): Boolean =
+        deliver(url, payload) == WebhookDelivery.SENT
+
+    /**
+     * Posts [payload] to [url] like [send], telling a payload Discord refused apart from a send
+     * that may succeed later.
+     */
+    fun deliver(url: String, payload: Map<String, Any>): WebhookDelivery {
+        var attempt = 0
+        while (true) {
+            if (properties.enabled) {
+                rateLimiter.acquire(url)
+            }
+
+            val response = transport.send(url, payload)
+            when (val outcome = handle(url, response, attempt)) {
+                null -> attempt++
+                else -> return outcome
+            }
+        }
+    }
+
+    /**
+     * Posts [payload] to [url] without blocking the caller; rate limit waits are scheduled
+     * rather than slept.
+     *
+     * @return Future completing with the same result as [send]
+     */
+    fun sendAsync(url: String, payload: Map<String, Any>): CompletableFuture<Boolean> =
+        deliverAsync(url, payload).thenApply { it == WebhookDelivery.SENT }
+
+    /**
+     * Posts [payload] to [url] like [sendAsync], completing with the outcome [deliver] reports.
+     */
+    fun deliverAsync(url: String, payload: Map<String, Any>): CompletableFuture<WebhookDelivery> =
+        deliverAsync(url, payload, 0)
+
+    fun stats(): RateLimitStats = rateLimiter.stats().copy(retriedCount = retried.get())
+
+    private fun deliverAsync(url: String, payload: Map<String, Any>, attempt: Int): CompletableFuture<WebhookDelivery> {
+        val waitMillis = if (properties.enabled) rateLimiter.reserve(url) else 0L
+        val ready = if (waitMillis > 0) {
+            CompletableFuture.runAsync({}, CompletableFuture.delayedExecutor(waitMillis, TimeUnit.MILLISECONDS))
+        } else {
+            CompletableFuture.completedFuture(null)
+        }
+
+        return ready
+            .thenCompose { transport.sendAsync(url, payload) }
+            .thenCompose { response ->
+                val outcome = handle(url, response, attempt)
+                if (outcome != null) {
+                    CompletableFuture.completedFuture(outcome)
+                } else {
+                    deliverAsync(url, payload, attempt + 1)
+                }
+            }
+    }
+
+    /**
+     * Applies [response] to the rate limiter.
+     *
+     * @return The result of the send, or null when the message should be retried
+     */
+    private fun handle(url: String, response: WebhookResponse, attempt: Int): WebhookDelivery? {
+        if (response.isSuccessful) {
+            if (properties.enabled) {
+                rateLimiter.update(url, response.headers)
+            }
+            return WebhookDelivery.SENT
+        }
+
+        if (!response.isRateLimited) {
+            logWarn("Discord webhook rejected message with status {}: {}", response.statusCode, response.body)
+            return if (response.isRejected) WebhookDelivery.REJECTED else WebhookDelivery.FAILED
+        }
+
+        if (!properties.enabled || attempt >= properties.maxRetries) {
+            logWarn("Discord webhook rate limited, giving up after {} attempts", attempt + 1)
+            return WebhookDelivery.FAILED
+        }
+
+        rateLimiter.onRateLimited(url, retryAfterMillis(response), isGlobal(response))
+        retried.incrementAndGet()
+        return null
+    }
+
+    private fun retryAfterMillis(response: WebhookResponse): Long {
+        val fromBody = RETRY_AFTER_PATTERN.find(response.body)?.groupValues?.get(1)
+        val fromHeaders = response.headers.getFirst(DiscordRateLimiter.RESET_AFTER_HEADER)
+            ?: response.headers.getFirst("Retry-After")
+
+        val millis = rateLimiter.parseSecondsToMillis(fromBody)
+            ?: rateLimiter.parseSecondsToMillis(fromHeaders)
+            ?: DEFAULT_RETRY_AFTER_MILLIS
+        return millis.coerceAtMost(properties.maxRetryDelay)
+    }
+
+    private fun isGlobal(response: WebhookResponse): Boolean {
+        return response.headers.getFirst(DiscordRateLimiter.GLOBAL_HEADER)?.toBoolean() == true ||
+            GLOBAL_PATTERN.containsMatchIn(response.body)
+    }
+}
+
+/**
+ * How a webhook message ended once rate limit retries are spent.
+ */
+enum class WebhookDelivery {
+    /** Discord accepted the message. */
+    SENT,
+
+    /** Discord refused the payload with a 4xx other than 429; sending it again cannot succeed. */
+    REJECTED,
+
+    /** No answer, a server error or a rate limit outlasting the retries; worth sending again. */
+    FAILED;
+
+    /**
+     * Whether the message needs no further attempt, so its outbox record can be acknowledged.
+     */
+    val isSettled: Boolean
+        get() = this != FAILED
+}
@@ -0,0 +1,145 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.logging.logError
+import com.github.snowykte0426.peanut.butter.logging.logInfo
+import com.github.snowykte0426.peanut.butter.logging.logWarn
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+/**
+ * One webhook target with its own queue and batching policy.
+ *
+ * Routes share the transport (and with it the connection pool) and the rate limiter, which keeps
+ * one bucket per webhook URL, so a storm on one route never fills the queue of another and
+ * routes posting to the same URL are paced together, as are all routes during a global 429.
+ *
+ * @param name Route name as configured, [DEFAULT] for `webhook.url`
+ * @param url Webhook URL of the route
+ * @param webhookClient Client pacing sends against the shared rate limiter
+ * @param dispatcherProperties Queue settings of the route
+ * @param batching Embed coalescing settings of the route
+ * @param asyncDelivery Whether unqueued messages are sent without blocking the caller
+ * @param onSettled Called with the outbox id of every message that needs no redelivery: accepted
+ *        or rejected for good by Discord, or dropped by the route's overflow policy
+ * @param priority Drain order at shutdown, higher first
+ */
+class DiscordWebhookRoute(
+    val name: String,
+    val url: String,
+    private val webhookClient: DiscordWebhookClient,
+    dispatcherProperties: DiscordProperties.DispatcherProperties,
+    batching: DiscordProperties.BatchingProperties,
+    private val asyncDelivery: Boolean = false,
+    private val onSettled: (Long) -> Unit = {},
+    val priority: Int = 0
+) {
+
+    companion object {
+        const val DEFAULT = "default"
+    }
+
+    private val dispatcher: DiscordNotificationDispatcher? =
+        if (dispatcherProperties.enabled) {
+            DiscordNotificationDispatcher(
+                properties = dispatcherProperties,
+                sink = ::deliver,
+                name = if (name == DEFAULT) "discord-notification-dispatcher" else "discord-notification-dispatcher-$name",
+                batching = batching,
+                onSettled = { notification -> notification.outboxId?.let(onSettled) }
+            )
+        } else {
+            null
+        }
+
+    /**
+     * Queues [embeds] for this route, or sends them right away when the route has no queue.
+     */
+    fun dispatch(embeds: List<Map<String, Any>>, outboxId: Long? = null) {
+        val activeDispatcher = dispatcher
+        if (activeDispatcher != null) {
+            activeDispatcher.submit(DiscordNotification(embeds, outboxId = outboxId))
+        } else if (asyncDelivery) {
+            deliverAsync(embeds, outboxId)
+        } else {
+            send(embeds, outboxId)
+        }
+    }
+
+    /**
+     * Sends [embeds] on the calling thread, bypassing the queue and waiting out rate limits.
+     *
+     * @return true once Discord accepted the message
+     */
+    fun send(embeds: List<Map<String, Any>>, outboxId: Long? = null): Boolean {
+        val delivery = deliver(embeds)
+        if (delivery.isSettled && outboxId != null) {
+            onSettled(outboxId)
+        }
+        return delivery == WebhookDelivery.SENT
+    }
+
+    /**
+     * Sends [embeds] right away, bypassing the queue, and waits at most [timeoutMillis] for Discord.
+     *
+     * @return true if Discord accepted the message in time
+     */
+    fun sendNow(embeds: List<Map<String, Any>>, timeoutMillis: Long, outboxId: Long? = null): Boolean {
+        val delivery = try {
+            webhookClient.deliverAsync(url, mapOf("embeds" to embeds))
+                .get(timeoutMillis.coerceAtLeast(1L), TimeUnit.MILLISECONDS)
+        } catch (e: TimeoutException) {
+            logWarn("Discord webhook message was not accepted within {} ms", timeoutMillis)
+            WebhookDelivery.FAILED
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            WebhookDelivery.FAILED
+        } catch (e: Exception) {
+            logError("Failed to send Discord webhook message", e)
+            WebhookDelivery.FAILED
+        }
+        if (delivery.isSettled && outboxId != null) {
+            onSettled(outboxId)
+        }
+        return delivery == WebhookDelivery.SENT
+    }
+
+    fun dispatcherStats(): DispatcherStats? = dispatcher?.stats()
+
+    fun rateLimitStats(): RateLimitStats = webhookClient.stats()
+
+    /**
+     * Stops the route's queue, giving it up to [timeoutMillis] to drain.
+     *
+     * @return Number of queued messages abandoned
+     */
+    fun shutdown(timeoutMillis: Long): Int = dispatcher?.shutdown(timeoutMillis) ?: 0
+
+    private fun deliver(embeds: List<Map<String, Any>>): WebhookDelivery {
+        return try {
+            val delivery = webhookClient.deliver(url, mapOf("embeds" to embeds))
+            if (delivery == WebhookDelivery.SENT) {
+                logInfo("Discord webhook message sent successfully")
+            }
+            delivery
+        } catch (e: Exception) {
+            logError("Failed to send Discord webhook message", e)
+            WebhookDelivery.FAILED
+        }
+    }
+
+    private fun deliverAsync(embeds: List<Map<String, Any>>, outboxId: Long?) {
+        webhookClient.deliverAsync(url, mapOf("embeds" to embeds))
+            .whenComplete { delivery, error ->
+                if (error != null) {
+                    logError("Failed to send Discord webhook message", error)
+                    return@whenComplete
+                }
+                if (delivery == WebhookDelivery.SENT) {
+                    logInfo("Discord webhook message sent successfully")
+                }
+                if (delivery.isSettled) {
+                    outboxId?.let(onSettled)
+                }
+            }
+    }
+}
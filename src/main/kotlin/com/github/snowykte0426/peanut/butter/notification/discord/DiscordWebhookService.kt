@@ -1,19 +1,28 @@
 package com.github.snowykte0426.peanut.butter.notification.discord
 
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.github.snowykte0426.peanut.butter.logging.LatencySloEvent
 import com.github.snowykte0426.peanut.butter.logging.logError
 import com.github.snowykte0426.peanut.butter.logging.logInfo
+import com.github.snowykte0426.peanut.butter.logging.logWarn
+import com.github.snowykte0426.peanut.butter.notification.NotificationEvent
+import com.github.snowykte0426.peanut.butter.notification.NotificationPublisher
+import com.github.snowykte0426.peanut.butter.notification.NotificationSeverity
+import org.springframework.beans.factory.DisposableBean
 import org.springframework.beans.factory.annotation.Value
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
-import org.springframework.http.HttpEntity
-import org.springframework.http.HttpHeaders
-import org.springframework.http.MediaType
 import org.springframework.stereotype.Service
 import org.springframework.web.client.RestTemplate
+import java.math.BigDecimal
 import java.net.InetAddress
+import java.nio.file.Path
+import java.nio.file.Paths
 import java.time.Instant
 import java.time.LocalDateTime
 import java.time.ZoneId
 import java.time.format.DateTimeFormatter
+import java.util.Locale
+import java.util.concurrent.TimeUnit
 
 @Service
 @ConditionalOnProperty(
@@ -25,7 +34,73 @@ class DiscordWebhookService(
     private val restTemplate: RestTemplate = RestTemplate(),
     @Value("\${spring.application.name:Unknown Application}") private val applicationName: String,
     @Value("\${spring.profiles.active:default}") private val activeProfiles: String
-) {
+) : DisposableBean {
+
+    private val payloadWriter = DiscordPayloadWriter()
+
+    private val transport: DiscordWebhookTransport = createTransport()
+
+    /**
+     * Shared by every route, so routes posting to the same URL share its bucket and a global
+     * 429 pauses all of them.
+     */
+    private val rateLimiter = DiscordRateLimiter(discordProperties.rateLimit.maxRetryDelay)
+
+    private val objectMapper: ObjectMapper by lazy { ObjectMapper() }
+
+    private val outbox: DiscordOutbox? =
+        if (discordProperties.outbox.enabled) {
+            DiscordOutbox(outboxDirectory(), discordProperties.outbox.segmentSize, discordProperties.outbox.maxReplays)
+        } else {
+            null
+        }
+
+    private var outboxReplay: List<OutboxEntry> = outbox?.open() ?: emptyList()
+
+    private val routeResolver = DiscordRouteResolver(
+        routes = discordProperties.routes.map { (name, route) ->
+            createRoute(name, routeUrl(name, route), route.dispatcher, route.batching, route.priority) to route
+        },
+        defaultRoute = createRoute(
+            DiscordWebhookRoute.DEFAULT,
+            discordProperties.webhook.url,
+            discordProperties.dispatcher,
+            discordProperties.batching
+        )
+    )
+
+    private val exceptionAggregator: DiscordExceptionAggregator? =
+        if (discordProperties.aggregation.enabled) {
+            DiscordExceptionAggregator(
+                properties = discordProperties.aggregation,
+                sink = ::sendExceptionSummaries
+            )
+        } else {
+            null
+        }
+
+    private val healthMonitor: JvmHealthMonitor? =
+        if (discordProperties.health.enabled) {
+            JvmHealthMonitor(discordProperties.health, ::sendHealthDigest)
+        } else {
+            null
+        }
+
+    private val stackTraceRenderer = StackTraceRenderer(
+        maxCharacters = discordProperties.stackTrace.maxCharacters,
+        foldedPackages = discordProperties.stackTrace.foldedPackages,
+        maxCauses = discordProperties.stackTrace.maxCauses,
+        cacheSize = discordProperties.stackTrace.cacheSize
+    )
+
+    @Volatile
+    private var publisher: NotificationPublisher? = null
+
+    @Volatile
+    private var shutdownNotificationDeferred = false
+
+    @Volatile
+    private var shutdownNotificationRequested = false
 
     private val hostname: String by lazy {
         try {
@@ -43,55 +118,386 @@ class DiscordWebhookService(
         DiscordMessageLocalizer.getMessages(locale)
     }
 
-    fun sendStartupNotification() {
+    private val embedTemplate: DiscordEmbedTemplate by lazy {
+        DiscordEmbedTemplate(
+            messages = messages,
+            applicationName = applicationName,
+            activeProfiles = activeProfiles,
+            hostname = if (discordProperties.embed.includeHostname) hostname else null,
+            footerText = discordProperties.embed.footer
+        ).also(payloadWriter::register)
+    }
+
+    /**
+     * Sends the startup notification, with a startup time breakdown when [startupTiming] is given
+     * and startup timing is enabled.
+     */
+    fun sendStartupNotification(startupTiming: StartupTimingSummary? = null) {
         if (!discordProperties.webhook.enabled) return
 
-        val embed = createEmbed(
+        val timing = startupTiming?.takeIf { discordProperties.startupTiming.enabled }
+        raise(
+            type = "startup",
             title = messages.serverStartTitle,
-            description = messages.serverStartDescription,
-            color = 0x00ff00
+            description = if (timing == null) {
+                messages.serverStartDescription
+            } else {
+                messages.serverStartDescription + "\n\n" + formatStartupTiming(timing)
+            },
+            color = 0x00ff00,
+            severity = NotificationSeverity.INFO
         )
-
-        sendWebhookMessage(listOf(embed))
     }
 
+    /**
+     * Sends the shutdown notification, or, once [deferShutdownNotification] was called, leaves it
+     * to [drain] so that it goes out after every queued message.
+     */
     fun sendShutdownNotification() {
         if (!discordProperties.webhook.enabled) return
 
-        val embed = createEmbed(
+        if (shutdownNotificationDeferred && publisher == null) {
+            shutdownNotificationRequested = true
+            return
+        }
+
+        raise(
+            type = "shutdown",
             title = messages.serverStopTitle,
             description = messages.serverStopDescription,
-            color = 0xff9900
+            color = 0xff9900,
+            severity = NotificationSeverity.INFO
+        )
+    }
+
+    /**
+     * Sends a JVM health digest; digests raised by an anomaly trigger go out as warnings.
+     */
+    fun sendHealthDigest(digest: JvmHealthDigest) {
+        if (!discordProperties.webhook.enabled) return
+
+        val anomalous = digest.anomalies.isNotEmpty()
+        raise(
+            type = "health",
+            title = if (anomalous) messages.healthAnomalyTitle else messages.healthTitle,
+            description = formatHealthDigest(digest),
+            color = if (anomalous) 0xff9900 else 0x3498db,
+            severity = if (anomalous) NotificationSeverity.WARNING else NotificationSeverity.INFO
+        )
+    }
+
+    /**
+     * Sends a latency objective breach as a warning, or its recovery.
+     */
+    fun sendLatencySloNotification(event: LatencySloEvent) {
+        if (!discordProperties.webhook.enabled) return
+
+        val slo = event.slo
+        val percentile = "p" + BigDecimal.valueOf(slo.percentile).stripTrailingZeros().toPlainString()
+        raise(
+            type = "latency-slo",
+            title = if (event.breached) messages.latencySloBreachTitle else messages.latencySloRecoveredTitle,
+            description = buildString {
+                append("**${messages.operationLabel}:** ${slo.operation}\n")
+                append("**${messages.objectiveLabel}:** $percentile < ${formatMillis(slo.thresholdMillis)} / ${formatMillis(slo.windowMillis)}\n")
+                append("**${messages.observedLabel}:** $percentile = ${formatNanos(event.observedNanos)}\n")
+                append("**${messages.samplesLabel}:** ${event.sampleCount}")
+            },
+            color = if (event.breached) 0xff9900 else 0x00ff00,
+            severity = if (event.breached) NotificationSeverity.WARNING else NotificationSeverity.INFO
+        )
+    }
+
+    /**
+     * Routes the notifications this service raises itself (startup, shutdown, health digests,
+     * latency objectives and exceptions) through [publisher] instead of sending them directly.
+     * They come back through [deliverNotification] once the pipeline reaches its Discord sink;
+     * null restores direct sending.
+     */
+    fun publishThrough(publisher: NotificationPublisher?) {
+        this.publisher = publisher
+    }
+
+    private fun raise(type: String, title: String, description: String, color: Int, severity: NotificationSeverity) {
+        val activePublisher = publisher
+        if (activePublisher != null) {
+            activePublisher.publish(NotificationEvent(type, title, description, severity))
+            return
+        }
+
+        sendWebhookMessage(listOf(createEmbed(title, description, color)), severity)
+    }
+
+    /**
+     * Sends an event published through the generic notification pipeline, rendered as an
+     * exception embed when it carries an exception.
+     */
+    fun sendNotification(event: NotificationEvent) {
+        if (!discordProperties.webhook.enabled) return
+
+        sendWebhookMessage(
+            listOf(createNotificationEmbed(event)),
+            event.severity,
+            event.exception,
+            event.attributes[NotificationEvent.CONTEXT_ATTRIBUTE] ?: ""
+        )
+    }
+
+    /**
+     * Renders [event] like [sendNotification] but sends it on the calling thread, bypassing the
+     * route queue, so that the caller's own queue is the only one the event passes through.
+     *
+     * @return true once Discord accepted the message
+     */
+    fun deliverNotification(event: NotificationEvent): Boolean {
+        if (!discordProperties.webhook.enabled) return false
+
+        val embeds = listOf(createNotificationEmbed(event))
+        val route = routeResolver.resolve(
+            event.severity,
+            event.exception,
+            event.attributes[NotificationEvent.CONTEXT_ATTRIBUTE] ?: ""
+        )
+        return route.send(embeds, persist(route, embeds))
+    }
+
+    private fun createNotificationEmbed(event: NotificationEvent): Map<String, Any> {
+        val details = event.attributes
+            .filterKeys { it != NotificationEvent.CONTEXT_ATTRIBUTE }
+            .entries
+            .joinToString("\n") { (key, value) -> "**$key:** $value" }
+        val exception = event.exception
+        return if (exception != null) {
+            val context = listOfNotNull(event.attributes[NotificationEvent.CONTEXT_ATTRIBUTE], details.ifEmpty { null })
+                .joinToString("\n")
+            createExceptionEmbed(exception, context)
+        } else {
+            createEmbed(
+                title = event.title,
+                description = listOf(event.message, details).filter { it.isNotEmpty() }.joinToString("\n\n"),
+                color = when (event.severity) {
+                    NotificationSeverity.INFO -> discordProperties.embed.color
+                    NotificationSeverity.WARNING -> 0xff9900
+                    NotificationSeverity.ERROR, NotificationSeverity.CRITICAL -> 0xff0000
+                }
+            )
+        }
+    }
+
+    /**
+     * Makes [sendShutdownNotification] wait for [drain] instead of sending immediately.
+     */
+    fun deferShutdownNotification() {
+        shutdownNotificationDeferred = true
+    }
+
+    /**
+     * Flushes pending notifications within [timeoutMillis] and then sends the shutdown
+     * notification, if one was requested, as the last message.
+     *
+     * Aggregated exceptions are flushed first, then route queues are drained from the highest
+     * priority down; each gets whatever time is left, minus a reserve for the shutdown
+     * notification. New notifications are no longer queued once a route is drained.
+     */
+    fun drain(timeoutMillis: Long): DrainReport {
+        val startedAt = System.nanoTime()
+        val deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+        val shutdownReserve = TimeUnit.MILLISECONDS.toNanos(minOf(discordProperties.webhook.timeout, timeoutMillis / 4))
+
+        exceptionAggregator?.close()
+        healthMonitor?.close()
+
+        var flushed = 0L
+        var failed = 0L
+        var abandoned = 0
+        routeResolver.routesByPriority.forEach { route ->
+            val before = route.dispatcherStats()
+            abandoned += route.shutdown(remainingMillis(deadline - shutdownReserve))
+            val after = route.dispatcherStats()
+            if (before != null && after != null) {
+                flushed += after.delivered - before.delivered
+                failed += after.failed - before.failed
+            }
+        }
+
+        val shutdownNotificationSent = shutdownNotificationRequested &&
+            sendShutdownNotificationNow(remainingMillis(deadline))
+
+        return DrainReport(
+            flushed = flushed,
+            failed = failed,
+            abandoned = abandoned,
+            shutdownNotificationSent = shutdownNotificationSent,
+            elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)
         )
+    }
 
-        sendWebhookMessage(listOf(embed))
+    private fun sendShutdownNotificationNow(timeoutMillis: Long): Boolean {
+        shutdownNotificationRequested = false
+        val embeds = listOf(createShutdownEmbed())
+        val route = routeResolver.resolve(NotificationSeverity.INFO)
+        return route.sendNow(embeds, timeoutMillis, persist(route, embeds))
     }
 
-    fun sendExceptionNotification(exception: Throwable, context: String = "") {
+    private fun createShutdownEmbed(): Map<String, Any> {
+        return createEmbed(
+            title = messages.serverStopTitle,
+            description = messages.serverStopDescription,
+            color = 0xff9900
+        )
+    }
+
+    private fun remainingMillis(deadlineNanos: Long): Long =
+        TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()).coerceAtLeast(0L)
+
+    fun sendExceptionNotification(
+        exception: Throwable,
+        context: String = "",
+        severity: NotificationSeverity = NotificationSeverity.ERROR,
+        samplingRatio: Double = 1.0
+    ) {
         if (!discordProperties.webhook.enabled) return
 
-        val stackTrace = exception.stackTraceToString()
-        val truncatedStackTrace = if (stackTrace.length > 1500) {
-            stackTrace.take(1500) + "...\n${messages.stackTraceTruncated}"
+        val activePublisher = publisher
+        if (activePublisher != null) {
+            val attributes = buildMap {
+                if (context.isNotEmpty()) put(NotificationEvent.CONTEXT_ATTRIBUTE, context)
+                if (samplingRatio < 1.0) put(messages.samplingLabel, formatSamplingRatio(samplingRatio))
+            }
+            activePublisher.publish(
+                NotificationEvent(
+                    type = "exception",
+                    title = exception.javaClass.simpleName,
+                    message = exception.message ?: "",
+                    severity = severity,
+                    exception = exception,
+                    attributes = attributes
+                )
+            )
+            return
+        }
+
+        val aggregator = exceptionAggregator
+        if (aggregator != null) {
+            aggregator.record(exception, context, samplingRatio, severity)
+            return
+        }
+
+        sendWebhookMessage(
+            listOf(createExceptionEmbed(exception, context, samplingRatio = samplingRatio)),
+            severity,
+            exception,
+            context
+        )
+    }
+
+    private fun sendExceptionSummaries(summaries: List<ExceptionSummary>) {
+        summaries.forEach { summary ->
+            sendWebhookMessage(
+                listOf(createExceptionEmbed(summary.exception, summary.context, summary, summary.samplingRatio)),
+                summary.severity,
+                summary.exception,
+                summary.context
+            )
+        }
+    }
+
+    private fun createExceptionEmbed(
+        exception: Throwable,
+        context: String,
+        summary: ExceptionSummary? = null,
+        samplingRatio: Double = 1.0
+    ): Map<String, Any> {
+        val stackTrace = stackTraceRenderer.render(exception)
+        val truncatedStackTrace = if (stackTrace.truncated) {
+            stackTrace.text + "...\n${messages.stackTraceTruncated}"
         } else {
-            stackTrace
+            stackTrace.text
         }
 
-        val embed = createEmbed(
+        return createEmbed(
             title = messages.exceptionTitle,
             description = buildString {
                 if (context.isNotEmpty()) {
                     append("**${messages.contextLabel}:** $context\n\n")
                 }
                 append("**${messages.exceptionTypeLabel}:** ${exception.javaClass.simpleName}\n")
-                append("**${messages.messageLabel}:** ${exception.message ?: "N/A"}\n\n")
-                append("**${messages.stackTraceLabel}:**\n")
+                append("**${messages.messageLabel}:** ${exception.message ?: "N/A"}\n")
+                if (summary != null) {
+                    append("**${messages.occurrencesLabel}:** ${summary.count}\n")
+                    append("**${messages.firstSeenLabel}:** ${summary.firstSeen}\n")
+                    append("**${messages.lastSeenLabel}:** ${summary.lastSeen}\n")
+                }
+                if (samplingRatio < 1.0) {
+                    append("**${messages.samplingLabel}:** ${formatSamplingRatio(samplingRatio)}\n")
+                }
+                append("\n**${messages.stackTraceLabel}:**\n")
                 append("```\n$truncatedStackTrace\n```")
             },
             color = 0xff0000
         )
+    }
+
+    private fun formatStartupTiming(timing: StartupTimingSummary): String {
+        return buildString {
+            timing.totalMillis?.let { append("**${messages.startupTimeLabel}:** ${formatMillis(it)}\n") }
+            append("**${messages.beansCreatedLabel}:** ${timing.beansCreated}\n")
+            timing.autoConfigurationsApplied?.let { append("**${messages.autoConfigurationsLabel}:** $it\n") }
+            if (timing.slowestBeans.isNotEmpty()) {
+                append("**${messages.slowestBeansLabel}:**\n")
+                timing.slowestBeans.forEach { append("- `${it.beanName}` ${formatMillis(it.millis)}\n") }
+            }
+            if (timing.truncated) {
+                append(messages.startupTimingTruncated)
+            }
+        }.trimEnd()
+    }
+
+    private fun formatHealthDigest(digest: JvmHealthDigest): String {
+        return buildString {
+            digest.anomalies.forEach { anomaly ->
+                when (anomaly) {
+                    JvmHealthAnomaly.GC_TIME -> append("**${messages.gcTimeAnomaly}** (${formatPercent(digest.gcTimePercent ?: 0.0)})\n")
+                    JvmHealthAnomaly.OLD_GEN_AFTER_GC -> append("**${messages.oldGenAnomaly}** (${formatPercent(digest.oldGenUsedAfterGcPercent ?: 0.0)})\n")
+                }
+            }
+            if (digest.anomalies.isNotEmpty()) {
+                append("\n")
+            }
+            append("**${messages.heapLabel}:** ${formatBytes(digest.heapUsed)}")
+            if (digest.heapMax > 0) {
+                append(" / ${formatBytes(digest.heapMax)}")
+            }
+            append("\n")
+            append("**${messages.nonHeapLabel}:** ${formatBytes(digest.nonHeapUsed)}\n")
+            append("**${messages.gcLabel}:** ${digest.gcCount} / ${formatMillis(digest.gcMillis)} (${formatMillis(digest.periodMillis)})\n")
+            append("**${messages.threadsLabel}:** ${digest.liveThreads} / ${digest.peakThreads}\n")
+            digest.processCpuLoad?.let { append("**${messages.cpuLabel}:** ${formatPercent(it * 100)}\n") }
+        }.trimEnd()
+    }
 
-        sendWebhookMessage(listOf(embed))
+    private fun formatBytes(bytes: Long): String {
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0))
+    }
+
+    private fun formatPercent(percent: Double): String {
+        return String.format(Locale.ROOT, "%.1f%%", percent)
+    }
+
+    private fun formatNanos(nanos: Long): String {
+        return if (nanos >= 1_000_000_000L) {
+            String.format(Locale.ROOT, "%.2f s", nanos / 1_000_000_000.0)
+        } else {
+            String.format(Locale.ROOT, "%.2f ms", nanos / 1_000_000.0)
+        }
+    }
+
+    private fun formatMillis(millis: Long): String {
+        return if (millis >= 1000) String.format(Locale.ROOT, "%.2f s", millis / 1000.0) else "$millis ms"
+    }
+
+    private fun formatSamplingRatio(samplingRatio: Double): String {
+        return "1/${Math.round(1.0 / samplingRatio)} (${String.format(Locale.ROOT, "%.1f", samplingRatio * 100)}%)"
     }
 
     private fun createEmbed(
@@ -99,66 +505,151 @@ class DiscordWebhookService(
         description: String,
         color: Int = discordProperties.embed.color
     ): Map<String, Any> {
-        val embed = mutableMapOf<String, Any>(
-            "title" to title,
-            "description" to description,
-            "color" to color
-        )
+        val template = embedTemplate
+        return buildMap(6) {
+            put("title", title)
+            put("description", description)
+            put("color", color)
+            put("fields", template.fields)
+            if (discordProperties.embed.includeTimestamp) {
+                put("timestamp", Instant.now().toString())
+            }
+            template.footer?.let { put("footer", it) }
+        }
+    }
 
-        val fields = mutableListOf<Map<String, Any>>()
+    /**
+     * Returns queue depth, delivery and drop counters of the asynchronous dispatcher.
+     *
+     * @param route Route name, the default route when omitted
+     * @return Dispatcher statistics, or null when the route sends synchronously or does not exist
+     */
+    fun dispatcherStats(route: String = DiscordWebhookRoute.DEFAULT): DispatcherStats? =
+        routeResolver.route(route)?.dispatcherStats()
 
-        fields.add(mapOf(
-            "name" to messages.applicationLabel,
-            "value" to applicationName,
-            "inline" to true
-        ))
+    /**
+     * Returns time spent throttled and the number of 429 responses and retries.
+     *
+     * @param route Route name, the default route when omitted
+     */
+    fun rateLimitStats(route: String = DiscordWebhookRoute.DEFAULT): RateLimitStats =
+        (routeResolver.route(route) ?: routeResolver.defaultRoute).rateLimitStats()
 
-        fields.add(mapOf(
-            "name" to messages.profileLabel,
-            "value" to activeProfiles,
-            "inline" to true
-        ))
+    /**
+     * Redelivers messages a previous run persisted in the outbox but never got acknowledged.
+     *
+     * @return Number of messages replayed
+     */
+    fun replayOutbox(): Int {
+        val entries = synchronized(this) {
+            outboxReplay.also { outboxReplay = emptyList() }
+        }
 
-        if (discordProperties.embed.includeHostname) {
-            fields.add(mapOf(
-                "name" to messages.hostnameLabel,
-                "value" to hostname,
-                "inline" to true
-            ))
+        entries.forEach { entry ->
+            try {
+                @Suppress("UNCHECKED_CAST")
+                val payload = objectMapper.readValue(entry.payload, Map::class.java) as Map<String, Any>
+                @Suppress("UNCHECKED_CAST")
+                val embeds = payload["embeds"] as? List<Map<String, Any>> ?: emptyList()
+                val route = (payload["route"] as? String)?.let(routeResolver::route) ?: routeResolver.defaultRoute
+                route.dispatch(embeds, entry.id)
+            } catch (e: Exception) {
+                logError("Failed to replay Discord outbox message", e)
+            }
         }
+        if (entries.isNotEmpty()) {
+            logInfo("Replayed {} Discord messages from the outbox", entries.size)
+        }
+        return entries.size
+    }
 
-        embed["fields"] = fields
+    override fun destroy() {
+        exceptionAggregator?.close()
+        healthMonitor?.close()
+        routeResolver.routes.forEach { it.shutdown(discordProperties.webhook.timeout) }
+        outbox?.close()
+    }
 
-        if (discordProperties.embed.includeTimestamp) {
-            embed["timestamp"] = Instant.now().toString()
-        }
+    private fun sendWebhookMessage(
+        embeds: List<Map<String, Any>>,
+        severity: NotificationSeverity,
+        exception: Throwable? = null,
+        context: String = ""
+    ) {
+        val route = routeResolver.resolve(severity, exception, context)
+        route.dispatch(embeds, persist(route, embeds))
+    }
 
-        if (discordProperties.embed.footer.isNotEmpty()) {
-            embed["footer"] = mapOf("text" to discordProperties.embed.footer)
+    private fun persist(route: DiscordWebhookRoute, embeds: List<Map<String, Any>>): Long? {
+        return outbox?.let { activeOutbox ->
+            try {
+                activeOutbox.append(payloadWriter.write(mapOf("route" to route.name, "embeds" to embeds)))
+            } catch (e: Exception) {
+                logError("Failed to persist Discord message to the outbox", e)
+                null
+            }
         }
+    }
 
-        return embed
+    private fun createRoute(
+        name: String,
+        url: String,
+        dispatcherProperties: DiscordProperties.DispatcherProperties,
+        batching: DiscordProperties.BatchingProperties,
+        priority: Int = 0
+    ): DiscordWebhookRoute {
+        return DiscordWebhookRoute(
+            name = name,
+            url = url,
+            webhookClient = DiscordWebhookClient(transport, discordProperties.rateLimit, rateLimiter),
+            dispatcherProperties = dispatcherProperties,
+            batching = batching,
+            asyncDelivery = discordProperties.webhook.transport == WebhookTransportType.HTTP_CLIENT,
+            onSettled = { outboxId -> outbox?.acknowledge(outboxId) },
+            priority = priority
+        )
     }
 
-    private fun sendWebhookMessage(embeds: List<Map<String, Any>>) {
-        try {
-            val payload = mapOf("embeds" to embeds)
+    /**
+     * Returns the URL of the route [name], falling back to `webhook.url` when it has none.
+     */
+    private fun routeUrl(name: String, route: DiscordProperties.RouteProperties): String {
+        if (route.url.isNotBlank()) return route.url
 
-            val headers = HttpHeaders().apply {
-                contentType = MediaType.APPLICATION_JSON
-            }
+        val fallback = discordProperties.webhook.url
+        require(fallback.isNotBlank()) {
+            "Discord route '$name' has no url and peanut-butter.notification.discord.webhook.url is not set"
+        }
+        logWarn("Discord route '{}' has no url, sending its messages to webhook.url", name)
+        return fallback
+    }
 
-            val entity = HttpEntity(payload, headers)
+    private fun createTransport(): DiscordWebhookTransport {
+        return when (discordProperties.webhook.transport) {
+            WebhookTransportType.HTTP_CLIENT -> HttpClientWebhookTransport.from(discordProperties.webhook, payloadWriter)
+            WebhookTransportType.REST_TEMPLATE -> RestTemplateWebhookTransport(restTemplate, payloadWriter)
+        }
+    }
 
-            restTemplate.postForEntity(
-                discordProperties.webhook.url,
-                entity,
-                String::class.java
+    private fun outboxDirectory(): Path {
+        val configured = discordProperties.outbox.directory
+        return if (configured.isNotBlank()) {
+            Paths.get(configured)
+        } else {
+            Paths.get(
+                System.getProperty("java.io.tmpdir"),
+                "peanut-butter",
+                "discord-outbox",
+                applicationName.replace(Regex("[^A-Za-z0-9._-]+"), "-")
             )
-
-            logInfo("Discord webhook message sent successfully")
-        } catch (e: Exception) {
-            logError("Failed to send Discord webhook message", e)
         }
     }
-}
\ No newline at end of file
+}
+
+data class DrainReport(
+    val flushed: Long,
+    val failed: Long,
+    val abandoned: Int,
+    val shutdownNotificationSent: Boolean,
+    val elapsedMillis: Long
+)
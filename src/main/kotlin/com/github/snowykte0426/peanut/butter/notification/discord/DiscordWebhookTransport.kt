@@ -0,0 +1,72 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import org.springframework.http.HttpEntity
+import org.springframework.http.HttpHeaders
+import org.springframework.http.MediaType
+import org.springframework.web.client.HttpStatusCodeException
+import org.springframework.web.client.RestTemplate
+import java.util.concurrent.CompletableFuture
+
+/**
+ * Posts one webhook payload and reports Discord's answer.
+ *
+ * Implementations return a [WebhookResponse] for every HTTP status, including 429 and other
+ * errors, and only throw when no response was received at all.
+ */
+interface DiscordWebhookTransport {
+
+    fun send(url: String, payload: Map<String, Any>): WebhookResponse
+
+    /**
+     * Sends without blocking the caller. The default runs [send] on the common pool.
+     */
+    fun sendAsync(url: String, payload: Map<String, Any>): CompletableFuture<WebhookResponse> =
+        CompletableFuture.supplyAsync { send(url, payload) }
+}
+
+data class WebhookResponse(
+    val statusCode: Int,
+    val headers: HttpHeaders = HttpHeaders(),
+    val body: String = ""
+) {
+    val isSuccessful: Boolean
+        get() = statusCode in 200..299
+
+    val isRateLimited: Boolean
+        get() = statusCode == 429
+
+    /**
+     * Whether Discord refused the payload itself, so sending it again cannot succeed.
+     */
+    val isRejected: Boolean
+        get() = statusCode in 400..499 && !isRateLimited
+}
+
+/**
+ * Transport backed by a [RestTemplate].
+ *
+ * The payload is serialized by a [DiscordPayloadWriter] and posted as pre-written JSON bytes,
+ * so it never goes through the template's data binding converters.
+ *
+ * @param restTemplate Template used for the requests
+ * @param payloadWriter Serializer for the request bodies
+ */
+class RestTemplateWebhookTransport(
+    private val restTemplate: RestTemplate,
+    private val payloadWriter: DiscordPayloadWriter = DiscordPayloadWriter()
+) : DiscordWebhookTransport {
+
+    override fun send(url: String, payload: Map<String, Any>): WebhookResponse {
+        val headers = HttpHeaders().apply {
+            contentType = MediaType.APPLICATION_JSON
+        }
+
+        return try {
+            val body = payloadWriter.write(payload)
+            val response = restTemplate.postForEntity(url, HttpEntity(body, headers), String::class.java)
+            WebhookResponse(response.statusCode.value(), response.headers, response.body ?: "")
+        } catch (e: HttpStatusCodeException) {
+            WebhookResponse(e.statusCode.value(), e.responseHeaders ?: HttpHeaders(), e.responseBodyAsString)
+        }
+    }
+}
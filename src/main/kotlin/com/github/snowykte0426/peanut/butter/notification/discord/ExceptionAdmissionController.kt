@@ -0,0 +1,86 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Decides whether an exception notification is worth building, based on the current exception rate.
+ *
+ * Occurrences are counted in a sliding window of time buckets held in atomic arrays, so
+ * concurrent callers never lock. Up to [threshold] exceptions per second are all admitted;
+ * above it each one is admitted with probability `threshold / rate` (but never below
+ * [minRatio]), keeping the number of embeds built roughly constant however hard the storm.
+ *
+ * @param threshold Exceptions per second admitted without sampling
+ * @param windowMillis Length of the sliding window the rate is measured over
+ * @param buckets Number of buckets the window is split into
+ * @param minRatio Lowest sampling ratio applied
+ */
+class ExceptionAdmissionController(
+    private val threshold: Double = 100.0,
+    windowMillis: Long = 1000L,
+    private val buckets: Int = 10,
+    private val minRatio: Double = 0.01
+) {
+
+    init {
+        require(windowMillis > 0) { "Admission window must be positive: $windowMillis" }
+        require(buckets > 0) { "Admission bucket count must be positive: $buckets" }
+    }
+
+    private val bucketNanos = (TimeUnit.MILLISECONDS.toNanos(windowMillis) / buckets).coerceAtLeast(1L)
+    private val windowSeconds = bucketNanos * buckets / 1_000_000_000.0
+    private val counts = AtomicLongArray(buckets)
+    private val epochs = AtomicLongArray(buckets)
+
+    /**
+     * Counts one exception and decides whether to notify about it.
+     *
+     * @return The sampling ratio in effect (1.0 when not sampling) if the exception is admitted,
+     *         0.0 if it should be dropped
+     */
+    fun admit(): Double {
+        record(System.nanoTime())
+        val ratio = samplingRatio()
+        if (ratio >= 1.0 || ThreadLocalRandom.current().nextDouble() < ratio) {
+            return ratio
+        }
+        return 0.0
+    }
+
+    /**
+     * Exceptions per second over the sliding window.
+     */
+    fun rate(): Double {
+        val currentEpoch = System.nanoTime() / bucketNanos
+        var total = 0L
+        for (index in 0 until buckets) {
+            if (currentEpoch - epochs.get(index) < buckets) {
+                total += counts.get(index)
+            }
+        }
+        return total / windowSeconds
+    }
+
+    /**
+     * Fraction of exceptions currently admitted.
+     */
+    fun samplingRatio(): Double {
+        val rate = rate()
+        if (rate <= threshold) return 1.0
+        return maxOf(minRatio, threshold / rate)
+    }
+
+    private fun record(nowNanos: Long) {
+        val epoch = nowNanos / bucketNanos
+        val index = Math.floorMod(epoch, buckets.toLong()).toInt()
+
+        val bucketEpoch = epochs.get(index)
+        if (bucketEpoch != epoch && epochs.compareAndSet(index, bucketEpoch, epoch)) {
+            // This caller claimed the stale bucket for the new epoch; others just count into it.
+            counts.set(index, 0L)
+        }
+        counts.incrementAndGet(index)
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+/**
+ * Identity of an exception for aggregation purposes: its type plus its top stack frames.
+ *
+ * Two occurrences thrown from the same place share a fingerprint even when their messages differ
+ * (ids, timestamps), which is what lets an outage collapse into one alert per failure site.
+ * The value is a 64-bit FNV-1a hash, computed without rendering the stack trace.
+ */
+data class ExceptionFingerprint(val value: Long) {
+
+    override fun toString(): String = java.lang.Long.toHexString(value)
+
+    companion object {
+        private const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL
+        private const val FNV_PRIME = 0x100000001b3L
+
+        /**
+         * Fingerprints [exception] by its class name and its first [frameCount] stack frames.
+         */
+        fun of(exception: Throwable, frameCount: Int): ExceptionFingerprint {
+            return ExceptionFingerprint(hash(FNV_OFFSET_BASIS, exception, frameCount))
+        }
+
+        /**
+         * Fingerprints every throwable in [chain] by its class name, its depth and its first and
+         * last [frameCount] stack frames, so the cost stays bounded however deep the stacks are.
+         *
+         * @param traces Stack trace of each throwable in [chain], fetched once by the caller
+         */
+        fun ofChain(
+            chain: List<Throwable>,
+            traces: List<Array<StackTraceElement>>,
+            frameCount: Int
+        ): ExceptionFingerprint {
+            var hash = FNV_OFFSET_BASIS
+            chain.forEachIndexed { index, throwable ->
+                val frames = traces[index]
+                hash = mix(hash, throwable.javaClass.name)
+                hash = (hash xor frames.size.toLong()) * FNV_PRIME
+                val head = minOf(frameCount, frames.size)
+                for (frame in 0 until head) {
+                    hash = mix(hash, frames[frame])
+                }
+                for (frame in maxOf(head, frames.size - frameCount) until frames.size) {
+                    hash = mix(hash, frames[frame])
+                }
+                hash = (hash xor '>'.code.toLong()) * FNV_PRIME
+            }
+            return ExceptionFingerprint(hash)
+        }
+
+        private fun hash(seed: Long, exception: Throwable, frameCount: Int): Long {
+            var hash = mix(seed, exception.javaClass.name)
+            val frames = exception.stackTrace
+            for (index in 0 until minOf(frameCount, frames.size)) {
+                hash = mix(hash, frames[index])
+            }
+            return hash
+        }
+
+        private fun mix(seed: Long, frame: StackTraceElement): Long {
+            var hash = mix(seed, frame.className)
+            hash = mix(hash, frame.methodName)
+            return (hash xor frame.lineNumber.toLong()) * FNV_PRIME
+        }
+
+        private fun mix(seed: Long, value: String): Long {
+            var hash = seed
+            for (char in value) {
+                hash = (hash xor char.code.toLong()) * FNV_PRIME
+            }
+            return (hash xor '|'.code.toLong()) * FNV_PRIME
+        }
+    }
+}
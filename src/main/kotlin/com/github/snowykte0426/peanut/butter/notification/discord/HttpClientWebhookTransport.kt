@@ -0,0 +1,86 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import org.springframework.http.HttpHeaders
+import java.net.URI
+import java.net.http.HttpClient
+import java.net.http.HttpRequest
+import java.net.http.HttpResponse
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Transport built on `java.net.http.HttpClient`.
+ *
+ * The client negotiates HTTP/2 and keeps connections alive between messages, so consecutive
+ * webhook posts skip the TCP and TLS handshakes. Every request carries the read timeout, and
+ * [sendAsync] completes on the client's executor without tying up a caller thread. Payloads
+ * are serialized by a [DiscordPayloadWriter].
+ *
+ * @param client Client used for the requests, see [sharedClient]
+ * @param requestTimeout Time allowed for a response once the request has been sent
+ * @param payloadWriter Serializer for the request bodies
+ */
+class HttpClientWebhookTransport(
+    private val client: HttpClient,
+    private val requestTimeout: Duration,
+    private val payloadWriter: DiscordPayloadWriter = DiscordPayloadWriter()
+) : DiscordWebhookTransport {
+
+    companion object {
+        private val sharedClients = ConcurrentHashMap<Duration, HttpClient>()
+
+        /**
+         * Builds an HTTP/2 client with the given connect timeout.
+         */
+        fun newClient(connectTimeout: Duration): HttpClient {
+            return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build()
+        }
+
+        /**
+         * Returns the process-wide client for [connectTimeout], so every webhook route reuses
+         * one connection pool.
+         */
+        fun sharedClient(connectTimeout: Duration): HttpClient =
+            sharedClients.computeIfAbsent(connectTimeout, ::newClient)
+
+        /**
+         * Creates a transport from the webhook settings.
+         */
+        fun from(
+            properties: DiscordProperties.WebhookProperties,
+            payloadWriter: DiscordPayloadWriter = DiscordPayloadWriter()
+        ): HttpClientWebhookTransport {
+            val connectTimeout = Duration.ofMillis(properties.connectTimeout)
+            val client = if (properties.sharedClient) sharedClient(connectTimeout) else newClient(connectTimeout)
+            return HttpClientWebhookTransport(client, Duration.ofMillis(properties.timeout), payloadWriter)
+        }
+    }
+
+    override fun send(url: String, payload: Map<String, Any>): WebhookResponse {
+        return toWebhookResponse(client.send(request(url, payload), HttpResponse.BodyHandlers.ofString()))
+    }
+
+    override fun sendAsync(url: String, payload: Map<String, Any>): CompletableFuture<WebhookResponse> {
+        return client.sendAsync(request(url, payload), HttpResponse.BodyHandlers.ofString())
+            .thenApply(::toWebhookResponse)
+    }
+
+    private fun request(url: String, payload: Map<String, Any>): HttpRequest {
+        return HttpRequest.newBuilder(URI.create(url))
+            .timeout(requestTimeout)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(payloadWriter.write(payload)))
+            .build()
+    }
+
+    private fun toWebhookResponse(response: HttpResponse<String>): WebhookResponse {
+        val headers = HttpHeaders()
+        response.headers().map().forEach { (name, values) -> headers.addAll(name, values) }
+        return WebhookResponse(response.statusCode(), headers, response.body() ?: "")
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.logging.logError
+import java.lang.management.GarbageCollectorMXBean
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryPoolMXBean
+import java.lang.management.MemoryType
+import java.util.EnumSet
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Samples JVM health from the platform MXBeans on one scheduler thread.
+ *
+ * Every `sampleInterval` the monitor checks two anomaly triggers: the share of wall time spent
+ * in GC since the previous sample, and whether an old generation pool stayed above
+ * `oldGenThreshold` after its last collection. The old generation is judged by the pool's
+ * post-GC usage, which only changes when a collection runs, so a breach lasts until a
+ * collection brings the pool back under the threshold. The JVM-wide collection usage
+ * thresholds are left alone for other monitoring to use.
+ *
+ * A [JvmHealthDigest] is built only every `interval` or when a trigger fires, and it lists
+ * every trigger that fired in that sample. A trigger fires once when its condition starts and
+ * again only after it cleared.
+ *
+ * @param properties Intervals and thresholds
+ * @param listener Receives digests, with the anomaly that triggered them if any
+ * @param name Name of the scheduler thread
+ */
+class JvmHealthMonitor(
+    private val properties: DiscordProperties.HealthProperties,
+    private val listener: (JvmHealthDigest) -> Unit,
+    name: String = "discord-jvm-health-monitor"
+) : AutoCloseable {
+
+    private val memory = ManagementFactory.getMemoryMXBean()
+    private val threads = ManagementFactory.getThreadMXBean()
+    private val operatingSystem = ManagementFactory.getOperatingSystemMXBean()
+    private val collectors: Array<GarbageCollectorMXBean> =
+        ManagementFactory.getGarbageCollectorMXBeans().toTypedArray()
+    private val oldGenPools: Array<MemoryPoolMXBean> = ManagementFactory.getMemoryPoolMXBeans()
+        .filter { it.type == MemoryType.HEAP && it.collectionUsage != null && isOldGen(it.name) }
+        .toTypedArray()
+
+    private var lastSampleNanos = System.nanoTime()
+    private var lastSampleGcMillis = totalGcMillis()
+    private var lastDigestNanos = lastSampleNanos
+    private var lastDigestGcMillis = lastSampleGcMillis
+    private var lastDigestGcCount = totalGcCount()
+    private var gcTimeBreached = false
+    private var oldGenBreached = false
+    private val firedAnomalies: EnumSet<JvmHealthAnomaly> = EnumSet.noneOf(JvmHealthAnomaly::class.java)
+
+    private val scheduler = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, name).apply { isDaemon = true }
+    }.apply {
+        val period = properties.sampleInterval.coerceAtLeast(1L)
+        scheduleAtFixedRate(::sampleSafely, period, period, TimeUnit.MILLISECONDS)
+    }
+
+    /**
+     * Takes one sample; called by the scheduler thread.
+     */
+    @Synchronized
+    internal fun sample() {
+        val now = System.nanoTime()
+        val gcMillis = totalGcMillis()
+        val elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - lastSampleNanos).coerceAtLeast(1L)
+        val gcPercent = (gcMillis - lastSampleGcMillis) * 100.0 / elapsedMillis
+        lastSampleNanos = now
+        lastSampleGcMillis = gcMillis
+
+        val gcTimeExceeded = gcPercent > properties.gcTimeThreshold
+        val oldGenExceeded = (oldGenUsedAfterGcPercent() ?: 0.0) > properties.oldGenThreshold
+
+        firedAnomalies.clear()
+        if (gcTimeExceeded && !gcTimeBreached) firedAnomalies.add(JvmHealthAnomaly.GC_TIME)
+        if (oldGenExceeded && !oldGenBreached) firedAnomalies.add(JvmHealthAnomaly.OLD_GEN_AFTER_GC)
+        gcTimeBreached = gcTimeExceeded
+        oldGenBreached = oldGenExceeded
+
+        if (firedAnomalies.isNotEmpty() || now - lastDigestNanos >= TimeUnit.MILLISECONDS.toNanos(properties.interval)) {
+            val anomalies = if (firedAnomalies.isEmpty()) emptySet() else EnumSet.copyOf(firedAnomalies)
+            listener(digest(now, anomalies, gcPercent))
+        }
+    }
+
+    /**
+     * Builds a digest covering the time since the previous one and starts a new digest period.
+     */
+    @Synchronized
+    internal fun digest(
+        now: Long = System.nanoTime(),
+        anomalies: Set<JvmHealthAnomaly> = emptySet(),
+        gcPercent: Double? = null
+    ): JvmHealthDigest {
+        val heap = memory.heapMemoryUsage
+        val nonHeap = memory.nonHeapMemoryUsage
+        val gcMillis = totalGcMillis()
+        val gcCount = totalGcCount()
+
+        val digest = JvmHealthDigest(
+            heapUsed = heap.used,
+            heapMax = heap.max,
+            nonHeapUsed = nonHeap.used,
+            gcCount = gcCount - lastDigestGcCount,
+            gcMillis = gcMillis - lastDigestGcMillis,
+            periodMillis = TimeUnit.NANOSECONDS.toMillis(now - lastDigestNanos),
+            liveThreads = threads.threadCount,
+            peakThreads = threads.peakThreadCount,
+            processCpuLoad = (operatingSystem as? com.sun.management.OperatingSystemMXBean)
+                ?.processCpuLoad?.takeIf { it >= 0 },
+            oldGenUsedAfterGcPercent = oldGenUsedAfterGcPercent(),
+            anomalies = anomalies,
+            gcTimePercent = gcPercent
+        )
+
+        lastDigestNanos = now
+        lastDigestGcMillis = gcMillis
+        lastDigestGcCount = gcCount
+        return digest
+    }
+
+    override fun close() {
+        scheduler.shutdownNow()
+    }
+
+    private fun sampleSafely() {
+        try {
+            sample()
+        } catch (e: Exception) {
+            logError("Failed to sample JVM health", e)
+        }
+    }
+
+    private fun totalGcMillis(): Long {
+        var total = 0L
+        for (collector in collectors) {
+            total += collector.collectionTime.coerceAtLeast(0L)
+        }
+        return total
+    }
+
+    private fun totalGcCount(): Long {
+        var total = 0L
+        for (collector in collectors) {
+            total += collector.collectionCount.coerceAtLeast(0L)
+        }
+        return total
+    }
+
+    /**
+     * Returns the highest share of its maximum any old generation pool used after its last
+     * collection, or null when there is no such pool.
+     */
+    private fun oldGenUsedAfterGcPercent(): Double? {
+        if (oldGenPools.isEmpty()) return null
+        var highest = 0.0
+        for (pool in oldGenPools) {
+            val usage = pool.collectionUsage ?: continue
+            val max = if (usage.max > 0) usage.max else pool.usage.max
+            if (max > 0) {
+                highest = maxOf(highest, usage.used * 100.0 / max)
+            }
+        }
+        return highest
+    }
+
+    private fun isOldGen(poolName: String): Boolean =
+        poolName.contains("Old", ignoreCase = true) || poolName.contains("Tenured", ignoreCase = true)
+}
+
+enum class JvmHealthAnomaly {
+    GC_TIME,
+    OLD_GEN_AFTER_GC
+}
+
+data class JvmHealthDigest(
+    val heapUsed: Long,
+    val heapMax: Long,
+    val nonHeapUsed: Long,
+    val gcCount: Long,
+    val gcMillis: Long,
+    val periodMillis: Long,
+    val liveThreads: Int,
+    val peakThreads: Int,
+    val processCpuLoad: Double?,
+    val oldGenUsedAfterGcPercent: Double?,
+    val anomalies: Set<JvmHealthAnomaly> = emptySet(),
+    val gcTimePercent: Double? = null
+)
@@ -0,0 +1,201 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Renders stack traces for embeds within a fixed character budget.
+ *
+ * Unlike `stackTraceToString()`, frames are appended one at a time and rendering stops as soon
+ * as the budget is spent, so a deep Spring/Tomcat stack costs no more than the part that is
+ * actually shown. Consecutive frames from [foldedPackages] collapse into a single
+ * `... N frames folded` line, at most [maxCauses] causes are followed, and frames a cause shares
+ * with its enclosing trace are elided as `... N more`. Suppressed exceptions are not rendered.
+ *
+ * The frame lines are cached by the [ExceptionFingerprint] of the rendered cause chain (class,
+ * depth and outermost frames of every throwable), so repeated alerts for the same failure site
+ * reuse them without hashing whole stacks. A hit is confirmed against the classes and frames
+ * stored with the entry before it is used, which costs a comparison of the frames rather than a
+ * rendering. The headers, including cause messages, are rendered on every call. The message of
+ * the exception itself is not part of the rendering; embeds show it separately.
+ *
+ * @param maxCharacters Character budget of one rendering
+ * @param foldedPackages Class name prefixes whose frames are folded
+ * @param maxCauses Maximum number of causes rendered after the exception itself
+ * @param cacheSize Maximum number of cached renderings
+ */
+class StackTraceRenderer(
+    private val maxCharacters: Int = 1500,
+    private val foldedPackages: List<String> = emptyList(),
+    private val maxCauses: Int = 3,
+    private val cacheSize: Int = 256
+) {
+
+    companion object {
+        private const val KEY_FRAMES = 8
+    }
+
+    private val cache = ConcurrentHashMap<ExceptionFingerprint, CachedFrames>()
+
+    fun render(exception: Throwable): RenderedStackTrace {
+        val chain = causeChain(exception)
+        val traces = chain.map { it.stackTrace }
+        val frameBlocks = frameBlocksOf(chain, traces)
+        val output = BudgetedBuilder(maxCharacters)
+
+        chain.forEachIndexed { index, current ->
+            val header = if (index == 0) current.javaClass.name else "Caused by: $current"
+            if (!output.appendLine(header) || !output.appendBlock(frameBlocks[index])) {
+                return RenderedStackTrace(output.toString(), truncated = true)
+            }
+        }
+
+        val causesCut = chain.size > maxCauses && chain.last().cause != null
+        return RenderedStackTrace(output.toString(), truncated = causesCut)
+    }
+
+    fun cachedRenderings(): Int = cache.size
+
+    /**
+     * Returns [exception] followed by at most [maxCauses] of its causes, stopping at a cycle.
+     */
+    private fun causeChain(exception: Throwable): List<Throwable> {
+        val chain = mutableListOf(exception)
+        var current = exception
+        while (chain.size <= maxCauses) {
+            val cause = current.cause ?: break
+            if (chain.any { it === cause }) break
+            chain.add(cause)
+            current = cause
+        }
+        return chain
+    }
+
+    private fun frameBlocksOf(chain: List<Throwable>, traces: List<Array<StackTraceElement>>): List<String> {
+        if (cacheSize <= 0) return renderFrameBlocks(traces)
+
+        val fingerprint = ExceptionFingerprint.ofChain(chain, traces, KEY_FRAMES)
+        cache[fingerprint]?.let { cached ->
+            if (cached.matches(chain, traces)) return cached.blocks
+        }
+
+        val blocks = renderFrameBlocks(traces)
+        if (cache.size >= cacheSize) {
+            cache.clear()
+        }
+        cache[fingerprint] = CachedFrames(
+            types = chain.map { it.javaClass },
+            traces = traces,
+            blocks = blocks
+        )
+        return blocks
+    }
+
+    /**
+     * Renders the frame lines of every stack in [traces], each within the whole budget.
+     */
+    private fun renderFrameBlocks(traces: List<Array<StackTraceElement>>): List<String> {
+        var enclosingFrames: Array<StackTraceElement> = emptyArray()
+        return traces.map { frames ->
+            val block = BudgetedBuilder(maxCharacters)
+            appendFrames(block, frames, enclosingFrames)
+            enclosingFrames = frames
+            block.toString()
+        }
+    }
+
+    /**
+     * Appends [frames] minus the tail shared with [enclosingFrames].
+     *
+     * @return false once the budget is exhausted
+     */
+    private fun appendFrames(
+        output: BudgetedBuilder,
+        frames: Array<StackTraceElement>,
+        enclosingFrames: Array<StackTraceElement>
+    ): Boolean {
+        var last = frames.size - 1
+        var enclosing = enclosingFrames.size - 1
+        while (last >= 0 && enclosing >= 0 && frames[last] == enclosingFrames[enclosing]) {
+            last--
+            enclosing--
+        }
+        val common = frames.size - 1 - last
+
+        var index = 0
+        while (index <= last) {
+            val frame = frames[index]
+            if (isFolded(frame)) {
+                var run = 1
+                while (index + run <= last && isFolded(frames[index + run])) {
+                    run++
+                }
+                if (!output.appendLine("\t... $run frames folded")) return false
+                index += run
+            } else {
+                if (!output.appendLine("\tat $frame")) return false
+                index++
+            }
+        }
+
+        return common == 0 || output.appendLine("\t... $common more")
+    }
+
+    private fun isFolded(frame: StackTraceElement): Boolean {
+        val className = frame.className
+        return foldedPackages.any { className.startsWith(it) }
+    }
+
+    /**
+     * Cached frame lines plus the chain they were rendered from, compared on every hit so that a
+     * fingerprint collision never hands out another failure's frames.
+     */
+    private class CachedFrames(
+        private val types: List<Class<*>>,
+        private val traces: List<Array<StackTraceElement>>,
+        val blocks: List<String>
+    ) {
+        fun matches(chain: List<Throwable>, traces: List<Array<StackTraceElement>>): Boolean {
+            if (chain.size != types.size) return false
+            return chain.indices.all { index ->
+                chain[index].javaClass == types[index] && traces[index].contentEquals(this.traces[index])
+            }
+        }
+    }
+
+    private class BudgetedBuilder(private val budget: Int) {
+        private val builder = StringBuilder(minOf(budget, 1024).coerceAtLeast(16))
+
+        /**
+         * Appends [line] if it fits, otherwise as much of it as fits.
+         *
+         * @return false once the budget is exhausted
+         */
+        fun appendLine(line: String): Boolean {
+            val separator = if (builder.isEmpty()) 0 else 1
+            val remaining = budget - builder.length - separator
+            if (remaining <= 0) return false
+
+            if (separator == 1) builder.append('\n')
+            if (line.length > remaining) {
+                builder.append(line, 0, remaining)
+                return false
+            }
+            builder.append(line)
+            return true
+        }
+
+        /**
+         * Appends the lines of [block], if any, as far as they fit.
+         *
+         * @return false once the budget is exhausted
+         */
+        fun appendBlock(block: String): Boolean = block.isEmpty() || appendLine(block)
+
+        override fun toString(): String = builder.toString()
+    }
+}
+
+data class RenderedStackTrace(
+    val text: String,
+    val truncated: Boolean
+)
@@ -0,0 +1,73 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import org.springframework.boot.autoconfigure.condition.ConditionEvaluationReport
+import org.springframework.boot.context.event.ApplicationReadyEvent
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup
+import org.springframework.context.ConfigurableApplicationContext
+
+/**
+ * Where startup time went, condensed for the startup notification.
+ *
+ * @property totalMillis Time from launch until the application was ready
+ * @property beansCreated Number of recorded bean instantiations
+ * @property slowestBeans Slowest bean instantiations, including the time spent creating their
+ *           dependencies
+ * @property autoConfigurationsApplied Number of auto-configurations whose conditions matched
+ * @property truncated Whether the step buffer filled up and later steps were not recorded
+ */
+data class StartupTimingSummary(
+    val totalMillis: Long?,
+    val beansCreated: Int,
+    val slowestBeans: List<BeanTiming>,
+    val autoConfigurationsApplied: Int?,
+    val truncated: Boolean
+) {
+
+    data class BeanTiming(
+        val beanName: String,
+        val millis: Long
+    )
+
+    companion object {
+        private const val BEAN_INSTANTIATION_STEP = "spring.beans.instantiate"
+        private const val BEAN_NAME_TAG = "beanName"
+        private const val AUTO_CONFIGURATION_SUFFIX = "AutoConfiguration"
+
+        /**
+         * Builds a summary from the buffered startup steps of the application that just became ready.
+         *
+         * @return The summary, or null when the application was not recording startup steps
+         */
+        fun from(event: ApplicationReadyEvent, slowestBeanCount: Int, bufferCapacity: Int): StartupTimingSummary? {
+            val startup = event.springApplication?.applicationStartup as? BufferingApplicationStartup ?: return null
+            val timeline = startup.bufferedTimeline
+
+            val beanTimings = timeline.events
+                .filter { it.startupStep.name == BEAN_INSTANTIATION_STEP }
+                .map { timelineEvent ->
+                    val beanName = timelineEvent.startupStep.tags
+                        .firstOrNull { it.key == BEAN_NAME_TAG }?.value ?: "?"
+                    BeanTiming(beanName, timelineEvent.duration.toMillis())
+                }
+
+            return StartupTimingSummary(
+                totalMillis = event.timeTaken?.toMillis(),
+                beansCreated = beanTimings.size,
+                slowestBeans = beanTimings.sortedByDescending { it.millis }.take(slowestBeanCount),
+                autoConfigurationsApplied = countAppliedAutoConfigurations(event.applicationContext),
+                truncated = timeline.events.size >= bufferCapacity
+            )
+        }
+
+        private fun countAppliedAutoConfigurations(context: ConfigurableApplicationContext?): Int? {
+            val beanFactory = context?.beanFactory ?: return null
+            return try {
+                ConditionEvaluationReport.get(beanFactory).conditionAndOutcomesBySource
+                    .filter { (source, outcomes) -> source.endsWith(AUTO_CONFIGURATION_SUFFIX) && outcomes.isFullMatch }
+                    .size
+            } catch (e: Exception) {
+                null
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.snowykte0426.peanut.butter.notification.file
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.github.snowykte0426.peanut.butter.notification.NotificationEvent
+import com.github.snowykte0426.peanut.butter.notification.NotificationProperties
+import com.github.snowykte0426.peanut.butter.notification.NotificationSink
+import java.io.BufferedOutputStream
+import java.io.OutputStream
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+
+/**
+ * Sink appending one JSON object per event to a local file, rolled over by size.
+ *
+ * When the next line would push [path] past [maxFileSize], it is renamed to `<path>.1`,
+ * older files shift up by one and anything beyond [maxFiles] is deleted.
+ *
+ * @param path File events are appended to
+ * @param maxFileSize Size in bytes at which the file is rolled over
+ * @param maxFiles Number of rolled files kept besides the active one
+ * @param backpressure Queue settings of this sink
+ */
+class JsonLinesFileSink(
+    private val path: Path,
+    private val maxFileSize: Long = 10L * 1024 * 1024,
+    private val maxFiles: Int = 5,
+    override val backpressure: NotificationProperties.BackpressureProperties =
+        NotificationProperties.BackpressureProperties(queueCapacity = 10000)
+) : NotificationSink {
+
+    override val name: String = "file"
+
+    private val objectMapper = ObjectMapper()
+    private var output: OutputStream? = null
+    private var size = 0L
+
+    @Synchronized
+    override fun deliver(event: NotificationEvent): Boolean {
+        val line = objectMapper.writeValueAsBytes(toJson(event)) + NEWLINE
+        if (size > 0 && size + line.size > maxFileSize) {
+            roll()
+        }
+
+        val stream = output ?: open()
+        stream.write(line)
+        stream.flush()
+        size += line.size
+        return true
+    }
+
+    @Synchronized
+    override fun close() {
+        output?.close()
+        output = null
+    }
+
+    private fun open(): OutputStream {
+        path.toAbsolutePath().parent?.let(Files::createDirectories)
+        size = if (Files.exists(path)) Files.size(path) else 0L
+        return BufferedOutputStream(
+            Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+        ).also { output = it }
+    }
+
+    private fun roll() {
+        close()
+        Files.deleteIfExists(rolled(maxFiles))
+        for (index in maxFiles - 1 downTo 1) {
+            val source = rolled(index)
+            if (Files.exists(source)) {
+                Files.move(source, rolled(index + 1), StandardCopyOption.REPLACE_EXISTING)
+            }
+        }
+        if (maxFiles > 0) {
+            Files.move(path, rolled(1), StandardCopyOption.REPLACE_EXISTING)
+        } else {
+            Files.deleteIfExists(path)
+        }
+        size = 0L
+    }
+
+    private fun rolled(index: Int): Path = path.resolveSibling("${path.fileName}.$index")
+
+    private fun toJson(event: NotificationEvent): Map<String, Any?> {
+        return linkedMapOf(
+            "timestamp" to event.timestamp.toString(),
+            "type" to event.type,
+            "severity" to event.severity.name,
+            "title" to event.title,
+            "message" to event.message,
+            "exception" to event.exception?.let { mapOf("type" to it.javaClass.name, "message" to it.message) },
+            "attributes" to event.attributes
+        )
+    }
+
+    private companion object {
+        private val NEWLINE = byteArrayOf('\n'.code.toByte())
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.snowykte0426.peanut.butter.notification.slack
+
+import com.github.snowykte0426.peanut.butter.logging.logError
+import com.github.snowykte0426.peanut.butter.logging.logWarn
+import com.github.snowykte0426.peanut.butter.notification.NotificationEvent
+import com.github.snowykte0426.peanut.butter.notification.NotificationProperties
+import com.github.snowykte0426.peanut.butter.notification.NotificationRenderer
+import com.github.snowykte0426.peanut.butter.notification.NotificationSeverity
+import com.github.snowykte0426.peanut.butter.notification.NotificationTransport
+import com.github.snowykte0426.peanut.butter.notification.RenderingNotificationSink
+import org.springframework.http.HttpEntity
+import org.springframework.http.HttpHeaders
+import org.springframework.http.MediaType
+import org.springframework.web.client.RestClientException
+import org.springframework.web.client.RestTemplate
+
+/**
+ * Sink posting to a Slack-compatible incoming webhook.
+ *
+ * @param url Incoming webhook URL
+ * @param restTemplate Client used for the POST
+ * @param backpressure Queue settings of this sink
+ */
+class SlackNotificationSink(
+    url: String,
+    restTemplate: RestTemplate,
+    backpressure: NotificationProperties.BackpressureProperties = NotificationProperties.BackpressureProperties()
+) : RenderingNotificationSink<Map<String, Any>>(
+    name = "slack",
+    backpressure = backpressure,
+    renderer = SlackMessageRenderer(),
+    transport = SlackWebhookTransport(url, restTemplate)
+)
+
+/**
+ * Renders an event as a message with one attachment, colored by severity.
+ *
+ * @param maxStackTraceLines Stack frames included for exception events
+ */
+class SlackMessageRenderer(
+    private val maxStackTraceLines: Int = 10
+) : NotificationRenderer<Map<String, Any>> {
+
+    override fun render(event: NotificationEvent): Map<String, Any> {
+        val text = buildString {
+            append(event.message)
+            event.exception?.let { exception ->
+                if (isNotEmpty()) append("\n")
+                append("```\n")
+                append(exception.toString())
+                exception.stackTrace.take(maxStackTraceLines).forEach { append("\n\tat ").append(it) }
+                append("\n```")
+            }
+        }
+
+        val attachment = mutableMapOf<String, Any>(
+            "color" to color(event.severity),
+            "title" to event.title,
+            "text" to text,
+            "ts" to event.timestamp.epochSecond
+        )
+        if (event.attributes.isNotEmpty()) {
+            attachment["fields"] = event.attributes.map { (key, value) ->
+                mapOf("title" to key, "value" to value, "short" to (value.length <= 40))
+            }
+        }
+
+        return mapOf(
+            "text" to "*${event.title}*",
+            "attachments" to listOf(attachment)
+        )
+    }
+
+    private fun color(severity: NotificationSeverity): String = when (severity) {
+        NotificationSeverity.INFO -> "#2eb886"
+        NotificationSeverity.WARNING -> "#daa038"
+        NotificationSeverity.ERROR, NotificationSeverity.CRITICAL -> "#a30200"
+    }
+}
+
+/**
+ * Posts JSON payloads to a Slack-compatible webhook.
+ */
+class SlackWebhookTransport(
+    private val url: String,
+    private val restTemplate: RestTemplate
+) : NotificationTransport<Map<String, Any>> {
+
+    override fun send(message: Map<String, Any>): Boolean {
+        val headers = HttpHeaders().apply {
+            contentType = MediaType.APPLICATION_JSON
+        }
+
+        return try {
+            val response = restTemplate.postForEntity(url, HttpEntity(message, headers), String::class.java)
+            if (!response.statusCode.is2xxSuccessful) {
+                logWarn("Slack webhook rejected message with status {}", response.statusCode.value())
+            }
+            response.statusCode.is2xxSuccessful
+        } catch (e: RestClientException) {
+            logError("Failed to send Slack webhook message", e)
+            false
+        }
+    }
+}
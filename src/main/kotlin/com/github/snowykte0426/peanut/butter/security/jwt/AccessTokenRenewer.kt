@@ -0,0 +1,87 @@
+package com.github.snowykte0426.peanut.butter.security.jwt
+
+import java.time.Duration
+import java.time.Instant
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Issues replacement access tokens for requests whose token is about to expire.
+ *
+ * A token becomes eligible once it is inside [renewalWindow] of its expiry. Each token's
+ * threshold is shifted by a deterministic per-token jitter of up to [jitter], so clients
+ * that logged in together do not all renew at the same instant. The replacement is
+ * memoized per original token, so a burst of parallel requests carrying the same token
+ * receives the same new token and only one is issued.
+ *
+ * @param jwtService Service used to read expirations and issue replacement tokens
+ * @param renewalWindow How long before expiry a token becomes eligible for renewal
+ * @param jitter Maximum per-token delay added to the renewal threshold
+ * @param headerName Response header carrying the replacement token
+ * @param maxMemoizedTokens Upper bound on remembered replacements
+ */
+class AccessTokenRenewer(
+    private val jwtService: JwtService,
+    private val renewalWindow: Duration,
+    private val jitter: Duration = Duration.ZERO,
+    val headerName: String = "X-Renewed-Access-Token",
+    private val maxMemoizedTokens: Int = 10000
+) {
+
+    private data class RenewedToken(
+        val token: String,
+        val originalExpiration: Instant
+    )
+
+    private val renewedTokens = ConcurrentHashMap<String, RenewedToken>()
+    private val jitterMillis = jitter.toMillis().coerceIn(0L, renewalWindow.toMillis())
+
+    /**
+     * Returns a replacement access token when [token] is inside its (jittered) renewal window.
+     *
+     * @param token The valid access token presented by the client
+     * @param subject Subject of the presented token
+     * @param claims Custom claims of the presented token, carried over to the replacement
+     * @return The replacement token, or null when no renewal is due
+     */
+    fun renewIfExpiring(token: String, subject: String, claims: Map<String, Any>?): String? {
+        val expiration = jwtService.extractExpiration(token) ?: return null
+        val now = Instant.now()
+        if (!expiration.isAfter(now)) return null
+
+        val threshold = expiration.minus(renewalWindow).plusMillis(jitterFor(token))
+        if (now.isBefore(threshold)) return null
+
+        if (renewedTokens.size >= maxMemoizedTokens) {
+            evict(now)
+        }
+
+        return renewedTokens.computeIfAbsent(token) {
+            RenewedToken(jwtService.generateAccessToken(subject, claims ?: emptyMap()), expiration)
+        }.token
+    }
+
+    fun memoizedCount(): Int = renewedTokens.size
+
+    private fun jitterFor(token: String): Long {
+        if (jitterMillis == 0L) return 0L
+        return (token.hashCode().toLong() and 0x7fffffffL) % (jitterMillis + 1)
+    }
+
+    /**
+     * Forgets replacements whose original token has expired; once a presented token can no longer
+     * be valid its replacement is never asked for again.
+     */
+    private fun evict(now: Instant) {
+        renewedTokens.entries.removeIf { !it.value.originalExpiration.isAfter(now) }
+
+        if (renewedTokens.size >= maxMemoizedTokens) {
+            val iterator = renewedTokens.keys.iterator()
+            var toRemove = maxOf(1, maxMemoizedTokens / 10)
+            while (toRemove > 0 && iterator.hasNext()) {
+                iterator.next()
+                iterator.remove()
+                toRemove--
+            }
+        }
+    }
+}
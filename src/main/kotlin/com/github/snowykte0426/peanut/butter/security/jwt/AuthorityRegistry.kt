@@ -0,0 +1,93 @@
+package com.github.snowykte0426.peanut.butter.security.jwt
+
+import java.util.Base64
+import java.util.BitSet
+
+/**
+ * Versioned registry mapping authority names to bit positions.
+ *
+ * Encoded claims have the form `<version>.<base64url bitset>`, so a token carrying dozens of
+ * authorities needs only a few bytes. Authorities missing from the current registry version
+ * are left for the plain string claims.
+ *
+ * @param currentVersion Registry version used when encoding
+ * @param registries Authority names by registry version; list index is the bit position
+ */
+class AuthorityRegistry(
+    private val currentVersion: Int,
+    registries: Map<Int, List<String>>
+) {
+
+    companion object {
+        const val CLAIM = "authz"
+        private const val SEPARATOR = '.'
+
+        fun from(properties: AuthorityEncodingProperties): AuthorityRegistry? {
+            if (!properties.enabled || properties.registries[properties.version].isNullOrEmpty()) {
+                return null
+            }
+            return AuthorityRegistry(properties.version, properties.registries)
+        }
+    }
+
+    data class EncodedAuthorities(
+        val value: String?,
+        val unregistered: List<String>
+    )
+
+    private val namesByVersion: Map<Int, List<String>> = registries.mapValues { (_, names) -> names.toList() }
+    private val currentIndexes: Map<String, Int> = namesByVersion[currentVersion].orEmpty()
+        .withIndex()
+        .associate { (index, name) -> name to index }
+
+    /**
+     * Encodes the registered [authorities] as a bitset claim value.
+     *
+     * @return The claim value (null when none of the authorities is registered) and the
+     * authorities that must still be sent as strings
+     */
+    fun encode(authorities: Collection<String>): EncodedAuthorities {
+        val bits = BitSet()
+        val unregistered = mutableListOf<String>()
+
+        authorities.forEach { authority ->
+            val index = currentIndexes[authority]
+            if (index != null) bits.set(index) else unregistered.add(authority)
+        }
+
+        if (bits.isEmpty) {
+            return EncodedAuthorities(null, unregistered)
+        }
+
+        val encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(bits.toByteArray())
+        return EncodedAuthorities("$currentVersion$SEPARATOR$encoded", unregistered)
+    }
+
+    /**
+     * Decodes a claim value produced by [encode].
+     *
+     * @return The authority names, or null when the registry version is unknown or the value is malformed
+     */
+    fun decode(value: String): List<String>? {
+        val separatorIndex = value.indexOf(SEPARATOR)
+        if (separatorIndex <= 0) return null
+
+        val version = value.substring(0, separatorIndex).toIntOrNull() ?: return null
+        val names = namesByVersion[version] ?: return null
+
+        val bits = try {
+            BitSet.valueOf(Base64.getUrlDecoder().decode(value.substring(separatorIndex + 1)))
+        } catch (e: IllegalArgumentException) {
+            return null
+        }
+        if (bits.length() > names.size) return null
+
+        val authorities = ArrayList<String>(bits.cardinality())
+        var index = bits.nextSetBit(0)
+        while (index >= 0) {
+            authorities.add(names[index])
+            index = bits.nextSetBit(index + 1)
+        }
+        return authorities
+    }
+}
@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory
 import org.springframework.stereotype.Service
 import java.nio.charset.StandardCharsets
 import java.security.Key
+import java.security.SecureRandom
 import java.time.Instant
 import java.util.*
 import javax.crypto.SecretKey
@@ -13,18 +14,40 @@ import javax.crypto.SecretKey
 @Service
 class DefaultJwtService(
     private val jwtProperties: JwtProperties,
-    private val refreshTokenStore: RefreshTokenStore? = null
+    private val refreshTokenStore: RefreshTokenStore? = null,
+    private val opaqueTokenStore: OpaqueTokenStore? = null,
+    private val keyId: String? = null
 ) : JwtService {
 
+    private companion object {
+        private const val OPAQUE_REFERENCE_BYTES = 32
+        private const val PARALLEL_BATCH_THRESHOLD = 64
+        private val RESERVED_CLAIMS = setOf("sub", "iat", "exp", "jti")
+    }
+
     private val logger = LoggerFactory.getLogger(DefaultJwtService::class.java)
     private val secretKey: SecretKey = Keys.hmacShaKeyFor(jwtProperties.secret.toByteArray(StandardCharsets.UTF_8))
+    private val jwtParser: JwtParser = Jwts.parser()
+        .verifyWith(secretKey)
+        .apply { jwtProperties.issuer?.let { requireIssuer(it) } }
+        .build()
+    private val secureRandom = SecureRandom()
+    private val authorityRegistry = AuthorityRegistry.from(jwtProperties.authorityEncoding)
+    private val introspectionCache = OpaqueTokenIntrospectionCache(
+        jwtProperties.opaqueTokenCacheSize,
+        jwtProperties.opaqueTokenCacheTtl
+    )
 
     override fun generateAccessToken(subject: String, claims: Map<String, Any>): String {
+        if (jwtProperties.accessTokenType == AccessTokenType.OPAQUE) {
+            return generateOpaqueAccessToken(subject, claims)
+        }
+
         val now = Instant.now()
         val expiration = now.plus(jwtProperties.accessTokenExpiry)
         
-        return Jwts.builder()
-            .claims(claims)
+        return newTokenBuilder()
+            .claims(encodeAuthorities(claims))
             .subject(subject)
             .issuedAt(Date.from(now))
             .expiration(Date.from(expiration))
@@ -41,13 +64,7 @@ class DefaultJwtService(
         val expiration = now.plus(jwtProperties.refreshTokenExpiry)
         val tokenId = UUID.randomUUID().toString()
         
-        val refreshToken = Jwts.builder()
-            .subject(subject)
-            .id(tokenId)
-            .issuedAt(Date.from(now))
-            .expiration(Date.from(expiration))
-            .signWith(secretKey)
-            .compact()
+        val refreshToken = buildRefreshToken(subject, tokenId, now, expiration)
 
         if (jwtProperties.refreshTokenMode == RefreshTokenMode.STORE_AND_VALIDATE) {
             refreshTokenStore?.storeRefreshToken(tokenId, subject, expiration)
@@ -56,7 +73,59 @@ class DefaultJwtService(
         return refreshToken
     }
 
+    override fun generateAccessTokens(requests: List<AccessTokenRequest>): List<String> {
+        return mapInOrder(requests) { generateAccessToken(it.subject, it.claims) }
+    }
+
+    override fun generateRefreshTokens(subjects: List<String>): List<String> {
+        if (!jwtProperties.refreshTokenEnabled) {
+            throw IllegalStateException("Refresh token is disabled")
+        }
+
+        val now = Instant.now()
+        val expiration = now.plus(jwtProperties.refreshTokenExpiry)
+
+        val issued = mapInOrder(subjects) { subject ->
+            val tokenId = UUID.randomUUID().toString()
+            buildRefreshToken(subject, tokenId, now, expiration) to RefreshTokenRecord(tokenId, subject, expiration)
+        }
+
+        if (jwtProperties.refreshTokenMode == RefreshTokenMode.STORE_AND_VALIDATE) {
+            refreshTokenStore?.storeRefreshTokens(issued.map { it.second })
+        }
+
+        return issued.map { it.first }
+    }
+
+    override fun validateTokens(tokens: List<String>): List<Boolean> {
+        val verified = mapInOrder(tokens) { token -> verifySignature(token) }
+
+        val storeValidationRequired = jwtProperties.refreshTokenEnabled &&
+            jwtProperties.refreshTokenMode == RefreshTokenMode.STORE_AND_VALIDATE
+        if (!storeValidationRequired) {
+            return verified.map { it.valid }
+        }
+
+        val tokenIds = verified.mapNotNull { if (it.valid) it.tokenId else null }
+        val validTokenIds = if (tokenIds.isEmpty()) {
+            emptySet()
+        } else {
+            try {
+                refreshTokenStore?.findValidRefreshTokenIds(tokenIds) ?: emptySet()
+            } catch (e: Exception) {
+                logger.debug("Batch token store validation failed", e)
+                emptySet()
+            }
+        }
+
+        return verified.map { it.valid && (it.tokenId == null || it.tokenId in validTokenIds) }
+    }
+
     override fun validateToken(token: String): Boolean {
+        if (isOpaqueReference(token)) {
+            return introspect(token) != null
+        }
+
         return try {
             val claims = parseToken(token)
             val tokenId = claims.id
@@ -75,6 +144,10 @@ class DefaultJwtService(
     }
 
     override fun extractSubject(token: String): String? {
+        if (isOpaqueReference(token)) {
+            return introspect(token)?.subject
+        }
+
         return try {
             parseToken(token).subject
         } catch (e: Exception) {
@@ -84,9 +157,13 @@ class DefaultJwtService(
     }
 
     override fun extractClaims(token: String): Map<String, Any>? {
+        if (isOpaqueReference(token)) {
+            return introspect(token)?.claims
+        }
+
         return try {
             parseToken(token).filterNot { (key, _) -> 
-                key in setOf("sub", "iat", "exp", "jti") 
+                key in RESERVED_CLAIMS
             }
         } catch (e: Exception) {
             logger.debug("Failed to extract claims from token", e)
@@ -95,6 +172,10 @@ class DefaultJwtService(
     }
 
     override fun extractExpiration(token: String): Instant? {
+        if (isOpaqueReference(token)) {
+            return introspect(token)?.expiration
+        }
+
         return try {
             parseToken(token).expiration?.toInstant()
         } catch (e: Exception) {
@@ -142,10 +223,157 @@ class DefaultJwtService(
         }
     }
 
+    override fun revokeAccessToken(token: String): Boolean {
+        if (!isOpaqueReference(token)) return false
+
+        val store = opaqueTokenStore ?: return false
+        val known = introspect(token) != null
+        introspectionCache.invalidate(token)
+        store.revokeToken(token)
+        return known
+    }
+
+    private fun generateOpaqueAccessToken(subject: String, claims: Map<String, Any>): String {
+        val store = opaqueTokenStore ?: throw IllegalStateException("Opaque token store is not configured")
+
+        val now = Instant.now()
+        val record = OpaqueTokenRecord(
+            reference = newOpaqueReference(),
+            subject = subject,
+            claims = claims.filterKeys { it !in RESERVED_CLAIMS },
+            issuedAt = now,
+            expiration = now.plus(jwtProperties.accessTokenExpiry)
+        )
+
+        store.storeToken(record)
+        introspectionCache.put(record)
+        return record.reference
+    }
+
+    private fun newOpaqueReference(): String {
+        val bytes = ByteArray(OPAQUE_REFERENCE_BYTES)
+        secureRandom.nextBytes(bytes)
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes)
+    }
+
+    /**
+     * Opaque references are URL-safe Base64 and never contain the dot separators of a compact JWT,
+     * so the two formats can be told apart without parsing.
+     */
+    private fun isOpaqueReference(token: String): Boolean {
+        return jwtProperties.accessTokenType == AccessTokenType.OPAQUE &&
+            token.isNotEmpty() &&
+            token.indexOf('.') < 0
+    }
+
+    /**
+     * Resolves an opaque reference through the local introspection cache, falling back to the store.
+     */
+    private fun introspect(reference: String): OpaqueTokenRecord? {
+        val cached = introspectionCache.get(reference)
+        if (cached != null) {
+            return if (cached.expiration.isAfter(Instant.now())) cached else null
+        }
+
+        return try {
+            val record = opaqueTokenStore?.findToken(reference) ?: return null
+            if (!record.expiration.isAfter(Instant.now())) return null
+            introspectionCache.put(record)
+            record
+        } catch (e: Exception) {
+            logger.debug("Failed to introspect opaque token", e)
+            null
+        }
+    }
+
+    /**
+     * Replaces the `roles`/`authorities` string lists with a bitset claim when authority encoding
+     * is enabled. Authorities missing from the registry stay in the `authorities` list.
+     */
+    private fun encodeAuthorities(claims: Map<String, Any>): Map<String, Any> {
+        val registry = authorityRegistry ?: return claims
+
+        val roles = stringValues(claims["roles"])
+        val authorities = stringValues(claims["authorities"])
+        if (roles.isEmpty() && authorities.isEmpty()) return claims
+
+        val encoded = registry.encode(roles.map { "ROLE_$it" } + authorities)
+        val encodedValue = encoded.value ?: return claims
+
+        val result = LinkedHashMap(claims)
+        result.remove("roles")
+        result.remove("authorities")
+        result[AuthorityRegistry.CLAIM] = encodedValue
+        if (encoded.unregistered.isNotEmpty()) {
+            result["authorities"] = encoded.unregistered
+        }
+        return result
+    }
+
+    private fun stringValues(value: Any?): List<String> {
+        return when (value) {
+            is Collection<*> -> value.filterIsInstance<String>()
+            is String -> listOf(value)
+            else -> emptyList()
+        }
+    }
+
+    private data class VerifiedToken(
+        val valid: Boolean,
+        val tokenId: String?
+    )
+
+    /**
+     * Checks signature and expiry (or resolves an opaque reference) without consulting the
+     * refresh token store, so store lookups for a batch can be issued together.
+     */
+    private fun verifySignature(token: String): VerifiedToken {
+        if (isOpaqueReference(token)) {
+            return VerifiedToken(introspect(token) != null, null)
+        }
+
+        return try {
+            VerifiedToken(true, parseToken(token).id)
+        } catch (e: Exception) {
+            logger.debug("Token validation failed", e)
+            VerifiedToken(false, null)
+        }
+    }
+
+    /**
+     * Maps a batch preserving input order, spreading the work across cores once the batch is
+     * large enough for the fork/join overhead to pay off.
+     */
+    private fun <T, R> mapInOrder(items: List<T>, transform: (T) -> R): List<R> {
+        if (items.size < PARALLEL_BATCH_THRESHOLD) {
+            return items.map(transform)
+        }
+        return items.parallelStream().map { transform(it) }.toList()
+    }
+
+    private fun buildRefreshToken(subject: String, tokenId: String, issuedAt: Instant, expiration: Instant): String {
+        return newTokenBuilder()
+            .subject(subject)
+            .id(tokenId)
+            .issuedAt(Date.from(issuedAt))
+            .expiration(Date.from(expiration))
+            .signWith(secretKey)
+            .compact()
+    }
+
+    /**
+     * Starts a token with the configured issuer and, for tenant-scoped services, the key id header
+     * that [MultiTenantJwtService] routes on.
+     */
+    private fun newTokenBuilder(): JwtBuilder {
+        val builder = Jwts.builder()
+        keyId?.let { builder.header().keyId(it).and() }
+        jwtProperties.issuer?.let { builder.issuer(it) }
+        return builder
+    }
+
     private fun parseToken(token: String): Claims {
-        return Jwts.parser()
-            .verifyWith(secretKey)
-            .build()
+        return jwtParser
             .parseSignedClaims(token)
             .payload
     }
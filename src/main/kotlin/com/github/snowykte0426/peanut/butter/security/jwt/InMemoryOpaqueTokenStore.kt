@@ -0,0 +1,28 @@
+package com.github.snowykte0426.peanut.butter.security.jwt
+
+import org.springframework.stereotype.Component
+import java.time.Instant
+import java.util.concurrent.ConcurrentHashMap
+
+@Component
+class InMemoryOpaqueTokenStore : OpaqueTokenStore {
+    private val tokens = ConcurrentHashMap<String, OpaqueTokenRecord>()
+
+    override fun storeToken(record: OpaqueTokenRecord) {
+        tokens[record.reference] = record
+    }
+
+    override fun findToken(reference: String): OpaqueTokenRecord? {
+        val record = tokens[reference] ?: return null
+        return if (record.expiration.isAfter(Instant.now())) record else null
+    }
+
+    override fun revokeToken(reference: String) {
+        tokens.remove(reference)
+    }
+
+    override fun cleanupExpiredTokens() {
+        val now = Instant.now()
+        tokens.entries.removeIf { it.value.expiration.isBefore(now) }
+    }
+}
@@ -38,6 +38,10 @@ interface RefreshTokenRepository : JpaRepository<RefreshTokenEntity, String> {
            "WHERE r.tokenId = :tokenId AND r.isBlacklisted = false AND r.expiration > :now")
     fun isTokenValid(@Param("tokenId") tokenId: String, @Param("now") now: Instant): Boolean
     
+    @Query("SELECT r.tokenId FROM RefreshTokenEntity r " +
+           "WHERE r.tokenId IN :tokenIds AND r.isBlacklisted = false AND r.expiration > :now")
+    fun findValidTokenIds(@Param("tokenIds") tokenIds: Collection<String>, @Param("now") now: Instant): List<String>
+    
     @Modifying
     @Query("UPDATE RefreshTokenEntity r SET r.isBlacklisted = true WHERE r.tokenId = :tokenId")
     fun blacklistToken(@Param("tokenId") tokenId: String)
@@ -76,4 +80,17 @@ open class JpaRefreshTokenStore(
     override fun cleanupExpiredTokens() {
         refreshTokenRepository.deleteExpiredTokens(Instant.now())
     }
+
+    @Transactional
+    override fun storeRefreshTokens(records: List<RefreshTokenRecord>) {
+        if (records.isEmpty()) return
+        refreshTokenRepository.saveAll(
+            records.map { RefreshTokenEntity(it.tokenId, it.subject, it.expiration, false) }
+        )
+    }
+
+    override fun findValidRefreshTokenIds(tokenIds: Collection<String>): Set<String> {
+        if (tokenIds.isEmpty()) return emptySet()
+        return refreshTokenRepository.findValidTokenIds(tokenIds, Instant.now()).toSet()
+    }
 }
\ No newline at end of file
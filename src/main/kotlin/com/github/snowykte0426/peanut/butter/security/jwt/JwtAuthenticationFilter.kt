@@ -13,6 +13,7 @@ import org.springframework.security.web.SecurityFilterChain
 import org.springframework.util.AntPathMatcher
 import org.springframework.web.filter.OncePerRequestFilter
 import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * JWT Authentication Filter for processing JWT tokens in HTTP requests.
@@ -25,14 +26,24 @@ import java.io.IOException
  * @param jwtService Service for JWT token operations
  * @param additionalExcludedPaths Additional URL patterns to exclude from JWT authentication
  * @param autoDetectPermitAllPaths Whether to automatically detect permitAll paths from SecurityFilterChain
+ * @param accessTokenRenewer Optional renewer that returns a fresh access token in a response header
+ * when the presented token is close to expiry
+ * @param authorityRegistry Optional registry used to decode bitset-encoded authorities
  */
 class JwtAuthenticationFilter(
     private val jwtService: JwtService,
     private val additionalExcludedPaths: List<String> = emptyList(),
-    private val autoDetectPermitAllPaths: Boolean = true
+    private val autoDetectPermitAllPaths: Boolean = true,
+    private val accessTokenRenewer: AccessTokenRenewer? = null,
+    private val authorityRegistry: AuthorityRegistry? = null
 ) : OncePerRequestFilter() {
 
+    private companion object {
+        private const val MAX_CACHED_AUTHORITY_SETS = 1024
+    }
+
     private val pathMatcher = AntPathMatcher()
+    private val decodedAuthorities = ConcurrentHashMap<String, List<SimpleGrantedAuthority>>()
     
     @Autowired
     private lateinit var applicationContext: ApplicationContext
@@ -78,6 +89,10 @@ class JwtAuthenticationFilter(
                         
                         SecurityContextHolder.getContext().authentication = authentication
                     }
+
+                    if (subject != null) {
+                        renewIfExpiring(token, subject, claims, response)
+                    }
                 }
             } catch (e: Exception) {
                 // Log the exception but continue with the filter chain
@@ -88,6 +103,21 @@ class JwtAuthenticationFilter(
         filterChain.doFilter(request, response)
     }
 
+    /**
+     * Sends a replacement access token in the configured response header when the presented
+     * token is inside its renewal window, so clients can swap tokens without a failed request.
+     */
+    private fun renewIfExpiring(
+        token: String,
+        subject: String,
+        claims: Map<String, Any>?,
+        response: HttpServletResponse
+    ) {
+        val renewer = accessTokenRenewer ?: return
+        val renewedToken = renewer.renewIfExpiring(token, subject, claims) ?: return
+        response.setHeader(renewer.headerName, renewedToken)
+    }
+
     /**
      * Checks if the request path should skip JWT authentication.
      *
@@ -158,26 +188,54 @@ class JwtAuthenticationFilter(
 
     /**
      * Extracts authorities from JWT claims.
-     * 
+     *
+     * A decodable bitset claim yields its cached immutable list, extended only by the
+     * authorities the registry did not know; the `roles` list is read only when the bitset
+     * claim is missing or uses an unknown registry version.
+     *
      * @param claims JWT claims map
      * @return List of granted authorities
      */
     private fun extractAuthorities(claims: Map<String, Any>?): List<SimpleGrantedAuthority> {
         if (claims == null) return emptyList()
-        
-        val roles = when (val rolesValue = claims["roles"]) {
-            is List<*> -> rolesValue.filterIsInstance<String>()
-            is String -> listOf(rolesValue)
-            else -> emptyList()
+
+        val authorities = stringClaim(claims["authorities"])
+        val encoded = decodeEncodedAuthorities(claims[AuthorityRegistry.CLAIM])
+        if (encoded != null) {
+            return if (authorities.isEmpty()) encoded else encoded + authorities.map { SimpleGrantedAuthority(it) }
         }
-        
-        val authorities = when (val authoritiesValue = claims["authorities"]) {
-            is List<*> -> authoritiesValue.filterIsInstance<String>()
-            is String -> listOf(authoritiesValue)
+
+        val roles = stringClaim(claims["roles"])
+        return (roles.map { "ROLE_$it" } + authorities).map { SimpleGrantedAuthority(it) }
+    }
+
+    private fun stringClaim(value: Any?): List<String> {
+        return when (value) {
+            is List<*> -> value.filterIsInstance<String>()
+            is String -> listOf(value)
             else -> emptyList()
         }
-        
-        return (roles.map { "ROLE_$it" } + authorities)
-            .map { SimpleGrantedAuthority(it) }
+    }
+
+    /**
+     * Decodes a bitset authority claim into a cached immutable authority list.
+     *
+     * @param value The encoded claim value
+     * @return Decoded authorities, or null when the claim is absent, malformed or uses an
+     * unknown registry version (the string claims are used instead)
+     */
+    private fun decodeEncodedAuthorities(value: Any?): List<SimpleGrantedAuthority>? {
+        val registry = authorityRegistry ?: return null
+        if (value !is String) return null
+
+        decodedAuthorities[value]?.let { return it }
+
+        val names = registry.decode(value) ?: return null
+        val authorities = names.map { SimpleGrantedAuthority(it) }
+        if (decodedAuthorities.size >= MAX_CACHED_AUTHORITY_SETS) {
+            decodedAuthorities.clear()
+        }
+        decodedAuthorities[value] = authorities
+        return authorities
     }
 }
\ No newline at end of file
@@ -2,10 +2,17 @@ package com.github.snowykte0426.peanut.butter.security.jwt
 
 import org.springframework.boot.autoconfigure.AutoConfiguration
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition
+import org.springframework.boot.context.properties.bind.Bindable
+import org.springframework.boot.context.properties.bind.Binder
 import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.ConditionContext
+import org.springframework.context.annotation.Conditional
 import org.springframework.context.annotation.Import
+import org.springframework.core.type.AnnotatedTypeMetadata
 import org.springframework.scheduling.annotation.EnableScheduling
 import org.springframework.scheduling.annotation.Scheduled
 
@@ -28,11 +35,36 @@ class JwtAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    fun defaultJwtService(
+    @ConditionalOnProperty(
+        name = ["peanut-butter.jwt.access-token-type"],
+        havingValue = "OPAQUE"
+    )
+    fun inMemoryOpaqueTokenStore(): OpaqueTokenStore {
+        return InMemoryOpaqueTokenStore()
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @Conditional(OnJwtTenantsCondition::class)
+    fun jwtTenantRegistry(
         jwtProperties: JwtProperties,
         refreshTokenStore: RefreshTokenStore?
+    ): JwtTenantRegistry {
+        return JwtTenantRegistry(jwtProperties, refreshTokenStore)
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    fun defaultJwtService(
+        jwtProperties: JwtProperties,
+        refreshTokenStore: RefreshTokenStore?,
+        opaqueTokenStore: OpaqueTokenStore? = null,
+        jwtTenantRegistry: JwtTenantRegistry? = null
     ): JwtService {
-        return DefaultJwtService(jwtProperties, refreshTokenStore)
+        if (jwtProperties.tenants.isNotEmpty() && jwtTenantRegistry != null) {
+            return MultiTenantJwtService(jwtTenantRegistry, jwtProperties.tenantClaim, jwtProperties.defaultTenant)
+        }
+        return DefaultJwtService(jwtProperties, refreshTokenStore, opaqueTokenStore)
     }
 
     @Bean
@@ -50,17 +82,39 @@ class JwtAutoConfiguration {
         havingValue = "true",
         matchIfMissing = true
     )
-    fun refreshTokenCleanupTask(refreshTokenStore: RefreshTokenStore?): RefreshTokenCleanupTask {
-        return RefreshTokenCleanupTask(refreshTokenStore)
+    fun refreshTokenCleanupTask(
+        refreshTokenStore: RefreshTokenStore?,
+        opaqueTokenStore: OpaqueTokenStore? = null
+    ): RefreshTokenCleanupTask {
+        return RefreshTokenCleanupTask(refreshTokenStore, opaqueTokenStore)
     }
 }
 
 class RefreshTokenCleanupTask(
-    private val refreshTokenStore: RefreshTokenStore?
+    private val refreshTokenStore: RefreshTokenStore?,
+    private val opaqueTokenStore: OpaqueTokenStore? = null
 ) {
     
     @Scheduled(fixedRate = 3600000) // 1 hour
     fun cleanupExpiredTokens() {
         refreshTokenStore?.cleanupExpiredTokens()
+        opaqueTokenStore?.cleanupExpiredTokens()
     }
-}
\ No newline at end of file
+}
+
+/**
+ * Matches when at least one tenant is configured under `peanut-butter.jwt.tenants`.
+ */
+internal class OnJwtTenantsCondition : SpringBootCondition() {
+
+    override fun getMatchOutcome(context: ConditionContext, metadata: AnnotatedTypeMetadata): ConditionOutcome {
+        val tenants = Binder.get(context.environment)
+            .bind("peanut-butter.jwt.tenants", Bindable.mapOf(String::class.java, Any::class.java))
+            .orElse(emptyMap())
+        return if (tenants.isEmpty()) {
+            ConditionOutcome.noMatch("No JWT tenants configured")
+        } else {
+            ConditionOutcome.match("${tenants.size} JWT tenant(s) configured")
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.github.snowykte0426.peanut.butter.security.jwt
 
 import org.springframework.boot.context.properties.ConfigurationProperties
 import org.springframework.boot.context.properties.bind.DefaultValue
+import java.time.Duration
 
 @ConfigurationProperties(prefix = "peanut-butter.security.jwt.filter")
 data class JwtFilterProperties(
@@ -9,5 +10,13 @@ data class JwtFilterProperties(
     val enabled: Boolean = false,
     val excludedPaths: List<String> = emptyList(),
     @DefaultValue("true")
-    val autoDetectPermitAllPaths: Boolean = true
-)
\ No newline at end of file
+    val autoDetectPermitAllPaths: Boolean = true,
+    @DefaultValue("false")
+    val tokenRenewalEnabled: Boolean = false,
+    @DefaultValue("PT5M")
+    val tokenRenewalWindow: Duration = Duration.ofMinutes(5),
+    @DefaultValue("PT30S")
+    val tokenRenewalJitter: Duration = Duration.ofSeconds(30),
+    @DefaultValue("X-Renewed-Access-Token")
+    val tokenRenewalHeader: String = "X-Renewed-Access-Token"
+)
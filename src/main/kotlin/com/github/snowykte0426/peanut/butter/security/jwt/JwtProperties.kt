@@ -20,9 +20,56 @@ data class JwtProperties(
     @DefaultValue("IN_MEMORY")
     val refreshTokenStoreType: RefreshTokenStoreType = RefreshTokenStoreType.IN_MEMORY,
     @DefaultValue("REMOVE")
-    val usedRefreshTokenHandling: UsedRefreshTokenHandling = UsedRefreshTokenHandling.REMOVE
+    val usedRefreshTokenHandling: UsedRefreshTokenHandling = UsedRefreshTokenHandling.REMOVE,
+    @DefaultValue("JWT")
+    val accessTokenType: AccessTokenType = AccessTokenType.JWT,
+    @DefaultValue("10000")
+    val opaqueTokenCacheSize: Int = 10000,
+    @DefaultValue("PT1M")
+    val opaqueTokenCacheTtl: Duration = Duration.ofMinutes(1),
+    val issuer: String? = null,
+    val tenants: Map<String, JwtTenantProperties> = emptyMap(),
+    val defaultTenant: String? = null,
+    @DefaultValue("tenant")
+    val tenantClaim: String = "tenant",
+    val authorityEncoding: AuthorityEncodingProperties = AuthorityEncodingProperties()
 )
 
+/**
+ * Compact bitset encoding of the `roles`/`authorities` claims against a versioned registry.
+ *
+ * Each registry version lists full authority names (e.g. `ROLE_ADMIN`, `orders:read`); a name's
+ * position is its bit. Versions are append-only in practice: add a new version instead of
+ * reordering an existing one, and keep old versions until tokens issued with them expire.
+ */
+data class AuthorityEncodingProperties(
+    val enabled: Boolean = false,
+    val version: Int = 1,
+    val registries: Map<Int, List<String>> = emptyMap()
+)
+
+/**
+ * Per-tenant overrides of [JwtProperties]. Unset values fall back to the application-wide settings.
+ */
+data class JwtTenantProperties(
+    val secret: String,
+    val issuer: String? = null,
+    val accessTokenExpiry: Duration? = null,
+    val refreshTokenExpiry: Duration? = null
+) {
+    fun applyTo(base: JwtProperties, tenantId: String): JwtProperties {
+        return base.copy(
+            secret = secret,
+            issuer = issuer ?: tenantId,
+            accessTokenExpiry = accessTokenExpiry ?: base.accessTokenExpiry,
+            refreshTokenExpiry = refreshTokenExpiry ?: base.refreshTokenExpiry,
+            accessTokenType = AccessTokenType.JWT,
+            tenants = emptyMap(),
+            defaultTenant = null
+        )
+    }
+}
+
 enum class RefreshTokenMode {
     SIMPLE_VALIDATION,
     STORE_AND_VALIDATE
@@ -34,6 +81,11 @@ enum class RefreshTokenStoreType {
     RDB
 }
 
+enum class AccessTokenType {
+    JWT,
+    OPAQUE
+}
+
 enum class UsedRefreshTokenHandling {
     REMOVE,
     BLACKLIST
@@ -29,7 +29,8 @@ import org.springframework.security.web.util.matcher.RequestMatcher
 @EnableConfigurationProperties(JwtFilterProperties::class)
 open class JwtSecurityFilterChain(
     private val jwtService: JwtService,
-    private val jwtFilterProperties: JwtFilterProperties
+    private val jwtFilterProperties: JwtFilterProperties,
+    private val jwtProperties: JwtProperties? = null
 ) {
 
     /**
@@ -43,7 +44,25 @@ open class JwtSecurityFilterChain(
         return JwtAuthenticationFilter(
             jwtService = jwtService,
             additionalExcludedPaths = jwtFilterProperties.excludedPaths,
-            autoDetectPermitAllPaths = jwtFilterProperties.autoDetectPermitAllPaths
+            autoDetectPermitAllPaths = jwtFilterProperties.autoDetectPermitAllPaths,
+            accessTokenRenewer = createAccessTokenRenewer(),
+            authorityRegistry = jwtProperties?.let { AuthorityRegistry.from(it.authorityEncoding) }
+        )
+    }
+
+    /**
+     * Creates the sliding-session token renewer when token renewal is enabled.
+     *
+     * @return AccessTokenRenewer, or null when renewal is disabled
+     */
+    private fun createAccessTokenRenewer(): AccessTokenRenewer? {
+        if (!jwtFilterProperties.tokenRenewalEnabled) return null
+
+        return AccessTokenRenewer(
+            jwtService = jwtService,
+            renewalWindow = jwtFilterProperties.tokenRenewalWindow,
+            jitter = jwtFilterProperties.tokenRenewalJitter,
+            headerName = jwtFilterProperties.tokenRenewalHeader
         )
     }
 
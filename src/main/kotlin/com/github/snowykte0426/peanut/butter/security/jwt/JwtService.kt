@@ -11,9 +11,50 @@ interface JwtService {
     fun extractExpiration(token: String): Instant?
     fun isTokenExpired(token: String): Boolean
     fun refreshTokens(refreshToken: String): TokenPair?
+
+    /**
+     * Revokes an access token before it expires.
+     *
+     * Only opaque reference tokens can be revoked; self-contained JWTs stay valid until expiry.
+     *
+     * @return true if the token was known and has been revoked
+     */
+    fun revokeAccessToken(token: String): Boolean = false
+
+    /**
+     * Issues access tokens for several subjects at once.
+     *
+     * @return Tokens in the same order as [requests]
+     */
+    fun generateAccessTokens(requests: List<AccessTokenRequest>): List<String> {
+        return requests.map { generateAccessToken(it.subject, it.claims) }
+    }
+
+    /**
+     * Issues refresh tokens for several subjects at once.
+     *
+     * @return Tokens in the same order as [subjects]
+     */
+    fun generateRefreshTokens(subjects: List<String>): List<String> {
+        return subjects.map { generateRefreshToken(it) }
+    }
+
+    /**
+     * Validates several tokens at once.
+     *
+     * @return Validation results in the same order as [tokens]
+     */
+    fun validateTokens(tokens: List<String>): List<Boolean> {
+        return tokens.map { validateToken(it) }
+    }
 }
 
 data class TokenPair(
     val accessToken: String,
     val refreshToken: String?
+)
+
+data class AccessTokenRequest(
+    val subject: String,
+    val claims: Map<String, Any> = emptyMap()
 )
\ No newline at end of file
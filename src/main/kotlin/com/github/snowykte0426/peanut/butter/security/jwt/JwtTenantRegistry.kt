@@ -0,0 +1,63 @@
+package com.github.snowykte0426.peanut.butter.security.jwt
+
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Runtime registry of per-tenant JWT services.
+ *
+ * Each tenant's service, together with its signing key and parser, is built once when the
+ * tenant is registered. Lookups read an immutable map snapshot without locking; registration
+ * and removal publish a new snapshot with a copy-on-write compare-and-set, so tenants can be
+ * added or removed while requests are being authenticated.
+ *
+ * @param baseProperties Application-wide settings that tenant overrides are applied to
+ * @param refreshTokenStore Refresh token store shared by all tenants
+ */
+class JwtTenantRegistry(
+    private val baseProperties: JwtProperties,
+    private val refreshTokenStore: RefreshTokenStore? = null
+) {
+
+    private val tenants = AtomicReference<Map<String, JwtService>>(emptyMap())
+
+    init {
+        baseProperties.tenants.forEach { (tenantId, tenantProperties) ->
+            register(tenantId, tenantProperties)
+        }
+    }
+
+    /**
+     * Registers or replaces a tenant.
+     *
+     * @param tenantId Tenant identifier, carried in the `kid` header of the tenant's tokens
+     * @param tenantProperties Tenant key and expiry policy
+     */
+    fun register(tenantId: String, tenantProperties: JwtTenantProperties) {
+        require(tenantId.isNotBlank()) { "Tenant id must not be blank" }
+
+        val service = DefaultJwtService(
+            jwtProperties = tenantProperties.applyTo(baseProperties, tenantId),
+            refreshTokenStore = refreshTokenStore,
+            keyId = tenantId
+        )
+        tenants.updateAndGet { current -> HashMap(current).apply { put(tenantId, service) } }
+    }
+
+    /**
+     * Removes a tenant. Tokens already issued for it stop validating immediately.
+     *
+     * @return true if the tenant was registered
+     */
+    fun unregister(tenantId: String): Boolean {
+        var removed = false
+        tenants.updateAndGet { current ->
+            removed = tenantId in current
+            if (removed) HashMap(current).apply { remove(tenantId) } else current
+        }
+        return removed
+    }
+
+    fun find(tenantId: String): JwtService? = tenants.get()[tenantId]
+
+    fun tenantIds(): Set<String> = tenants.get().keys
+}
@@ -0,0 +1,147 @@
+package com.github.snowykte0426.peanut.butter.security.jwt
+
+import java.nio.charset.StandardCharsets
+import java.time.Instant
+import java.util.Base64
+
+/**
+ * [JwtService] that routes every operation to a tenant-specific service from a [JwtTenantRegistry].
+ *
+ * Tokens carry their tenant id in the `kid` header, so the tenant is resolved from the small
+ * JOSE header without decoding the payload twice; the tenant's own key then verifies the token,
+ * and its issuer is required, so a forged `kid` simply fails verification. The tenant is also
+ * written to the [tenantClaim] claim for downstream consumers.
+ *
+ * Issuance picks the tenant from the [tenantClaim] entry of the claims, falling back to
+ * [defaultTenantId]; [generateAccessTokenForTenant] and [generateRefreshTokenForTenant] name it
+ * explicitly. Batch operations split their input by tenant, hand each tenant's share to that
+ * tenant's own batch implementation and return the results in input order.
+ *
+ * @param tenantRegistry Registry holding per-tenant services
+ * @param tenantClaim Claim that names the tenant on issuance
+ * @param defaultTenantId Tenant used when none is specified
+ */
+class MultiTenantJwtService(
+    private val tenantRegistry: JwtTenantRegistry,
+    private val tenantClaim: String = "tenant",
+    private val defaultTenantId: String? = null
+) : JwtService {
+
+    private companion object {
+        private val KEY_ID_PATTERN = Regex("\"kid\"\\s*:\\s*\"([^\"\\\\]+)\"")
+    }
+
+    override fun generateAccessToken(subject: String, claims: Map<String, Any>): String {
+        val tenantId = accessTenantId(claims)
+        return generateAccessTokenForTenant(tenantId, subject, claims)
+    }
+
+    fun generateAccessTokenForTenant(tenantId: String, subject: String, claims: Map<String, Any> = emptyMap()): String {
+        return requireTenant(tenantId).generateAccessToken(subject, claims + (tenantClaim to tenantId))
+    }
+
+    override fun generateRefreshToken(subject: String): String {
+        val tenantId = defaultTenantId ?: throw IllegalStateException("No tenant specified for refresh token")
+        return generateRefreshTokenForTenant(tenantId, subject)
+    }
+
+    fun generateRefreshTokenForTenant(tenantId: String, subject: String): String {
+        return requireTenant(tenantId).generateRefreshToken(subject)
+    }
+
+    override fun generateAccessTokens(requests: List<AccessTokenRequest>): List<String> {
+        val tokens = arrayOfNulls<String>(requests.size)
+        requests.indices.groupBy { index -> accessTenantId(requests[index].claims) }
+            .forEach { (tenantId, indices) ->
+                val tenantRequests = indices.map { index ->
+                    val request = requests[index]
+                    request.copy(claims = request.claims + (tenantClaim to tenantId))
+                }
+                requireTenant(tenantId).generateAccessTokens(tenantRequests).forEachIndexed { position, token ->
+                    tokens[indices[position]] = token
+                }
+            }
+        return tokens.requireNoNulls().asList()
+    }
+
+    override fun generateRefreshTokens(subjects: List<String>): List<String> {
+        val tenantId = defaultTenantId ?: throw IllegalStateException("No tenant specified for refresh token")
+        return requireTenant(tenantId).generateRefreshTokens(subjects)
+    }
+
+    override fun validateTokens(tokens: List<String>): List<Boolean> {
+        val results = BooleanArray(tokens.size)
+        tokens.indices.groupBy { index -> routeTenantId(tokens[index]) }
+            .forEach { (tenantId, indices) ->
+                val service = tenantId?.let(tenantRegistry::find) ?: return@forEach
+                service.validateTokens(indices.map(tokens::get)).forEachIndexed { position, valid ->
+                    results[indices[position]] = valid
+                }
+            }
+        return results.asList()
+    }
+
+    override fun validateToken(token: String): Boolean {
+        return route(token)?.validateToken(token) ?: false
+    }
+
+    override fun extractSubject(token: String): String? {
+        return route(token)?.extractSubject(token)
+    }
+
+    override fun extractClaims(token: String): Map<String, Any>? {
+        return route(token)?.extractClaims(token)
+    }
+
+    override fun extractExpiration(token: String): Instant? {
+        return route(token)?.extractExpiration(token)
+    }
+
+    override fun isTokenExpired(token: String): Boolean {
+        return route(token)?.isTokenExpired(token) ?: true
+    }
+
+    override fun refreshTokens(refreshToken: String): TokenPair? {
+        return route(refreshToken)?.refreshTokens(refreshToken)
+    }
+
+    override fun revokeAccessToken(token: String): Boolean {
+        return route(token)?.revokeAccessToken(token) ?: false
+    }
+
+    /**
+     * Returns the service of a registered tenant.
+     */
+    fun forTenant(tenantId: String): JwtService? = tenantRegistry.find(tenantId)
+
+    /**
+     * Resolves the tenant a token was issued for, without verifying it.
+     */
+    fun resolveTenantId(token: String): String? {
+        val headerEnd = token.indexOf('.')
+        if (headerEnd <= 0) return null
+
+        return try {
+            val header = String(Base64.getUrlDecoder().decode(token.substring(0, headerEnd)), StandardCharsets.UTF_8)
+            KEY_ID_PATTERN.find(header)?.groupValues?.get(1)
+        } catch (e: IllegalArgumentException) {
+            null
+        }
+    }
+
+    private fun route(token: String): JwtService? {
+        val tenantId = routeTenantId(token) ?: return null
+        return tenantRegistry.find(tenantId)
+    }
+
+    private fun routeTenantId(token: String): String? = resolveTenantId(token) ?: defaultTenantId
+
+    private fun accessTenantId(claims: Map<String, Any>): String {
+        return claims[tenantClaim] as? String ?: defaultTenantId
+            ?: throw IllegalStateException("No tenant specified for access token")
+    }
+
+    private fun requireTenant(tenantId: String): JwtService {
+        return tenantRegistry.find(tenantId) ?: throw IllegalArgumentException("Unknown tenant: $tenantId")
+    }
+}
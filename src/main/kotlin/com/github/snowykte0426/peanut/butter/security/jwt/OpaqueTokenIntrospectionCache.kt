@@ -0,0 +1,76 @@
+package com.github.snowykte0426.peanut.butter.security.jwt
+
+import java.time.Duration
+import java.time.Instant
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Bounded local cache of resolved opaque token records, keyed by token reference.
+ *
+ * Reads are lock-free so the authentication hot path never waits on the backing
+ * [OpaqueTokenStore]. Entries live for at most [ttl] (or until the token expires,
+ * whichever comes first), which bounds how long a revocation made on another node
+ * can go unnoticed. Revocations made through this node are applied immediately.
+ *
+ * @param maxSize Maximum number of cached references
+ * @param ttl Maximum time a resolved record is trusted without consulting the store
+ */
+class OpaqueTokenIntrospectionCache(
+    private val maxSize: Int,
+    private val ttl: Duration
+) {
+
+    private data class Entry(
+        val record: OpaqueTokenRecord,
+        val cachedUntil: Instant
+    )
+
+    private val entries = ConcurrentHashMap<String, Entry>()
+
+    /**
+     * Returns the cached record for [reference], or null when it is absent, stale or expired.
+     */
+    fun get(reference: String): OpaqueTokenRecord? {
+        val entry = entries[reference] ?: return null
+        if (!entry.cachedUntil.isAfter(Instant.now())) {
+            entries.remove(reference, entry)
+            return null
+        }
+        return entry.record
+    }
+
+    fun put(record: OpaqueTokenRecord) {
+        if (maxSize <= 0) return
+
+        val cachedUntil = minOf(record.expiration, Instant.now().plus(ttl))
+        if (entries.size >= maxSize) {
+            evict()
+        }
+        entries[record.reference] = Entry(record, cachedUntil)
+    }
+
+    fun invalidate(reference: String) {
+        entries.remove(reference)
+    }
+
+    fun size(): Int = entries.size
+
+    /**
+     * Drops stale entries first and, if the cache is still full, an arbitrary tenth of the
+     * remaining ones. Approximate eviction keeps writers cheap and readers lock-free.
+     */
+    private fun evict() {
+        val now = Instant.now()
+        entries.entries.removeIf { !it.value.cachedUntil.isAfter(now) }
+
+        if (entries.size >= maxSize) {
+            val iterator = entries.keys.iterator()
+            var toRemove = maxOf(1, maxSize / 10)
+            while (toRemove > 0 && iterator.hasNext()) {
+                iterator.next()
+                iterator.remove()
+                toRemove--
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.snowykte0426.peanut.butter.security.jwt
+
+import java.time.Instant
+
+interface OpaqueTokenStore {
+    fun storeToken(record: OpaqueTokenRecord)
+    fun findToken(reference: String): OpaqueTokenRecord?
+    fun revokeToken(reference: String)
+    fun cleanupExpiredTokens()
+}
+
+data class OpaqueTokenRecord(
+    val reference: String,
+    val subject: String,
+    val claims: Map<String, Any>,
+    val issuedAt: Instant,
+    val expiration: Instant
+)
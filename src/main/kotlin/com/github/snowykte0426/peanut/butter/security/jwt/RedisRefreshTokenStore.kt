@@ -3,7 +3,9 @@ package com.github.snowykte0426.peanut.butter.security.jwt
 import com.fasterxml.jackson.databind.ObjectMapper
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
+import org.springframework.data.redis.core.RedisOperations
 import org.springframework.data.redis.core.RedisTemplate
+import org.springframework.data.redis.core.SessionCallback
 import org.springframework.stereotype.Component
 import java.time.Duration
 import java.time.Instant
@@ -64,4 +66,38 @@ class RedisRefreshTokenStore(
     override fun cleanupExpiredTokens() {
         // Redis handles expiration automatically
     }
+
+    override fun storeRefreshTokens(records: List<RefreshTokenRecord>) {
+        if (records.isEmpty()) return
+
+        val now = Instant.now()
+        redisTemplate.executePipelined(object : SessionCallback<Any?> {
+            override fun <K : Any?, V : Any?> execute(operations: RedisOperations<K, V>): Any? {
+                @Suppress("UNCHECKED_CAST")
+                val stringOperations = operations as RedisOperations<String, String>
+                records.forEach { record ->
+                    val ttl = Duration.between(now, record.expiration).seconds
+                    stringOperations.opsForValue().set(
+                        TOKEN_PREFIX + record.tokenId,
+                        objectMapper.writeValueAsString(record),
+                        ttl,
+                        TimeUnit.SECONDS
+                    )
+                }
+                return null
+            }
+        })
+    }
+
+    override fun findValidRefreshTokenIds(tokenIds: Collection<String>): Set<String> {
+        if (tokenIds.isEmpty()) return emptySet()
+
+        val ids = tokenIds.distinct()
+        val keys = ids.map { TOKEN_PREFIX + it } + ids.map { BLACKLIST_PREFIX + it }
+        val values = redisTemplate.opsForValue().multiGet(keys) ?: return emptySet()
+
+        return ids.filterIndexedTo(HashSet()) { index, _ ->
+            values[index] != null && values[ids.size + index] == null
+        }
+    }
 }
\ No newline at end of file
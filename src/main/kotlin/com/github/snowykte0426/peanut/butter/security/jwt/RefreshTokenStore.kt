@@ -8,6 +8,21 @@ interface RefreshTokenStore {
     fun removeRefreshToken(tokenId: String)
     fun blacklistRefreshToken(tokenId: String)
     fun cleanupExpiredTokens()
+
+    /**
+     * Stores several refresh tokens at once. Backends override this to use a single round trip.
+     */
+    fun storeRefreshTokens(records: List<RefreshTokenRecord>) {
+        records.forEach { storeRefreshToken(it.tokenId, it.subject, it.expiration) }
+    }
+
+    /**
+     * Returns the subset of [tokenIds] that are stored, unexpired and not blacklisted.
+     * Backends override this to use a single round trip.
+     */
+    fun findValidRefreshTokenIds(tokenIds: Collection<String>): Set<String> {
+        return tokenIds.filterTo(HashSet()) { isRefreshTokenValid(it) }
+    }
 }
 
 data class RefreshTokenRecord(
@@ -0,0 +1,132 @@
+package com.github.snowykte0426.peanut.butter.logging
+
+import ch.qos.logback.classic.Level
+import ch.qos.logback.classic.spi.ILoggingEvent
+import ch.qos.logback.core.read.ListAppender
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import kotlinx.coroutines.runBlocking
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.doThrow
+import org.mockito.kotlin.mock
+import org.slf4j.LoggerFactory
+import org.slf4j.MDC
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import org.slf4j.event.Level as Slf4jLevel
+
+class AsyncLogDispatcherTest : FunSpec({
+
+    lateinit var appender: ListAppender<ILoggingEvent>
+    lateinit var logger: ch.qos.logback.classic.Logger
+
+    beforeEach {
+        logger = LoggerFactory.getLogger("async-log-dispatcher-test") as ch.qos.logback.classic.Logger
+        logger.level = Level.TRACE
+        appender = ListAppender<ILoggingEvent>().apply { start() }
+        logger.addAppender(appender)
+    }
+
+    afterEach {
+        logger.detachAppender(appender)
+    }
+
+    test("should write statements in order with the MDC captured at enqueue time") {
+        AsyncLogDispatcher().use { dispatcher ->
+            MDC.put("requestId", "r-1")
+            dispatcher.enqueue(logger, Slf4jLevel.INFO, "first {}", arrayOf("a"))
+            MDC.remove("requestId")
+            dispatcher.enqueue(logger, Slf4jLevel.WARN, "second", correlationId = "c-1")
+            dispatcher.enqueue(logger, Slf4jLevel.ERROR, "third", throwable = IllegalStateException("boom"))
+
+            dispatcher.flush(5000L) shouldBe true
+
+            appender.list.map { it.formattedMessage } shouldBe listOf("first a", "second", "third")
+            appender.list[0].mdcPropertyMap["requestId"] shouldBe "r-1"
+            appender.list[1].mdcPropertyMap["requestId"] shouldBe null
+            appender.list[1].mdcPropertyMap[AsyncLogDispatcher.CORRELATION_ID_KEY] shouldBe "c-1"
+            appender.list[2].throwableProxy shouldNotBe null
+        }
+    }
+
+    test("should keep the exception of a message containing placeholders") {
+        AsyncLogDispatcher().use { dispatcher ->
+            val failure = IllegalStateException("boom")
+            dispatcher.enqueue(logger, Slf4jLevel.ERROR, "Exception in operation 'parse': expected {}", throwable = failure)
+            dispatcher.enqueue(logger, Slf4jLevel.ERROR, "Failed {} with {}", arrayOf("parse"), throwable = failure)
+
+            dispatcher.flush(5000L) shouldBe true
+
+            appender.list.map { it.formattedMessage } shouldBe listOf(
+                "Exception in operation 'parse': expected {}",
+                "Failed parse with {}"
+            )
+            appender.list.forEach { it.throwableProxy.message shouldBe "boom" }
+        }
+    }
+
+    test("should count statements the logger failed to write") {
+        val failingLogger = mock<org.slf4j.Logger> {
+            on { isEnabledForLevel(any()) } doReturn true
+            on { info("lost") } doThrow IllegalStateException("appender down")
+        }
+
+        AsyncLogDispatcher().use { dispatcher ->
+            repeat(3) { dispatcher.enqueue(failingLogger, Slf4jLevel.INFO, "lost") }
+
+            dispatcher.flush(5000L) shouldBe true
+            dispatcher.failedCount() shouldBe 3L
+            dispatcher.writtenCount() shouldBe 3L
+        }
+    }
+
+    test("should preserve the order of every producer under contention") {
+        val producers = 8
+        val statements = 2000
+        AsyncLogDispatcher().use { dispatcher ->
+            val executor = Executors.newFixedThreadPool(producers)
+            repeat(producers) { producer ->
+                executor.execute {
+                    repeat(statements) { sequence ->
+                        dispatcher.enqueue(logger, Slf4jLevel.DEBUG, "{} {}", arrayOf(producer, sequence))
+                    }
+                }
+            }
+            executor.shutdown()
+            executor.awaitTermination(10, TimeUnit.SECONDS)
+            dispatcher.flush(10000L) shouldBe true
+
+            appender.list.size shouldBe producers * statements
+            val sequences = appender.list
+                .map { it.argumentArray }
+                .groupBy({ it[0] as Int }, { it[1] as Int })
+            sequences.values.forEach { it shouldBe (0 until statements).toList() }
+        }
+    }
+
+    test("should skip disabled levels and drop statements once closed") {
+        val dispatcher = AsyncLogDispatcher()
+        logger.level = Level.INFO
+        dispatcher.enqueue(logger, Slf4jLevel.DEBUG, "disabled") shouldBe true
+        dispatcher.close()
+
+        dispatcher.enqueue(logger, Slf4jLevel.INFO, "late") shouldBe false
+        dispatcher.droppedCount() shouldBe 1L
+        appender.list.size shouldBe 0
+    }
+
+    test("coroutine helpers should carry the correlation id of withLoggingContext") {
+        val owner = object {}
+        runBlocking {
+            owner.withLoggingContext("corr-42") {
+                AsyncLogDispatcher.default.enqueue(logger, Slf4jLevel.INFO, "direct")
+                logAsync(logger, Slf4jLevel.INFO, "from coroutine")
+            }
+        }
+        AsyncLogDispatcher.default.flush(5000L) shouldBe true
+
+        appender.list.map { it.mdcPropertyMap[AsyncLogDispatcher.CORRELATION_ID_KEY] } shouldBe listOf("corr-42", "corr-42")
+    }
+})
@@ -0,0 +1,141 @@
+package com.github.snowykte0426.peanut.butter.logging
+
+import ch.qos.logback.classic.Level
+import ch.qos.logback.classic.spi.ILoggingEvent
+import ch.qos.logback.core.read.ListAppender
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.collections.shouldHaveSize
+import io.kotest.matchers.longs.shouldBeInRange
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import org.slf4j.LoggerFactory
+import java.util.concurrent.TimeUnit
+import kotlin.concurrent.thread
+
+class LatencyRecordersTest : FunSpec({
+
+    beforeEach {
+        LatencyRecorders.clear()
+        LatencyRecorders.enabled = true
+    }
+
+    afterEach {
+        LatencyRecorders.enabled = false
+        LatencyRecorders.clear()
+    }
+
+    test("striped recorder should keep every timing recorded from concurrent threads") {
+        val recorder = StripedLatencyRecorder(stripes = 4)
+        val threads = (1..8).map {
+            thread {
+                repeat(10000) { recorder.record(TimeUnit.MICROSECONDS.toNanos(it % 100L + 1)) }
+            }
+        }
+        threads.forEach { it.join() }
+
+        val snapshot = recorder.snapshot()
+        snapshot.count shouldBe 80000L
+        snapshot.maxNanos shouldBe TimeUnit.MICROSECONDS.toNanos(100L)
+        TimeUnit.NANOSECONDS.toMicros(snapshot.valueAtPercentile(50.0)) shouldBeInRange 48L..52L
+    }
+
+    test("interval snapshots should only cover timings since the previous one") {
+        val recorder = StripedLatencyRecorder()
+        repeat(10) { recorder.record(1000L) }
+        recorder.intervalSnapshot().count shouldBe 10L
+
+        repeat(5) { recorder.record(2000L) }
+        val interval = recorder.intervalSnapshot()
+        interval.count shouldBe 5L
+        interval.maxNanos shouldBe 2000L
+
+        recorder.intervalSnapshot().count shouldBe 0L
+        recorder.snapshot().count shouldBe 15L
+    }
+
+    test("logExecutionTime should record sub-millisecond timings instead of logging them") {
+        val logger = LoggerFactory.getLogger("LatencyRecordersTest") as ch.qos.logback.classic.Logger
+        val appender = ListAppender<ILoggingEvent>().apply { start() }
+        logger.addAppender(appender)
+        logger.level = Level.DEBUG
+
+        try {
+            repeat(100) { logExecutionTime(logger, "parse") { it * 2 } }
+
+            appender.list.shouldBeEmpty()
+            val snapshot = LatencyRecorders.snapshot("parse").shouldNotBeNull()
+            snapshot.count shouldBe 100L
+            LatencyRecorders.operations() shouldBe setOf("parse")
+        } finally {
+            logger.detachAppender(appender)
+        }
+    }
+
+    test("should record nothing while disabled") {
+        LatencyRecorders.enabled = false
+        logExecutionTime("parse") { }
+
+        LatencyRecorders.snapshot("parse") shouldBe null
+    }
+
+    test("reporter should own the recording mode") {
+        LatencyRecorders.enabled = false
+
+        LatencyRecorders.startReporting(TimeUnit.HOURS.toMillis(1)).use {
+            LatencyRecorders.enabled shouldBe true
+        }
+
+        LatencyRecorders.enabled shouldBe false
+    }
+
+    test("drained histograms should keep a maximum consistent with their buckets") {
+        val histogram = LatencyHistogram()
+        listOf(100L, 5000L, 70000L).forEach(histogram::record)
+
+        val target = LongArray(LatencyHistogram.BUCKET_COUNT)
+        histogram.drainTo(target) shouldBe 70000L
+        histogram.drainTo(LongArray(LatencyHistogram.BUCKET_COUNT)) shouldBe 0L
+        LatencySnapshot(target, 70000L).valueAtPercentile(50.0) shouldBeInRange 4900L..5100L
+    }
+
+    test("reporter should log percentiles of operations timed in the interval") {
+        val logger = LoggerFactory.getLogger("LatencyReporterTest") as ch.qos.logback.classic.Logger
+        val appender = ListAppender<ILoggingEvent>().apply { start() }
+        logger.addAppender(appender)
+        logger.level = Level.INFO
+
+        try {
+            LatencyReporter(TimeUnit.HOURS.toMillis(1), logger).use { reporter ->
+                repeat(100) { LatencyRecorders.record("checkout", TimeUnit.MILLISECONDS.toNanos(it + 1L)) }
+                LatencyRecorders.record("idle", 1L)
+                LatencyRecorders.intervalSnapshots()
+                repeat(100) { LatencyRecorders.record("checkout", TimeUnit.MILLISECONDS.toNanos(it + 1L)) }
+
+                reporter.report()
+
+                appender.list shouldHaveSize 1
+                val line = appender.list[0].formattedMessage
+                line shouldContain "checkout"
+                line shouldContain "count=100"
+                line shouldContain "max=100.000ms"
+            }
+        } finally {
+            logger.detachAppender(appender)
+        }
+    }
+
+    test("recording should stay enabled until the last reporter is closed") {
+        val logger = LoggerFactory.getLogger("LatencyReporterTest")
+        val first = LatencyReporter(TimeUnit.HOURS.toMillis(1), logger)
+        val second = LatencyReporter(TimeUnit.HOURS.toMillis(1), logger)
+
+        first.close()
+        first.close()
+        LatencyRecorders.enabled shouldBe true
+
+        second.close()
+        LatencyRecorders.enabled shouldBe false
+    }
+})
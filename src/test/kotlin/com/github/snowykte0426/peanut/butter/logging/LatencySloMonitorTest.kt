@@ -0,0 +1,99 @@
+package com.github.snowykte0426.peanut.butter.logging
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.longs.shouldBeInRange
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.TimeUnit
+
+class LatencySloMonitorTest : FunSpec({
+
+    val interval = TimeUnit.HOURS.toMillis(1)
+
+    fun monitor(windowSlots: Int, events: MutableList<LatencySloEvent>) = LatencySloMonitor(
+        slos = listOf(LatencySlo("checkout", percentile = 99.0, thresholdMillis = 200L, windowMillis = interval * windowSlots)),
+        listener = { events.add(it) },
+        evaluationIntervalMillis = interval,
+        minSamples = 10L
+    )
+
+    fun LatencySloMonitor.recordMillis(millis: Long, times: Int = 50) {
+        repeat(times) { record("checkout", TimeUnit.MILLISECONDS.toNanos(millis)) }
+    }
+
+    test("LatencyHistogram should report percentiles within its precision") {
+        val histogram = LatencyHistogram()
+        for (millis in 1L..1000L) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis))
+        }
+
+        val snapshot = histogram.snapshot()
+        snapshot.count shouldBe 1000L
+        TimeUnit.NANOSECONDS.toMillis(snapshot.valueAtPercentile(50.0)) shouldBeInRange 490L..510L
+        TimeUnit.NANOSECONDS.toMillis(snapshot.valueAtPercentile(99.0)) shouldBeInRange 970L..1000L
+        snapshot.maxNanos shouldBe TimeUnit.MILLISECONDS.toNanos(1000L)
+    }
+
+    test("should report a breach only after consecutive failing evaluations and then its recovery") {
+        val events = mutableListOf<LatencySloEvent>()
+        monitor(windowSlots = 3, events = events).use { monitor ->
+            monitor.recordMillis(300L)
+            monitor.evaluate()
+            events.shouldBeEmpty()
+
+            monitor.recordMillis(300L)
+            monitor.evaluate()
+            events.map { it.breached } shouldContainExactly listOf(true)
+            monitor.isBreached("checkout") shouldBe true
+
+            repeat(10) {
+                monitor.recordMillis(20L)
+                monitor.evaluate()
+            }
+            events.map { it.breached } shouldContainExactly listOf(true, false)
+            monitor.isBreached("checkout") shouldBe false
+        }
+    }
+
+    test("should not alert for an operation flapping around its threshold") {
+        val events = mutableListOf<LatencySloEvent>()
+        monitor(windowSlots = 1, events = events).use { monitor ->
+            repeat(10) { round ->
+                monitor.recordMillis(if (round % 2 == 0) 300L else 20L)
+                monitor.evaluate()
+            }
+
+            events.shouldBeEmpty()
+        }
+    }
+
+    test("should receive timings from logExecutionTime until closed") {
+        val monitor = monitor(windowSlots = 1, events = mutableListOf())
+        monitor.use {
+            logExecutionTime("checkout") { Thread.sleep(1) }
+            logExecutionTime("unrelated") { }
+
+            monitor.snapshot("checkout")!!.count shouldBe 1L
+            monitor.snapshot("unrelated") shouldBe null
+        }
+
+        logExecutionTime("checkout") { }
+        monitor.snapshot("checkout")!!.count shouldBe 1L
+    }
+
+    test("should report timings to every open monitor") {
+        val first = monitor(windowSlots = 1, events = mutableListOf())
+        val second = monitor(windowSlots = 1, events = mutableListOf())
+
+        second.use {
+            first.use {
+                logExecutionTime("checkout") { }
+            }
+            logExecutionTime("checkout") { }
+        }
+
+        first.snapshot("checkout")!!.count shouldBe 1L
+        second.snapshot("checkout")!!.count shouldBe 2L
+    }
+})
@@ -13,6 +13,14 @@ class LoggerExtensionsTest : FunSpec({
         logger.name shouldBe "com.github.snowykte0426.peanut.butter.logging.TestClass"
     }
     
+    test("logger() should resolve the logger once per class") {
+        val first = TestClass().logger()
+        val second = TestClass().logger()
+
+        (first === second) shouldBe true
+        (TestClass().logger(TestClass::class.java) === first) shouldBe true
+    }
+    
     test("logger(name) should return logger with custom name") {
         val testInstance = TestClass()
         val customName = "my.custom.logger"
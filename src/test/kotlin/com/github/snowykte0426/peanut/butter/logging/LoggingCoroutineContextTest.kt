@@ -0,0 +1,126 @@
+package com.github.snowykte0426.peanut.butter.logging
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.longs.shouldBeLessThan
+import io.kotest.matchers.shouldBe
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
+import kotlinx.coroutines.yield
+import org.slf4j.MDC
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class LoggingCoroutineContextTest : FunSpec({
+
+    val owner = object {}
+
+    test("should keep the correlation id across thread hops and restore the caller's MDC") {
+        MDC.put("tenant", "acme")
+        try {
+            runBlocking {
+                owner.withLoggingContext("outer", mdc = mapOf("request" to "r-1")) {
+                    withContext(Dispatchers.IO) {
+                        MDC.get(LoggingCoroutineContext.CORRELATION_ID_KEY) shouldBe "outer"
+                        MDC.get("tenant") shouldBe "acme"
+                        MDC.get("request") shouldBe "r-1"
+                    }
+
+                    owner.withLoggingContext("inner") {
+                        withContext(Dispatchers.Default) {
+                            MDC.get(LoggingCoroutineContext.CORRELATION_ID_KEY) shouldBe "inner"
+                            MDC.get("request") shouldBe "r-1"
+                        }
+                    }
+                    MDC.get(LoggingCoroutineContext.CORRELATION_ID_KEY) shouldBe "outer"
+                }
+            }
+
+            MDC.get(LoggingCoroutineContext.CORRELATION_ID_KEY) shouldBe null
+            MDC.get("request") shouldBe null
+            MDC.get("tenant") shouldBe "acme"
+        } finally {
+            MDC.clear()
+        }
+    }
+
+    test("derived contexts should leave their parent untouched") {
+        val parent = LoggingCoroutineContext("parent", mapOf("a" to "1"))
+        val child = parent.derive("child", mapOf("b" to "2"))
+
+        parent.mdcSnapshot() shouldBe mapOf("a" to "1", LoggingCoroutineContext.CORRELATION_ID_KEY to "parent")
+        child.mdcSnapshot() shouldBe mapOf("a" to "1", LoggingCoroutineContext.CORRELATION_ID_KEY to "child", "b" to "2")
+    }
+
+    test("should isolate thousands of concurrent coroutines sharing a small thread pool") {
+        val coroutines = 5000
+        val resumes = 10
+        val mismatches = AtomicInteger()
+        val leaked = ConcurrentHashMap.newKeySet<String>()
+
+        val startedAt = System.nanoTime()
+        runBlocking(Dispatchers.Default) {
+            val tracked = (0 until coroutines).map { index ->
+                async {
+                    owner.withLoggingContext("id-$index") {
+                        repeat(resumes) { round ->
+                            if (round % 2 == 0) yield() else delay(1)
+                            if (MDC.get(LoggingCoroutineContext.CORRELATION_ID_KEY) != "id-$index") {
+                                mismatches.incrementAndGet()
+                            }
+                        }
+                    }
+                }
+            }
+            val untracked = (0 until coroutines).map {
+                async {
+                    repeat(resumes) {
+                        yield()
+                        MDC.get(LoggingCoroutineContext.CORRELATION_ID_KEY)?.let(leaked::add)
+                    }
+                }
+            }
+            (tracked + untracked).awaitAll()
+        }
+        val elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)
+
+        mismatches.get() shouldBe 0
+        leaked.size shouldBe 0
+        elapsedMillis shouldBeLessThan 30000L
+    }
+
+    test("should add little overhead per resume") {
+        val coroutines = 2000
+        val resumes = 50
+
+        suspend fun run(withContext: Boolean): Long {
+            val startedAt = System.nanoTime()
+            coroutineScope {
+                (0 until coroutines).map { index ->
+                    async(Dispatchers.Default) {
+                        if (withContext) {
+                            owner.withLoggingContext("id-$index") { repeat(resumes) { yield() } }
+                        } else {
+                            repeat(resumes) { yield() }
+                        }
+                    }
+                }.awaitAll()
+            }
+            return System.nanoTime() - startedAt
+        }
+
+        runBlocking {
+            repeat(3) { run(true); run(false) }
+            val plain = run(false)
+            val tracked = run(true)
+
+            val overheadPerResumeNanos = (tracked - plain) / (coroutines.toLong() * resumes)
+            overheadPerResumeNanos shouldBeLessThan 50_000L
+        }
+    }
+})
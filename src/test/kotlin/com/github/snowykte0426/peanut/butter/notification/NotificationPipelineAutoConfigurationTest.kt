@@ -0,0 +1,52 @@
+package com.github.snowykte0426.peanut.butter.notification
+
+import com.github.snowykte0426.peanut.butter.notification.discord.UncaughtExceptionEvent
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.collections.shouldHaveSingleElement
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import org.springframework.context.annotation.AnnotationConfigApplicationContext
+import org.springframework.core.env.MapPropertySource
+import java.nio.file.Files
+import java.nio.file.Path
+
+class NotificationPipelineAutoConfigurationTest : DescribeSpec({
+
+    lateinit var directory: Path
+
+    beforeEach {
+        directory = Files.createTempDirectory("notification-pipeline")
+    }
+
+    afterEach {
+        directory.toFile().deleteRecursively()
+    }
+
+    describe("NotificationPipelineAutoConfiguration") {
+
+        it("should deliver an uncaught exception to a non-Discord sink") {
+            val file = directory.resolve("notifications.jsonl")
+            val context = AnnotationConfigApplicationContext()
+            context.environment.propertySources.addFirst(
+                MapPropertySource(
+                    "test",
+                    mapOf(
+                        "peanut-butter.notification.pipeline.enabled" to "true",
+                        "peanut-butter.notification.pipeline.file.enabled" to "true",
+                        "peanut-butter.notification.pipeline.file.path" to file.toString()
+                    )
+                )
+            )
+            context.register(NotificationPipelineAutoConfiguration::class.java)
+            context.refresh()
+
+            context.getBeansOfType(NotificationEventBridge::class.java).size shouldBe 1
+            context.publishEvent(UncaughtExceptionEvent(IllegalStateException("disk full"), "worker"))
+            context.close()
+
+            val lines = Files.readAllLines(file)
+            lines.filter { "\"type\":\"exception\"" in it } shouldHaveSingleElement { "disk full" in it }
+            lines.last() shouldContain "\"type\":\"shutdown\""
+        }
+    }
+})
@@ -0,0 +1,145 @@
+package com.github.snowykte0426.peanut.butter.notification
+
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class NotificationPipelineTest : DescribeSpec({
+
+    class RecordingSink(
+        override val name: String,
+        override val backpressure: NotificationProperties.BackpressureProperties =
+            NotificationProperties.BackpressureProperties(),
+        private val gate: CountDownLatch? = null
+    ) : NotificationSink {
+        val events = CopyOnWriteArrayList<NotificationEvent>()
+
+        override fun deliver(event: NotificationEvent): Boolean {
+            gate?.await(5, TimeUnit.SECONDS)
+            events.add(event)
+            return true
+        }
+    }
+
+    fun event(title: String) = NotificationEvent(type = "test", title = title)
+
+    describe("NotificationPipeline") {
+
+        it("should deliver every event to every sink after enrichment") {
+            val first = RecordingSink("first")
+            val second = RecordingSink("second")
+            val pipeline = NotificationPipeline(
+                sinks = listOf(first, second),
+                enrichers = listOf(NotificationEnricher { it.withAttributes(mapOf("host" to "test-host")) })
+            )
+
+            repeat(3) { pipeline.publish(event("event $it")) }
+            pipeline.shutdown(5000L) shouldBe 0
+
+            first.events.map { it.title } shouldContainExactly listOf("event 0", "event 1", "event 2")
+            second.events.map { it.title } shouldContainExactly listOf("event 0", "event 1", "event 2")
+            first.events.all { it.attributes["host"] == "test-host" } shouldBe true
+        }
+
+        it("should shed load only on the sink whose queue is full") {
+            val gate = CountDownLatch(1)
+            val slow = RecordingSink(
+                "slow",
+                NotificationProperties.BackpressureProperties(queueCapacity = 5, overflowPolicy = OverflowPolicy.DROP_NEWEST),
+                gate
+            )
+            val fast = RecordingSink("fast")
+            val pipeline = NotificationPipeline(sinks = listOf(slow, fast))
+
+            repeat(50) { pipeline.publish(event("event $it")) }
+            val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+            while (fast.events.size < 50 && System.nanoTime() < deadline) {
+                Thread.sleep(10)
+            }
+            gate.countDown()
+            pipeline.shutdown(5000L)
+
+            fast.events.size shouldBe 50
+            pipeline.stats().getValue("fast").dropped shouldBe 0L
+            pipeline.stats().getValue("slow").dropped shouldBeGreaterThan 0L
+        }
+
+        it("should stop accepting events once shut down") {
+            val sink = RecordingSink("sink")
+            val pipeline = NotificationPipeline(sinks = listOf(sink))
+            pipeline.shutdown(1000L)
+
+            pipeline.publish(event("late")) shouldBe false
+            sink.events.size shouldBe 0
+        }
+    }
+
+    describe("NotificationPipeline shutdown") {
+
+        it("should close the sinks and keep the interrupt flag when interrupted") {
+            val gate = CountDownLatch(1)
+            var closed = false
+            val sink = object : NotificationSink {
+                override val name = "blocked"
+                override val backpressure = NotificationProperties.BackpressureProperties()
+                override fun deliver(event: NotificationEvent): Boolean {
+                    gate.await(5, TimeUnit.SECONDS)
+                    return true
+                }
+                override fun close() {
+                    closed = true
+                }
+            }
+            val pipeline = NotificationPipeline(sinks = listOf(sink))
+            pipeline.publish(event("stuck"))
+
+            Thread.currentThread().interrupt()
+            try {
+                pipeline.shutdown(5000L)
+                Thread.interrupted() shouldBe true
+            } finally {
+                gate.countDown()
+            }
+            closed shouldBe true
+        }
+    }
+
+    describe("DeduplicatingNotificationAggregator") {
+
+        it("should suppress repeats within the window and report them on close") {
+            val sink = RecordingSink("sink")
+            val pipeline = NotificationPipeline(
+                sinks = listOf(sink),
+                aggregator = DeduplicatingNotificationAggregator(60000L)
+            )
+
+            repeat(4) { pipeline.publish(event("same")) }
+            pipeline.publish(event("other"))
+            pipeline.shutdown(5000L)
+
+            sink.events.map { it.title } shouldContainExactly listOf("same", "other", "same")
+            sink.events.last().attributes[NotificationEvent.SUPPRESSED_ATTRIBUTE] shouldBe "3"
+        }
+
+        it("should evict expired windows and report their suppressed repeats") {
+            val emitted = CopyOnWriteArrayList<NotificationEvent>()
+            val aggregator = DeduplicatingNotificationAggregator(50L)
+
+            repeat(2) { aggregator.aggregate(event("repeated"), emitted::add) }
+            repeat(100) { aggregator.aggregate(event("unique $it"), emitted::add) }
+            aggregator.pendingWindows() shouldBe 101
+
+            Thread.sleep(100)
+            aggregator.aggregate(event("later"), emitted::add)
+
+            aggregator.pendingWindows() shouldBe 1
+            val reported = emitted.filter { it.title == "repeated" }
+            reported.map { it.attributes[NotificationEvent.SUPPRESSED_ATTRIBUTE] } shouldContainExactly listOf(null, "1")
+            aggregator.close()
+        }
+    }
+})
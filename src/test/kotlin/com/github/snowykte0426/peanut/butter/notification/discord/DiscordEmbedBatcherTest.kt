@@ -0,0 +1,69 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.shouldBe
+import org.springframework.web.client.RestTemplate
+
+class DiscordEmbedBatcherTest : DescribeSpec({
+
+    fun embed(title: String, description: String = "") =
+        mapOf<String, Any>("title" to title, "description" to description)
+
+    describe("DiscordEmbedBatcher") {
+
+        context("when packing embeds") {
+            val batcher = DiscordEmbedBatcher()
+
+            it("should pack up to 10 embeds per message preserving order") {
+                val embeds = (1..25).map { embed("title-$it") }
+
+                val messages = batcher.pack(embeds)
+
+                messages.map { it.size } shouldBe listOf(10, 10, 5)
+                messages.flatten() shouldBe embeds
+            }
+
+            it("should split messages at the character limit") {
+                val embeds = (1..4).map { embed("t", "x".repeat(2500)) }
+
+                batcher.pack(embeds).map { it.size } shouldBe listOf(2, 2)
+            }
+
+            it("should send oversized embeds alone") {
+                val embeds = listOf(embed("big", "x".repeat(7000)), embed("small"))
+
+                batcher.pack(embeds).map { it.size } shouldBe listOf(1, 1)
+            }
+
+            it("should count field and footer text") {
+                val fieldEmbed = mapOf<String, Any>(
+                    "title" to "abc",
+                    "fields" to listOf(mapOf("name" to "n", "value" to "vv", "inline" to true)),
+                    "footer" to mapOf("text" to "ffff")
+                )
+
+                DiscordEmbedBatcher.embedSize(fieldEmbed) shouldBe 10
+            }
+        }
+
+        context("when sending through a local webhook stand-in") {
+
+            it("should reduce the number of HTTP calls") {
+                DiscordWebhookStandIn().use { standIn ->
+                    val properties = DiscordProperties(
+                        webhook = DiscordProperties.WebhookProperties(enabled = true, url = standIn.url),
+                        dispatcher = DiscordProperties.DispatcherProperties(enabled = true),
+                        batching = DiscordProperties.BatchingProperties(enabled = true, flushWindow = 2000L)
+                    )
+                    val service = DiscordWebhookService(properties, RestTemplate(), "test-app", "test")
+
+                    repeat(25) { service.sendStartupNotification() }
+                    service.destroy()
+
+                    standIn.requestCount() shouldBe 3
+                    service.dispatcherStats()?.delivered shouldBe 25L
+                }
+            }
+        }
+    }
+})
@@ -0,0 +1,130 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.notification.NotificationSeverity
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.collections.shouldHaveSize
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import org.springframework.web.client.RestTemplate
+import java.util.concurrent.CopyOnWriteArrayList
+
+class DiscordExceptionAggregatorTest : DescribeSpec({
+
+    fun downstreamFailure(message: String): Throwable = IllegalStateException(message)
+
+    fun otherFailure(message: String): Throwable = IllegalArgumentException(message)
+
+    fun aggregator(
+        sink: (List<ExceptionSummary>) -> Unit = {},
+        maxFingerprints: Int = 500
+    ) = DiscordExceptionAggregator(
+        DiscordProperties.AggregationProperties(enabled = true, window = 60000L, maxFingerprints = maxFingerprints),
+        sink
+    )
+
+    describe("ExceptionFingerprint") {
+
+        it("should ignore the message of exceptions thrown from the same place") {
+            val fingerprints = (1..3).map { ExceptionFingerprint.of(downstreamFailure("request $it"), 5) }
+
+            fingerprints.distinct() shouldHaveSize 1
+        }
+
+        it("should distinguish exception types") {
+            ExceptionFingerprint.of(downstreamFailure("a"), 5) shouldNotBe
+                ExceptionFingerprint.of(otherFailure("a"), 5)
+        }
+    }
+
+    describe("DiscordExceptionAggregator") {
+
+        it("should report one summary per fingerprint with occurrence counts") {
+            val reported = CopyOnWriteArrayList<ExceptionSummary>()
+            val aggregator = aggregator(sink = { reported.addAll(it) })
+
+            repeat(1000) { aggregator.record(downstreamFailure("timeout $it"), "GET /orders") }
+            repeat(3) { aggregator.record(otherFailure("bad input $it")) }
+
+            val summaries = aggregator.flush()
+            aggregator.close()
+
+            summaries shouldHaveSize 2
+            reported shouldBe summaries
+            summaries[0].count shouldBe 1000L
+            summaries[0].exception.message shouldBe "timeout 0"
+            summaries[0].context shouldBe "GET /orders"
+            summaries[1].count shouldBe 3L
+            (summaries[0].firstSeen <= summaries[0].lastSeen) shouldBe true
+        }
+
+        it("should report the highest severity recorded for a fingerprint") {
+            val aggregator = aggregator()
+
+            listOf(NotificationSeverity.WARNING, NotificationSeverity.CRITICAL, NotificationSeverity.ERROR).forEach {
+                aggregator.record(downstreamFailure("a"), severity = it)
+            }
+            aggregator.record(otherFailure("b"), severity = NotificationSeverity.WARNING)
+
+            val summaries = aggregator.flush().associateBy { it.exception.javaClass }
+            summaries.getValue(IllegalStateException::class.java).severity shouldBe NotificationSeverity.CRITICAL
+            summaries.getValue(IllegalArgumentException::class.java).severity shouldBe NotificationSeverity.WARNING
+            aggregator.close()
+        }
+
+        it("should start a new window after flushing") {
+            val aggregator = aggregator()
+
+            aggregator.record(downstreamFailure("a"))
+            aggregator.flush() shouldHaveSize 1
+
+            aggregator.flush().shouldBeEmpty()
+            aggregator.close()
+        }
+
+        it("should bound the number of tracked fingerprints") {
+            val aggregator = aggregator(maxFingerprints = 1)
+
+            aggregator.record(downstreamFailure("a"))
+            aggregator.record(otherFailure("b"))
+
+            aggregator.pendingFingerprints() shouldBe 1
+            aggregator.flush().single().exception.message shouldBe "a"
+            aggregator.close()
+        }
+
+        it("should report pending occurrences on close") {
+            val reported = CopyOnWriteArrayList<ExceptionSummary>()
+            val aggregator = aggregator(sink = { reported.addAll(it) })
+
+            aggregator.record(downstreamFailure("a"))
+            aggregator.close()
+
+            reported shouldHaveSize 1
+        }
+    }
+
+    describe("DiscordWebhookService with aggregation") {
+
+        it("should send one embed per fingerprint instead of one per occurrence") {
+            val standIn = DiscordWebhookStandIn()
+            try {
+                val properties = DiscordProperties(
+                    webhook = DiscordProperties.WebhookProperties(enabled = true, url = standIn.url),
+                    aggregation = DiscordProperties.AggregationProperties(enabled = true, window = 60000L)
+                )
+                val service = DiscordWebhookService(properties, RestTemplate(), "test-app", "test")
+
+                repeat(50) { service.sendExceptionNotification(downstreamFailure("timeout $it")) }
+                standIn.requestCount() shouldBe 0
+
+                service.destroy()
+
+                standIn.requestCount() shouldBe 1
+                standIn.requestBodies().single().contains("Occurrences:** 50") shouldBe true
+            } finally {
+                standIn.close()
+            }
+        }
+    }
+})
@@ -0,0 +1,182 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.notification.OverflowPolicy
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class DiscordNotificationDispatcherTest : DescribeSpec({
+
+    fun notification(title: String) = DiscordNotification(listOf(mapOf("title" to title)))
+
+    describe("DiscordNotificationDispatcher") {
+
+        context("when batching messages") {
+
+            it("should acknowledge the notifications of every message that was sent") {
+                val acknowledged = CopyOnWriteArrayList<Any?>()
+                val dispatcher = DiscordNotificationDispatcher(
+                    DiscordProperties.DispatcherProperties(enabled = true),
+                    sink = { embeds ->
+                        if (embeds.none { it["title"] == "c" }) WebhookDelivery.SENT else WebhookDelivery.FAILED
+                    },
+                    batching = DiscordProperties.BatchingProperties(
+                        enabled = true,
+                        flushWindow = 2000L,
+                        maxEmbedsPerMessage = 2
+                    ),
+                    onSettled = { acknowledged.add(it.embeds[0]["title"]) }
+                )
+
+                listOf("a", "b", "c", "d").forEach { dispatcher.submit(notification(it)) }
+                dispatcher.shutdown(5000L)
+
+                acknowledged shouldBe listOf("a", "b")
+                dispatcher.stats().delivered shouldBe 2L
+                dispatcher.stats().failed shouldBe 2L
+                dispatcher.stats().messagesSent shouldBe 2L
+            }
+
+            it("should settle notifications Discord rejected for good without counting them as delivered") {
+                val settled = CopyOnWriteArrayList<Any?>()
+                val dispatcher = DiscordNotificationDispatcher(
+                    DiscordProperties.DispatcherProperties(enabled = true),
+                    sink = { embeds ->
+                        if (embeds.none { it["title"] == "c" }) WebhookDelivery.SENT else WebhookDelivery.REJECTED
+                    },
+                    batching = DiscordProperties.BatchingProperties(
+                        enabled = true,
+                        flushWindow = 2000L,
+                        maxEmbedsPerMessage = 2
+                    ),
+                    onSettled = { settled.add(it.embeds[0]["title"]) }
+                )
+
+                listOf("a", "b", "c", "d").forEach { dispatcher.submit(notification(it)) }
+                dispatcher.shutdown(5000L)
+
+                settled shouldBe listOf("a", "b", "c", "d")
+                dispatcher.stats().delivered shouldBe 2L
+                dispatcher.stats().failed shouldBe 2L
+            }
+        }
+
+        context("when delivering messages") {
+
+            it("should deliver queued messages on the worker thread in order") {
+                val delivered = CopyOnWriteArrayList<Any?>()
+                val latch = CountDownLatch(3)
+                val dispatcher = DiscordNotificationDispatcher(
+                    DiscordProperties.DispatcherProperties(enabled = true),
+                    { embeds ->
+                        delivered.add(embeds[0]["title"])
+                        latch.countDown()
+                        WebhookDelivery.SENT
+                    }
+                )
+
+                listOf("a", "b", "c").forEach { dispatcher.submit(notification(it)) }
+
+                latch.await(5, TimeUnit.SECONDS) shouldBe true
+                delivered shouldBe listOf("a", "b", "c")
+                dispatcher.shutdown(1000L) shouldBe 0
+                dispatcher.stats().delivered shouldBe 3L
+            }
+
+            it("should count failed deliveries") {
+                val latch = CountDownLatch(1)
+                val dispatcher = DiscordNotificationDispatcher(
+                    DiscordProperties.DispatcherProperties(enabled = true),
+                    { _ ->
+                        latch.countDown()
+                        WebhookDelivery.FAILED
+                    }
+                )
+
+                dispatcher.submit(notification("a"))
+
+                latch.await(5, TimeUnit.SECONDS) shouldBe true
+                dispatcher.shutdown(1000L)
+                dispatcher.stats().failed shouldBe 1L
+            }
+        }
+
+        context("when the queue overflows") {
+
+            fun blockedDispatcher(
+                policy: OverflowPolicy,
+                gate: CountDownLatch,
+                started: CountDownLatch,
+                settled: MutableList<Any?> = CopyOnWriteArrayList()
+            ) =
+                DiscordNotificationDispatcher(
+                    DiscordProperties.DispatcherProperties(
+                        enabled = true,
+                        queueCapacity = 2,
+                        overflowPolicy = policy,
+                        offerTimeout = 10L
+                    ),
+                    { _ ->
+                        started.countDown()
+                        gate.await()
+                        WebhookDelivery.SENT
+                    },
+                    onSettled = { settled.add(it.embeds[0]["title"]) }
+                )
+
+            it("should drop the newest message with DROP_NEWEST") {
+                val gate = CountDownLatch(1)
+                val started = CountDownLatch(1)
+                val settled = CopyOnWriteArrayList<Any?>()
+                val dispatcher = blockedDispatcher(OverflowPolicy.DROP_NEWEST, gate, started, settled)
+
+                dispatcher.submit(notification("in-flight"))
+                started.await(5, TimeUnit.SECONDS) shouldBe true
+                dispatcher.submit(notification("a")) shouldBe true
+                dispatcher.submit(notification("b")) shouldBe true
+                dispatcher.submit(notification("c")) shouldBe false
+
+                dispatcher.queueDepth() shouldBe 2
+                dispatcher.droppedCount() shouldBe 1L
+                settled shouldBe listOf("c")
+                gate.countDown()
+                dispatcher.shutdown(1000L)
+            }
+
+            it("should drop the oldest message with DROP_OLDEST") {
+                val gate = CountDownLatch(1)
+                val started = CountDownLatch(1)
+                val settled = CopyOnWriteArrayList<Any?>()
+                val dispatcher = blockedDispatcher(OverflowPolicy.DROP_OLDEST, gate, started, settled)
+
+                dispatcher.submit(notification("in-flight"))
+                started.await(5, TimeUnit.SECONDS) shouldBe true
+                listOf("a", "b", "c").forEach { dispatcher.submit(notification(it)) shouldBe true }
+
+                dispatcher.queueDepth() shouldBe 2
+                dispatcher.droppedCount() shouldBe 1L
+                settled shouldBe listOf("a")
+                gate.countDown()
+                dispatcher.shutdown(1000L)
+            }
+
+            it("should give up after the offer timeout with BLOCK") {
+                val gate = CountDownLatch(1)
+                val started = CountDownLatch(1)
+                val dispatcher = blockedDispatcher(OverflowPolicy.BLOCK, gate, started)
+
+                dispatcher.submit(notification("in-flight"))
+                started.await(5, TimeUnit.SECONDS) shouldBe true
+                dispatcher.submit(notification("a")) shouldBe true
+                dispatcher.submit(notification("b")) shouldBe true
+                dispatcher.submit(notification("c")) shouldBe false
+
+                dispatcher.droppedCount() shouldBe 1L
+                gate.countDown()
+                dispatcher.shutdown(1000L)
+            }
+        }
+    }
+})
@@ -0,0 +1,97 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.sun.net.httpserver.HttpServer
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.longs.shouldBeLessThan
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import org.springframework.context.SmartLifecycle
+import org.springframework.web.client.RestTemplate
+import java.net.InetSocketAddress
+import java.util.concurrent.Executors
+
+class DiscordNotificationLifecycleTest : DescribeSpec({
+
+    fun service(url: String) = DiscordWebhookService(
+        DiscordProperties(
+            webhook = DiscordProperties.WebhookProperties(enabled = true, url = url),
+            dispatcher = DiscordProperties.DispatcherProperties(enabled = true)
+        ),
+        RestTemplate(),
+        "test-app",
+        "test"
+    )
+
+    describe("DiscordNotificationLifecycle") {
+
+        it("should flush queued notifications and send the shutdown notification last") {
+            DiscordWebhookStandIn().use { standIn ->
+                val service = service(standIn.url)
+                val lifecycle = DiscordNotificationLifecycle(service, 5000L)
+                lifecycle.start()
+
+                repeat(5) { service.sendExceptionNotification(IllegalStateException("boom $it")) }
+                service.sendShutdownNotification()
+                lifecycle.stop()
+
+                val report = lifecycle.lastReport!!
+                report.abandoned shouldBe 0
+                report.failed shouldBe 0L
+                report.shutdownNotificationSent shouldBe true
+                standIn.requestCount() shouldBe 6
+                standIn.requestBodies().last() shouldContain "Server Stopped"
+                lifecycle.isRunning shouldBe false
+            }
+        }
+
+        it("should abandon what cannot be flushed before the deadline") {
+            val slowWebhook = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0).apply {
+                createContext("/") { exchange ->
+                    Thread.sleep(300)
+                    exchange.sendResponseHeaders(204, -1)
+                    exchange.close()
+                }
+                executor = Executors.newCachedThreadPool()
+                start()
+            }
+            try {
+                val service = service("http://127.0.0.1:${slowWebhook.address.port}/api/webhooks/slow")
+                val lifecycle = DiscordNotificationLifecycle(service, 400L)
+                lifecycle.start()
+
+                repeat(20) { service.sendExceptionNotification(IllegalStateException("boom $it")) }
+                service.sendShutdownNotification()
+                lifecycle.stop()
+
+                val report = lifecycle.lastReport!!
+                (report.abandoned > 0) shouldBe true
+                report.shutdownNotificationSent shouldBe false
+                report.elapsedMillis shouldBeLessThan 2000L
+            } finally {
+                slowWebhook.stop(0)
+            }
+        }
+
+        it("should stop after the web server") {
+            (DiscordNotificationLifecycle.PHASE < SmartLifecycle.DEFAULT_PHASE - 2048) shouldBe true
+        }
+    }
+
+    describe("DiscordWebhookService without a lifecycle") {
+
+        it("should still send the shutdown notification immediately") {
+            DiscordWebhookStandIn().use { standIn ->
+                val service = DiscordWebhookService(
+                    DiscordProperties(webhook = DiscordProperties.WebhookProperties(enabled = true, url = standIn.url)),
+                    RestTemplate(),
+                    "test-app",
+                    "test"
+                )
+
+                service.sendShutdownNotification()
+
+                standIn.requestCount() shouldBe 1
+            }
+        }
+    }
+})
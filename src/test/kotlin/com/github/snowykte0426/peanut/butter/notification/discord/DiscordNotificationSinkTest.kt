@@ -0,0 +1,80 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.notification.NotificationEvent
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import org.springframework.web.client.RestTemplate
+import java.util.concurrent.CopyOnWriteArrayList
+
+class DiscordNotificationSinkTest : DescribeSpec({
+
+    describe("DiscordNotificationSink") {
+
+        it("should deliver on the calling thread without passing through the route queue") {
+            val standIn = DiscordWebhookStandIn()
+            try {
+                val service = DiscordWebhookService(
+                    DiscordProperties(
+                        webhook = DiscordProperties.WebhookProperties(enabled = true, url = standIn.url),
+                        dispatcher = DiscordProperties.DispatcherProperties(enabled = true)
+                    ),
+                    RestTemplate(),
+                    "test-app",
+                    "test"
+                )
+                val sink = DiscordNotificationSink(service)
+
+                sink.deliver(NotificationEvent(type = "deploy", title = "Deployed", message = "v1.2.3")) shouldBe true
+
+                standIn.requestCount() shouldBe 1
+                standIn.requestBodies().single() shouldContain "Deployed"
+                service.dispatcherStats()?.submitted shouldBe 0L
+                service.destroy()
+            } finally {
+                standIn.close()
+            }
+        }
+
+        it("should report a rejected message as a failed delivery") {
+            val standIn = DiscordWebhookStandIn().apply { available = false }
+            try {
+                val service = DiscordWebhookService(
+                    DiscordProperties(webhook = DiscordProperties.WebhookProperties(enabled = true, url = standIn.url)),
+                    RestTemplate(),
+                    "test-app",
+                    "test"
+                )
+
+                DiscordNotificationSink(service).deliver(NotificationEvent(type = "deploy", title = "Deployed")) shouldBe false
+                service.destroy()
+            } finally {
+                standIn.close()
+            }
+        }
+
+        it("should make the service publish its own notifications to the pipeline") {
+            val standIn = DiscordWebhookStandIn()
+            try {
+                val service = DiscordWebhookService(
+                    DiscordProperties(webhook = DiscordProperties.WebhookProperties(enabled = true, url = standIn.url)),
+                    RestTemplate(),
+                    "test-app",
+                    "test"
+                )
+                val published = CopyOnWriteArrayList<NotificationEvent>()
+                DiscordNotificationSink(service).publishThrough { published.add(it) }
+
+                service.sendStartupNotification()
+                service.sendExceptionNotification(IllegalStateException("boom"), "checkout")
+
+                published.map { it.type } shouldBe listOf("startup", "exception")
+                published.last().attributes[NotificationEvent.CONTEXT_ATTRIBUTE] shouldBe "checkout"
+                standIn.requestCount() shouldBe 0
+                service.destroy()
+            } finally {
+                standIn.close()
+            }
+        }
+    }
+})
@@ -0,0 +1,170 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import org.mockito.kotlin.*
+import org.springframework.http.HttpEntity
+import org.springframework.http.HttpHeaders
+import org.springframework.http.HttpStatus
+import org.springframework.web.client.HttpClientErrorException
+import org.springframework.web.client.RestTemplate
+import java.nio.file.Files
+import java.nio.file.Path
+
+class DiscordOutboxTest : DescribeSpec({
+
+    lateinit var directory: Path
+
+    beforeEach {
+        directory = Files.createTempDirectory("discord-outbox")
+    }
+
+    afterEach {
+        directory.toFile().deleteRecursively()
+    }
+
+    describe("DiscordOutbox") {
+
+        it("should replay only unacknowledged payloads after a restart") {
+            val outbox = DiscordOutbox(directory, segmentSize = 4096)
+            outbox.open().shouldBeEmpty()
+
+            val delivered = outbox.append("delivered".toByteArray()).shouldNotBeNull()
+            outbox.append("in-flight".toByteArray()).shouldNotBeNull()
+            outbox.acknowledge(delivered)
+            outbox.close()
+
+            val reopened = DiscordOutbox(directory, segmentSize = 4096)
+            val replayed = reopened.open()
+
+            replayed.map { String(it.payload) } shouldBe listOf("in-flight")
+            reopened.pendingCount() shouldBe 1
+            reopened.segmentCount() shouldBe 1
+            reopened.close()
+        }
+
+        it("should not replay payloads acknowledged after a replay") {
+            DiscordOutbox(directory, segmentSize = 4096).apply {
+                open()
+                append("a".toByteArray())
+                close()
+            }
+
+            val reopened = DiscordOutbox(directory, segmentSize = 4096)
+            reopened.open().forEach { reopened.acknowledge(it.id) }
+            reopened.close()
+
+            DiscordOutbox(directory, segmentSize = 4096).open().shouldBeEmpty()
+        }
+
+        it("should discard a payload once it was replayed maxReplays times") {
+            DiscordOutbox(directory, segmentSize = 4096, maxReplays = 2).apply {
+                open()
+                append("undeliverable".toByteArray())
+                close()
+            }
+
+            repeat(2) {
+                val reopened = DiscordOutbox(directory, segmentSize = 4096, maxReplays = 2)
+                reopened.open().map { String(it.payload) } shouldBe listOf("undeliverable")
+                reopened.close()
+            }
+
+            val exhausted = DiscordOutbox(directory, segmentSize = 4096, maxReplays = 2)
+            exhausted.open().shouldBeEmpty()
+            exhausted.pendingCount() shouldBe 0
+            exhausted.close()
+        }
+
+        it("should rotate segments and delete fully acknowledged ones") {
+            val outbox = DiscordOutbox(directory, segmentSize = 256)
+            outbox.open()
+
+            val ids = (1..20).map { outbox.append(ByteArray(50) { 'x'.code.toByte() }).shouldNotBeNull() }
+            (outbox.segmentCount() > 1) shouldBe true
+
+            ids.forEach(outbox::acknowledge)
+
+            outbox.segmentCount() shouldBe 1
+            outbox.pendingCount() shouldBe 0
+            outbox.close()
+        }
+
+        it("should run without persistence while another outbox holds the directory") {
+            val owner = DiscordOutbox(directory, segmentSize = 4096)
+            owner.open()
+            owner.append("pending".toByteArray()).shouldNotBeNull()
+
+            val intruder = DiscordOutbox(directory, segmentSize = 4096)
+            intruder.open().shouldBeEmpty()
+            intruder.isEnabled() shouldBe false
+            intruder.append("lost".toByteArray()).shouldBeNull()
+            intruder.close()
+
+            owner.isEnabled() shouldBe true
+            owner.close()
+            DiscordOutbox(directory, segmentSize = 4096).open().map { String(it.payload) } shouldBe listOf("pending")
+        }
+
+        it("should run without persistence when the directory cannot be created") {
+            val file = Files.createFile(directory.resolve("not-a-directory"))
+            val outbox = DiscordOutbox(file.resolve("outbox"))
+
+            outbox.open().shouldBeEmpty()
+            outbox.isEnabled() shouldBe false
+            outbox.append("payload".toByteArray()).shouldBeNull()
+        }
+
+        it("should refuse payloads larger than a segment") {
+            val outbox = DiscordOutbox(directory, segmentSize = 64)
+            outbox.open()
+
+            outbox.append(ByteArray(128)).shouldBeNull()
+            outbox.close()
+        }
+    }
+
+    describe("DiscordWebhookService with an outbox") {
+
+        fun properties(url: String) = DiscordProperties(
+            webhook = DiscordProperties.WebhookProperties(enabled = true, url = url),
+            outbox = DiscordProperties.OutboxProperties(enabled = true, directory = directory.toString())
+        )
+
+        it("should not keep a message Discord rejected for good") {
+            val restTemplate = mock<RestTemplate>()
+            whenever(restTemplate.postForEntity(any<String>(), any<HttpEntity<*>>(), eq(String::class.java)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", HttpHeaders(), ByteArray(0), null))
+            val service = DiscordWebhookService(properties("https://discord.com/api/webhooks/test"), restTemplate, "test-app", "test")
+
+            service.sendShutdownNotification()
+            service.destroy()
+
+            verify(restTemplate).postForEntity(any<String>(), any<HttpEntity<*>>(), eq(String::class.java))
+            DiscordOutbox(directory).open().shouldBeEmpty()
+        }
+
+        it("should redeliver a message that failed before the restart") {
+            val unreachable = DiscordWebhookService(properties("http://127.0.0.1:1/webhook"), RestTemplate(), "test-app", "test")
+            unreachable.sendShutdownNotification()
+            unreachable.destroy()
+
+            val standIn = DiscordWebhookStandIn()
+            try {
+                val restarted = DiscordWebhookService(properties(standIn.url), RestTemplate(), "test-app", "test")
+
+                restarted.replayOutbox() shouldBe 1
+                standIn.requestCount() shouldBe 1
+                restarted.replayOutbox() shouldBe 0
+                restarted.destroy()
+
+                DiscordOutbox(directory).open().shouldBeEmpty()
+            } finally {
+                standIn.close()
+            }
+        }
+    }
+})
@@ -0,0 +1,75 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+
+class DiscordPayloadWriterTest : DescribeSpec({
+
+    val objectMapper = ObjectMapper()
+
+    fun template() = DiscordEmbedTemplate(
+        messages = DiscordMessageLocalizer.getMessages(DiscordLocale.KOREAN),
+        applicationName = "order-service",
+        activeProfiles = "prod",
+        hostname = "node-1",
+        footerText = "Powered by peanut-butter"
+    )
+
+    fun embed(template: DiscordEmbedTemplate, title: String): Map<String, Any> = mapOf(
+        "title" to title,
+        "description" to "line 1\n\"quoted\" \\ ✓",
+        "color" to 0xff0000,
+        "fields" to template.fields,
+        "timestamp" to "2024-01-01T00:00:00Z",
+        "footer" to template.footer!!
+    )
+
+    describe("DiscordPayloadWriter") {
+
+        it("should produce the same JSON as data binding") {
+            val template = template()
+            val writer = DiscordPayloadWriter().apply { register(template) }
+            val payload = mapOf<String, Any>("embeds" to listOf(embed(template, "❌ 예외 발생")))
+
+            objectMapper.readTree(writer.write(payload)) shouldBe objectMapper.readTree(objectMapper.writeValueAsBytes(payload))
+        }
+
+        it("should write unregistered maps the same way") {
+            val template = template()
+            val payload = mapOf<String, Any>("embeds" to listOf(embed(template, "unregistered"), mapOf("title" to null)))
+
+            objectMapper.readTree(DiscordPayloadWriter().write(payload)) shouldBe
+                objectMapper.readTree(objectMapper.writeValueAsBytes(payload))
+        }
+
+        it("should not leak content between writes sharing a buffer") {
+            val writer = DiscordPayloadWriter()
+
+            writer.write(mapOf("embeds" to listOf(mapOf("title" to "a much longer first title"))))
+            val second = writer.write(mapOf("embeds" to listOf(mapOf("title" to "b"))))
+
+            String(second, Charsets.UTF_8) shouldBe """{"embeds":[{"title":"b"}]}"""
+        }
+    }
+
+    describe("DiscordEmbedTemplate") {
+
+        it("should share static fragments between embeds") {
+            val template = template()
+
+            embed(template, "a")["fields"] shouldBeSameInstanceAs embed(template, "b")["fields"]
+            template.fields.map { it["name"] } shouldBe listOf("애플리케이션", "프로파일", "호스트명")
+        }
+
+        it("should omit the hostname field when no hostname is given") {
+            val template = DiscordEmbedTemplate(
+                DiscordMessageLocalizer.getMessages(DiscordLocale.ENGLISH), "app", "default", null, ""
+            )
+
+            template.fields.map { it["name"] } shouldBe listOf("Application", "Profile")
+            template.footer shouldBe null
+        }
+    }
+})
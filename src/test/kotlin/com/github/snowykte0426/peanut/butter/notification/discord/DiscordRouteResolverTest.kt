@@ -0,0 +1,115 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.notification.NotificationSeverity
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.shouldBe
+import org.springframework.web.client.RestTemplate
+import java.io.IOException
+import java.net.SocketTimeoutException
+
+class DiscordRouteResolverTest : DescribeSpec({
+
+    fun route(name: String) = DiscordWebhookRoute(
+        name = name,
+        url = "https://discord.test/$name",
+        webhookClient = DiscordWebhookClient(RestTemplate()),
+        dispatcherProperties = DiscordProperties.DispatcherProperties(),
+        batching = DiscordProperties.BatchingProperties()
+    )
+
+    val default = route(DiscordWebhookRoute.DEFAULT)
+    val io = route("io")
+    val critical = route("critical")
+    val payments = route("payments")
+
+    val resolver = DiscordRouteResolver(
+        routes = listOf(
+            io to DiscordProperties.RouteProperties(exceptionTypes = listOf("java.io.IOException")),
+            critical to DiscordProperties.RouteProperties(severities = listOf(NotificationSeverity.CRITICAL)),
+            payments to DiscordProperties.RouteProperties(contextPrefixes = listOf("POST /payments"))
+        ),
+        defaultRoute = default
+    )
+
+    describe("DiscordRouteResolver") {
+
+        it("should match exception types through the class hierarchy") {
+            resolver.resolve(NotificationSeverity.ERROR, SocketTimeoutException()) shouldBe io
+            resolver.resolve(NotificationSeverity.ERROR, IOException()) shouldBe io
+        }
+
+        it("should match severity and context prefixes") {
+            resolver.resolve(NotificationSeverity.CRITICAL, IllegalStateException()) shouldBe critical
+            resolver.resolve(NotificationSeverity.ERROR, IllegalStateException(), "POST /payments/42") shouldBe payments
+        }
+
+        it("should prefer the first matching route") {
+            resolver.resolve(NotificationSeverity.CRITICAL, IOException()) shouldBe io
+        }
+
+        it("should not send lifecycle notifications to exception type routes") {
+            resolver.resolve(NotificationSeverity.INFO) shouldBe default
+            resolver.resolve(NotificationSeverity.CRITICAL) shouldBe critical
+        }
+
+        it("should fall back to the default route") {
+            resolver.resolve(NotificationSeverity.ERROR, IllegalStateException(), "GET /orders") shouldBe default
+        }
+    }
+
+    describe("DiscordWebhookService with routes") {
+
+        it("should keep lifecycle notifications off the exception route") {
+            DiscordWebhookStandIn().use { lifecycle ->
+                DiscordWebhookStandIn().use { errors ->
+                    val properties = DiscordProperties(
+                        webhook = DiscordProperties.WebhookProperties(enabled = true, url = lifecycle.url),
+                        routes = mapOf(
+                            "errors" to DiscordProperties.RouteProperties(
+                                url = errors.url,
+                                severities = listOf(NotificationSeverity.ERROR)
+                            )
+                        )
+                    )
+                    val service = DiscordWebhookService(properties, RestTemplate(), "test-app", "test")
+
+                    service.sendStartupNotification()
+                    repeat(3) { service.sendExceptionNotification(IllegalStateException("boom $it")) }
+                    service.destroy()
+
+                    lifecycle.requestCount() shouldBe 1
+                    errors.requestCount() shouldBe 3
+                }
+            }
+        }
+
+        it("should send a route without url to the default webhook") {
+            DiscordWebhookStandIn().use { standIn ->
+                val properties = DiscordProperties(
+                    webhook = DiscordProperties.WebhookProperties(enabled = true, url = standIn.url),
+                    routes = mapOf(
+                        "critical" to DiscordProperties.RouteProperties(severities = listOf(NotificationSeverity.CRITICAL))
+                    )
+                )
+                val service = DiscordWebhookService(properties, RestTemplate(), "test-app", "test")
+
+                service.sendExceptionNotification(IllegalStateException("boom"), severity = NotificationSeverity.CRITICAL)
+                service.destroy()
+
+                standIn.requestCount() shouldBe 1
+            }
+        }
+
+        it("should refuse to start with a route that has nowhere to send") {
+            val properties = DiscordProperties(
+                webhook = DiscordProperties.WebhookProperties(enabled = true),
+                routes = mapOf("critical" to DiscordProperties.RouteProperties())
+            )
+
+            shouldThrow<IllegalArgumentException> {
+                DiscordWebhookService(properties, RestTemplate(), "test-app", "test")
+            }
+        }
+    }
+})
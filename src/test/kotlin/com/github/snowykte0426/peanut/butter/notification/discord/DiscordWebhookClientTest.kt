@@ -0,0 +1,169 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.longs.shouldBeGreaterThanOrEqual
+import io.kotest.matchers.shouldBe
+import org.mockito.kotlin.*
+import org.springframework.http.HttpEntity
+import org.springframework.http.HttpHeaders
+import org.springframework.http.HttpStatus
+import org.springframework.http.ResponseEntity
+import org.springframework.web.client.HttpClientErrorException
+import org.springframework.web.client.HttpServerErrorException
+import org.springframework.web.client.RestTemplate
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.TimeUnit
+
+class DiscordWebhookClientTest : DescribeSpec({
+
+    val url = "https://discord.com/api/webhooks/test"
+    val payload = mapOf<String, Any>("embeds" to emptyList<Any>())
+
+    fun tooManyRequests(retryAfter: String) = HttpClientErrorException.create(
+        HttpStatus.TOO_MANY_REQUESTS,
+        "Too Many Requests",
+        HttpHeaders(),
+        """{"message": "You are being rate limited.", "retry_after": $retryAfter, "global": false}"""
+            .toByteArray(StandardCharsets.UTF_8),
+        StandardCharsets.UTF_8
+    )
+
+    describe("DiscordWebhookClient") {
+
+        context("when Discord answers with another error") {
+
+            fun clientAnswering(status: HttpStatus): DiscordWebhookClient {
+                val error = if (status.is4xxClientError) {
+                    HttpClientErrorException.create(status, status.reasonPhrase, HttpHeaders(), ByteArray(0), null)
+                } else {
+                    HttpServerErrorException.create(status, status.reasonPhrase, HttpHeaders(), ByteArray(0), null)
+                }
+                val restTemplate = mock<RestTemplate>()
+                whenever(restTemplate.postForEntity(any<String>(), any<HttpEntity<*>>(), eq(String::class.java)))
+                    .thenThrow(error)
+                return DiscordWebhookClient(restTemplate)
+            }
+
+            it("should report a 4xx as rejected for good") {
+                clientAnswering(HttpStatus.BAD_REQUEST).deliver(url, payload) shouldBe WebhookDelivery.REJECTED
+            }
+
+            it("should report a 5xx as worth retrying") {
+                clientAnswering(HttpStatus.BAD_GATEWAY).deliver(url, payload) shouldBe WebhookDelivery.FAILED
+            }
+        }
+
+        context("when Discord answers with 429") {
+
+            it("should retry after the advertised delay") {
+                val restTemplate = mock<RestTemplate>()
+                whenever(restTemplate.postForEntity(any<String>(), any<HttpEntity<*>>(), eq(String::class.java)))
+                    .thenThrow(tooManyRequests("0.05"))
+                    .thenReturn(ResponseEntity.ok("success"))
+                val client = DiscordWebhookClient(restTemplate)
+
+                client.send(url, payload) shouldBe true
+
+                verify(restTemplate, times(2)).postForEntity(eq(url), any<HttpEntity<*>>(), eq(String::class.java))
+                client.stats().rateLimitedCount shouldBe 1L
+                client.stats().retriedCount shouldBe 1L
+                client.stats().throttledMillis shouldBeGreaterThanOrEqual 40L
+            }
+
+            it("should give up after the maximum number of retries") {
+                val restTemplate = mock<RestTemplate>()
+                whenever(restTemplate.postForEntity(any<String>(), any<HttpEntity<*>>(), eq(String::class.java)))
+                    .thenThrow(tooManyRequests("0.01"))
+                val client = DiscordWebhookClient(
+                    restTemplate,
+                    DiscordProperties.RateLimitProperties(maxRetries = 2)
+                )
+
+                client.send(url, payload) shouldBe false
+
+                verify(restTemplate, times(3)).postForEntity(eq(url), any<HttpEntity<*>>(), eq(String::class.java))
+            }
+
+            it("should not retry when rate limiting is disabled") {
+                val restTemplate = mock<RestTemplate>()
+                whenever(restTemplate.postForEntity(any<String>(), any<HttpEntity<*>>(), eq(String::class.java)))
+                    .thenThrow(tooManyRequests("0.01"))
+                val client = DiscordWebhookClient(
+                    restTemplate,
+                    DiscordProperties.RateLimitProperties(enabled = false)
+                )
+
+                client.send(url, payload) shouldBe false
+
+                verify(restTemplate, times(1)).postForEntity(eq(url), any<HttpEntity<*>>(), eq(String::class.java))
+            }
+        }
+
+        context("when Discord reports an exhausted bucket") {
+
+            it("should pace the next send until the bucket resets") {
+                val headers = HttpHeaders().apply {
+                    set(DiscordRateLimiter.REMAINING_HEADER, "0")
+                    set(DiscordRateLimiter.RESET_AFTER_HEADER, "0.1")
+                }
+                val restTemplate = mock<RestTemplate>()
+                whenever(restTemplate.postForEntity(any<String>(), any<HttpEntity<*>>(), eq(String::class.java)))
+                    .thenReturn(ResponseEntity.ok().headers(headers).body("success"))
+                val client = DiscordWebhookClient(restTemplate)
+
+                client.send(url, payload) shouldBe true
+                client.send(url, payload) shouldBe true
+
+                client.stats().throttleCount shouldBe 1L
+                client.stats().throttledMillis shouldBeGreaterThanOrEqual 50L
+            }
+
+            it("should pace every client sharing the rate limiter") {
+                val headers = HttpHeaders().apply {
+                    set(DiscordRateLimiter.REMAINING_HEADER, "0")
+                    set(DiscordRateLimiter.RESET_AFTER_HEADER, "0.1")
+                }
+                val restTemplate = mock<RestTemplate>()
+                whenever(restTemplate.postForEntity(any<String>(), any<HttpEntity<*>>(), eq(String::class.java)))
+                    .thenReturn(ResponseEntity.ok().headers(headers).body("success"))
+                val properties = DiscordProperties.RateLimitProperties()
+                val rateLimiter = DiscordRateLimiter(properties.maxRetryDelay)
+                val transport = RestTemplateWebhookTransport(restTemplate)
+                val first = DiscordWebhookClient(transport, properties, rateLimiter)
+                val second = DiscordWebhookClient(transport, properties, rateLimiter)
+
+                first.send(url, payload) shouldBe true
+                second.send(url, payload) shouldBe true
+
+                second.stats().throttleCount shouldBe 1L
+                second.stats().throttledMillis shouldBeGreaterThanOrEqual 50L
+            }
+        }
+    }
+
+    describe("DiscordRateLimiter") {
+
+        it("should not hold the bucket while a caller waits for its reset") {
+            val limiter = DiscordRateLimiter()
+            limiter.onRateLimited(url, 500L)
+            val waiter = Thread { limiter.acquire(url) }.apply { start() }
+            Thread.sleep(50L)
+
+            val startedAt = System.nanoTime()
+            limiter.update(url, HttpHeaders().apply { add(DiscordRateLimiter.REMAINING_HEADER, "5") })
+            limiter.onRateLimited(url, 10L)
+            val blockedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)
+
+            waiter.join()
+            (blockedMillis < 200L) shouldBe true
+        }
+
+        it("should make callers reserving during one reset all wait for it") {
+            val limiter = DiscordRateLimiter()
+            limiter.onRateLimited(url, 200L)
+
+            (limiter.reserve(url) > 0L) shouldBe true
+            (limiter.reserve(url) > 0L) shouldBe true
+        }
+    }
+})
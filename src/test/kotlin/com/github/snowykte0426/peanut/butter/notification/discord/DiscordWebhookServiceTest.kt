@@ -1,5 +1,6 @@
 package com.github.snowykte0426.peanut.butter.notification.discord
 
+import com.fasterxml.jackson.databind.ObjectMapper
 import io.kotest.core.spec.style.DescribeSpec
 import io.kotest.matchers.shouldBe
 import org.mockito.kotlin.*
@@ -106,10 +107,8 @@ class DiscordWebhookServiceTest : DescribeSpec({
                 verify(restTemplate).postForEntity(
                     eq("https://discord.com/api/webhooks/test"),
                     argThat<HttpEntity<*>> { entity ->
-                        val body = entity.body as Map<*, *>
-                        val embeds = body["embeds"] as List<*>
-                        val embed = embeds[0] as Map<*, *>
-                        embed["title"] == "🚀 서버 시작"
+                        val body = ObjectMapper().readTree(entity.body as ByteArray)
+                        body["embeds"][0]["title"].asText() == "🚀 서버 시작"
                     },
                     eq(String::class.java)
                 )
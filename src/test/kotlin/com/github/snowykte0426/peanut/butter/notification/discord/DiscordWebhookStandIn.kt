@@ -0,0 +1,155 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import java.net.InetSocketAddress
+import java.nio.charset.StandardCharsets
+import java.util.Locale
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Local stand-in for a Discord webhook endpoint that records every request body.
+ *
+ * By default every request is answered with 204. Latency, Discord-style rate limiting
+ * (`X-RateLimit-*` headers and 429 with `retry_after`), random 500s and a full outage can be
+ * injected to exercise the notification pipeline over real HTTP.
+ *
+ * @param latencyMillis Delay before each response
+ * @param rateLimit Requests accepted per [rateLimitWindowMillis], 0 for no limit
+ * @param rateLimitWindowMillis Length of a rate limit bucket
+ * @param failureRate Share of requests answered with 500
+ */
+class DiscordWebhookStandIn(
+    private val latencyMillis: Long = 0L,
+    private val rateLimit: Int = 0,
+    private val rateLimitWindowMillis: Long = 1000L,
+    private val failureRate: Double = 0.0
+) : AutoCloseable {
+
+    /**
+     * A request as seen by the stand-in.
+     *
+     * @param accepted Whether it was answered with 204
+     */
+    data class Request(
+        val body: String,
+        val receivedAtNanos: Long,
+        val accepted: Boolean
+    )
+
+    private val server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+    private val executor: ExecutorService = Executors.newCachedThreadPool()
+    private val requests = CopyOnWriteArrayList<Request>()
+    private val rateLimited = AtomicLong()
+    private val failed = AtomicLong()
+
+    private var windowStartNanos = System.nanoTime()
+    private var windowUsed = 0
+
+    /**
+     * While false, every request is answered with 503.
+     */
+    @Volatile
+    var available: Boolean = true
+
+    init {
+        server.createContext(PATH, ::handle)
+        server.executor = executor
+        server.start()
+    }
+
+    val url: String
+        get() = "http://127.0.0.1:${server.address.port}$PATH"
+
+    fun requestCount(): Int = requests.size
+
+    fun requestBodies(): List<String> = requests.map { it.body }
+
+    fun requests(): List<Request> = requests.toList()
+
+    fun rateLimitedCount(): Long = rateLimited.get()
+
+    fun failedCount(): Long = failed.get()
+
+    override fun close() {
+        server.stop(0)
+        executor.shutdownNow()
+    }
+
+    private fun handle(exchange: HttpExchange) {
+        val body = String(exchange.requestBody.readBytes(), StandardCharsets.UTF_8)
+        if (latencyMillis > 0) {
+            Thread.sleep(latencyMillis)
+        }
+
+        when {
+            !available -> {
+                failed.incrementAndGet()
+                record(body, false)
+                exchange.sendResponseHeaders(503, -1)
+            }
+            failureRate > 0.0 && ThreadLocalRandom.current().nextDouble() < failureRate -> {
+                failed.incrementAndGet()
+                record(body, false)
+                exchange.sendResponseHeaders(500, -1)
+            }
+            else -> respondWithinRateLimit(exchange, body)
+        }
+        exchange.close()
+    }
+
+    private fun respondWithinRateLimit(exchange: HttpExchange, body: String) {
+        if (rateLimit <= 0) {
+            record(body, true)
+            exchange.sendResponseHeaders(204, -1)
+            return
+        }
+
+        val (remaining, resetAfterNanos) = synchronized(this) {
+            val now = System.nanoTime()
+            val window = TimeUnit.MILLISECONDS.toNanos(rateLimitWindowMillis)
+            if (now - windowStartNanos >= window) {
+                windowStartNanos = now
+                windowUsed = 0
+            }
+            val resetAfter = windowStartNanos + window - now
+            if (windowUsed < rateLimit) {
+                windowUsed++
+                rateLimit - windowUsed to resetAfter
+            } else {
+                -1 to resetAfter
+            }
+        }
+
+        val resetAfterSeconds = String.format(Locale.ROOT, "%.3f", resetAfterNanos / 1_000_000_000.0)
+        exchange.responseHeaders.add(DiscordRateLimiter.REMAINING_HEADER, remaining.coerceAtLeast(0).toString())
+        exchange.responseHeaders.add(DiscordRateLimiter.RESET_AFTER_HEADER, resetAfterSeconds)
+
+        if (remaining >= 0) {
+            record(body, true)
+            exchange.sendResponseHeaders(204, -1)
+            return
+        }
+
+        rateLimited.incrementAndGet()
+        record(body, false)
+        val response = """{"message": "You are being rate limited.", "retry_after": $resetAfterSeconds, "global": false}"""
+            .toByteArray(StandardCharsets.UTF_8)
+        exchange.responseHeaders.add("Content-Type", "application/json")
+        exchange.sendResponseHeaders(429, response.size.toLong())
+        exchange.responseBody.use { it.write(response) }
+    }
+
+    private fun record(body: String, accepted: Boolean) {
+        requests.add(Request(body, System.nanoTime(), accepted))
+    }
+
+    private companion object {
+        private const val PATH = "/api/webhooks/test"
+    }
+}
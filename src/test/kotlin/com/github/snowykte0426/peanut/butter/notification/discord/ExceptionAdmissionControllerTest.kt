@@ -0,0 +1,91 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import com.github.snowykte0426.peanut.butter.notification.NotificationSeverity
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.doubles.shouldBeGreaterThan
+import io.kotest.matchers.doubles.shouldBeLessThan
+import io.kotest.matchers.ints.shouldBeInRange
+import io.kotest.matchers.shouldBe
+import org.mockito.kotlin.*
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ExceptionAdmissionControllerTest : DescribeSpec({
+
+    describe("ExceptionAdmissionController") {
+
+        it("should admit everything below the threshold") {
+            val controller = ExceptionAdmissionController(threshold = 100.0, windowMillis = 60000L)
+
+            repeat(50) { controller.admit() shouldBe 1.0 }
+            controller.samplingRatio() shouldBe 1.0
+        }
+
+        it("should sample proportionally above the threshold") {
+            val controller = ExceptionAdmissionController(threshold = 100.0, windowMillis = 60000L, minRatio = 0.001)
+
+            var admitted = 0
+            repeat(100_000) {
+                if (controller.admit() > 0.0) admitted++
+            }
+
+            // The first 6,000 (100/s over 60 s) pass unsampled, the rest at 6,000/n: about 23,000 in total.
+            admitted shouldBeInRange 15_000..30_000
+            controller.samplingRatio() shouldBeLessThan 0.1
+            controller.rate() shouldBeGreaterThan 100.0
+        }
+
+        it("should never sample below the minimum ratio") {
+            val controller = ExceptionAdmissionController(threshold = 1.0, windowMillis = 60000L, minRatio = 0.5)
+
+            repeat(10_000) { controller.admit() }
+
+            controller.samplingRatio() shouldBe 0.5
+        }
+
+        it("should count concurrent occurrences without locking") {
+            val controller = ExceptionAdmissionController(threshold = 1_000_000.0, windowMillis = 60000L)
+            val pool = Executors.newFixedThreadPool(8)
+            val admitted = AtomicInteger()
+
+            repeat(8) {
+                pool.execute { repeat(10_000) { if (controller.admit() > 0.0) admitted.incrementAndGet() } }
+            }
+            pool.shutdown()
+            pool.awaitTermination(10, TimeUnit.SECONDS) shouldBe true
+
+            admitted.get() shouldBe 80_000
+        }
+    }
+
+    describe("ExceptionAdmissionController validation") {
+
+        it("should reject a window without buckets") {
+            shouldThrow<IllegalArgumentException> { ExceptionAdmissionController(buckets = 0) }
+        }
+
+        it("should reject an empty window") {
+            shouldThrow<IllegalArgumentException> { ExceptionAdmissionController(windowMillis = 0L) }
+        }
+    }
+
+    describe("DiscordExceptionHandler with admission control") {
+
+        it("should drop sampled-out exceptions before building request info") {
+            val discordWebhookService = mock<DiscordWebhookService>()
+            val controller = mock<ExceptionAdmissionController>()
+            whenever(controller.admit()).thenReturn(0.0, 0.25)
+            val handler = DiscordExceptionHandler(discordWebhookService, controller)
+            val exception = RuntimeException("storm")
+
+            handler.handleException(exception, "first", false)
+            handler.handleException(exception, "second", false)
+
+            verify(discordWebhookService, times(1))
+                .sendExceptionNotification(exception, "second", NotificationSeverity.ERROR, 0.25)
+            verifyNoMoreInteractions(discordWebhookService)
+        }
+    }
+})
@@ -0,0 +1,88 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class HttpClientWebhookTransportTest : DescribeSpec({
+
+    val payload = mapOf<String, Any>("embeds" to listOf(mapOf("title" to "hello")))
+
+    describe("HttpClientWebhookTransport") {
+
+        it("should post the payload as JSON") {
+            DiscordWebhookStandIn().use { standIn ->
+                val transport = HttpClientWebhookTransport.from(DiscordProperties.WebhookProperties(url = standIn.url))
+
+                transport.send(standIn.url, payload).isSuccessful shouldBe true
+                transport.sendAsync(standIn.url, payload).get(5, TimeUnit.SECONDS).statusCode shouldBe 204
+
+                standIn.requestCount() shouldBe 2
+                standIn.requestBodies().first() shouldContain "\"title\":\"hello\""
+            }
+        }
+
+        it("should share one client per connect timeout unless told otherwise") {
+            val timeout = Duration.ofMillis(1234)
+
+            HttpClientWebhookTransport.sharedClient(timeout) shouldBeSameInstanceAs
+                HttpClientWebhookTransport.sharedClient(timeout)
+            HttpClientWebhookTransport.newClient(timeout) shouldNotBeSameInstanceAs
+                HttpClientWebhookTransport.sharedClient(timeout)
+        }
+    }
+
+    describe("DiscordWebhookClient.sendAsync") {
+
+        it("should retry a rate limited message without blocking the caller") {
+            val calls = AtomicInteger()
+            val transport = object : DiscordWebhookTransport {
+                override fun send(url: String, payload: Map<String, Any>): WebhookResponse =
+                    if (calls.incrementAndGet() == 1) {
+                        WebhookResponse(429, body = """{"retry_after": 0.05, "global": false}""")
+                    } else {
+                        WebhookResponse(204)
+                    }
+
+                override fun sendAsync(url: String, payload: Map<String, Any>): CompletableFuture<WebhookResponse> =
+                    CompletableFuture.completedFuture(send(url, payload))
+            }
+            val client = DiscordWebhookClient(transport)
+
+            client.sendAsync("https://discord.test/webhook", payload).get(5, TimeUnit.SECONDS) shouldBe true
+
+            calls.get() shouldBe 2
+            client.stats().retriedCount shouldBe 1L
+        }
+    }
+
+    describe("DiscordWebhookService with the HTTP client transport") {
+
+        it("should deliver notifications through the HTTP client") {
+            DiscordWebhookStandIn().use { standIn ->
+                val properties = DiscordProperties(
+                    webhook = DiscordProperties.WebhookProperties(
+                        enabled = true,
+                        url = standIn.url,
+                        transport = WebhookTransportType.HTTP_CLIENT
+                    )
+                )
+                val service = DiscordWebhookService(properties, applicationName = "test-app", activeProfiles = "test")
+
+                service.sendStartupNotification()
+
+                val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+                while (standIn.requestCount() == 0 && System.nanoTime() < deadline) {
+                    Thread.sleep(10)
+                }
+                standIn.requestCount() shouldBe 1
+            }
+        }
+    }
+})
@@ -0,0 +1,97 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.collections.shouldHaveSize
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.longs.shouldBeGreaterThanOrEqual
+import io.kotest.matchers.ints.shouldBeGreaterThan as intShouldBeGreaterThan
+import io.kotest.matchers.shouldBe
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryType
+
+class JvmHealthMonitorTest : DescribeSpec({
+
+    fun monitor(
+        interval: Long = Long.MAX_VALUE / 2,
+        gcTimeThreshold: Double = 100.0,
+        oldGenThreshold: Double = 100.0,
+        digests: MutableList<JvmHealthDigest>
+    ): JvmHealthMonitor {
+        return JvmHealthMonitor(
+            DiscordProperties.HealthProperties(
+                enabled = true,
+                interval = interval,
+                sampleInterval = 3600000L,
+                gcTimeThreshold = gcTimeThreshold,
+                oldGenThreshold = oldGenThreshold
+            ),
+            { digests.add(it) }
+        )
+    }
+
+    describe("JvmHealthMonitor") {
+
+        it("should emit a digest once the interval has elapsed") {
+            val digests = mutableListOf<JvmHealthDigest>()
+            monitor(interval = 0L, digests = digests).use { it.sample() }
+
+            digests shouldHaveSize 1
+            val digest = digests.single()
+            digest.anomalies.shouldBeEmpty()
+            digest.heapUsed shouldBeGreaterThan 0L
+            digest.gcCount shouldBeGreaterThanOrEqual 0L
+            digest.liveThreads intShouldBeGreaterThan 0
+        }
+
+        it("should stay silent between digests when nothing is wrong") {
+            val digests = mutableListOf<JvmHealthDigest>()
+            monitor(digests = digests).use { healthMonitor ->
+                repeat(3) { healthMonitor.sample() }
+            }
+
+            digests.shouldBeEmpty()
+        }
+
+        it("should fire a GC time anomaly once until the condition clears") {
+            val digests = mutableListOf<JvmHealthDigest>()
+            monitor(gcTimeThreshold = -1.0, digests = digests).use { healthMonitor ->
+                healthMonitor.sample()
+                healthMonitor.sample()
+            }
+
+            digests shouldHaveSize 1
+            digests.single().anomalies shouldBe setOf(JvmHealthAnomaly.GC_TIME)
+        }
+
+        it("should report every anomaly that starts in the same sample and keep them breached") {
+            val hasOldGenPool = ManagementFactory.getMemoryPoolMXBeans().any {
+                it.type == MemoryType.HEAP && it.collectionUsage != null &&
+                    (it.name.contains("Old", ignoreCase = true) || it.name.contains("Tenured", ignoreCase = true))
+            }
+            val digests = mutableListOf<JvmHealthDigest>()
+            monitor(gcTimeThreshold = -1.0, oldGenThreshold = -1.0, digests = digests).use { healthMonitor ->
+                repeat(3) { healthMonitor.sample() }
+            }
+
+            digests shouldHaveSize 1
+            digests.single().anomalies shouldBe if (hasOldGenPool) {
+                setOf(JvmHealthAnomaly.GC_TIME, JvmHealthAnomaly.OLD_GEN_AFTER_GC)
+            } else {
+                setOf(JvmHealthAnomaly.GC_TIME)
+            }
+        }
+
+        it("should report GC activity since the previous digest") {
+            val digests = mutableListOf<JvmHealthDigest>()
+            monitor(digests = digests).use { healthMonitor ->
+                healthMonitor.digest()
+                System.gc()
+                val digest = healthMonitor.digest()
+
+                digest.gcCount shouldBeGreaterThanOrEqual 0L
+                digest.gcMillis shouldBeGreaterThanOrEqual 0L
+            }
+        }
+    }
+})
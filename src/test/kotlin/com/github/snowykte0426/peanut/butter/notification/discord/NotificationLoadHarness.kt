@@ -0,0 +1,111 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import org.springframework.web.client.RestTemplate
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * Drives [DiscordExceptionHandler] at a fixed rate against a [DiscordWebhookStandIn] and
+ * measures end-to-end delivery.
+ *
+ * Every exception carries a sequence marker in its context; latency is the time from
+ * `handleException` to the stand-in accepting the request that contains the marker. After the
+ * load phase the service is drained, so anything not accepted by then counts as lost.
+ *
+ * @param standIn Endpoint the notifications are delivered to
+ * @param properties Notification settings; the webhook URL should point at [standIn]
+ * @param admissionController Optional sampling applied by the handler
+ */
+class NotificationLoadHarness(
+    private val standIn: DiscordWebhookStandIn,
+    private val properties: DiscordProperties = DiscordProperties(
+        webhook = DiscordProperties.WebhookProperties(enabled = true, url = standIn.url),
+        dispatcher = DiscordProperties.DispatcherProperties(enabled = true)
+    ),
+    private val admissionController: ExceptionAdmissionController? = null
+) {
+
+    companion object {
+        private val MARKER = Regex("\\[load:(\\d+)]")
+    }
+
+    /**
+     * @param ratePerSecond Exceptions raised per second
+     * @param durationMillis Length of the load phase
+     * @param drainTimeoutMillis Time allowed for queued notifications after the load phase
+     */
+    fun run(ratePerSecond: Int, durationMillis: Long, drainTimeoutMillis: Long = 10000L): LoadReport {
+        val total = (ratePerSecond.toLong() * durationMillis / 1000).toInt().coerceAtLeast(1)
+        val periodNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond.coerceAtLeast(1)
+        val sentAt = LongArray(total)
+
+        val service = DiscordWebhookService(properties, RestTemplate(), "load-test", "test")
+        val handler = DiscordExceptionHandler(service, admissionController)
+        val exception = IllegalStateException("load")
+
+        val startedAt = System.nanoTime()
+        for (i in 0 until total) {
+            val scheduledAt = startedAt + i * periodNanos
+            while (System.nanoTime() < scheduledAt) {
+                LockSupport.parkNanos(scheduledAt - System.nanoTime())
+            }
+            sentAt[i] = System.nanoTime()
+            handler.handleException(exception, "[load:$i]", includeRequestInfo = false)
+        }
+
+        val drain = service.drain(drainTimeoutMillis)
+        val rateLimitStats = service.rateLimitStats()
+        service.destroy()
+
+        val delivered = BooleanArray(total)
+        val latencies = ArrayList<Long>(total)
+        var lastDeliveryNanos = startedAt
+        standIn.requests().filter { it.accepted }.forEach { request ->
+            MARKER.findAll(request.body).forEach { match ->
+                val id = match.groupValues[1].toInt()
+                if (id < total && !delivered[id]) {
+                    delivered[id] = true
+                    latencies.add(request.receivedAtNanos - sentAt[id])
+                    lastDeliveryNanos = maxOf(lastDeliveryNanos, request.receivedAtNanos)
+                }
+            }
+        }
+        latencies.sort()
+
+        val deliveredCount = latencies.size
+        val elapsedNanos = (lastDeliveryNanos - startedAt).coerceAtLeast(1L)
+        return LoadReport(
+            sent = total,
+            delivered = deliveredCount,
+            lost = total - deliveredCount,
+            throughputPerSecond = deliveredCount * 1_000_000_000.0 / elapsedNanos,
+            p50LatencyMillis = percentileMillis(latencies, 0.50),
+            p99LatencyMillis = percentileMillis(latencies, 0.99),
+            maxLatencyMillis = percentileMillis(latencies, 1.0),
+            rateLimitedResponses = standIn.rateLimitedCount(),
+            failedResponses = standIn.failedCount(),
+            throttledMillis = rateLimitStats.throttledMillis,
+            abandoned = drain.abandoned
+        )
+    }
+
+    private fun percentileMillis(sortedNanos: List<Long>, percentile: Double): Long {
+        if (sortedNanos.isEmpty()) return 0L
+        val index = (Math.ceil(percentile * sortedNanos.size).toInt() - 1).coerceIn(0, sortedNanos.size - 1)
+        return TimeUnit.NANOSECONDS.toMillis(sortedNanos[index])
+    }
+}
+
+data class LoadReport(
+    val sent: Int,
+    val delivered: Int,
+    val lost: Int,
+    val throughputPerSecond: Double,
+    val p50LatencyMillis: Long,
+    val p99LatencyMillis: Long,
+    val maxLatencyMillis: Long,
+    val rateLimitedResponses: Long,
+    val failedResponses: Long,
+    val throttledMillis: Long,
+    val abandoned: Int
+)
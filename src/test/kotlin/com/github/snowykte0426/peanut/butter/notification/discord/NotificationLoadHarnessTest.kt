@@ -0,0 +1,52 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.longs.shouldBeGreaterThanOrEqual
+import io.kotest.matchers.shouldBe
+
+class NotificationLoadHarnessTest : DescribeSpec({
+
+    describe("NotificationLoadHarness") {
+
+        it("should deliver every notification to a healthy endpoint") {
+            DiscordWebhookStandIn().use { standIn ->
+                val report = NotificationLoadHarness(standIn).run(ratePerSecond = 200, durationMillis = 250L)
+
+                report.sent shouldBe 50
+                report.delivered shouldBe 50
+                report.lost shouldBe 0
+            }
+        }
+
+        it("should measure latency added by injected response delay") {
+            DiscordWebhookStandIn(latencyMillis = 20L).use { standIn ->
+                val report = NotificationLoadHarness(standIn).run(ratePerSecond = 20, durationMillis = 250L)
+
+                report.lost shouldBe 0
+                report.p50LatencyMillis shouldBeGreaterThanOrEqual 20L
+            }
+        }
+
+        it("should pace delivery through a rate limited endpoint without losing messages") {
+            DiscordWebhookStandIn(rateLimit = 10, rateLimitWindowMillis = 200L).use { standIn ->
+                val report = NotificationLoadHarness(standIn).run(ratePerSecond = 200, durationMillis = 200L)
+
+                report.sent shouldBe 40
+                report.lost shouldBe 0
+                report.maxLatencyMillis shouldBeGreaterThan 300L
+            }
+        }
+
+        it("should report loss during an outage") {
+            DiscordWebhookStandIn().use { standIn ->
+                standIn.available = false
+                val report = NotificationLoadHarness(standIn).run(ratePerSecond = 100, durationMillis = 100L)
+
+                report.delivered shouldBe 0
+                report.lost shouldBe report.sent
+                report.failedResponses shouldBe report.sent.toLong()
+            }
+        }
+    }
+})
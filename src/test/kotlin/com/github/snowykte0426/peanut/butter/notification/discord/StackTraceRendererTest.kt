@@ -0,0 +1,124 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.ints.shouldBeLessThanOrEqual
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import io.kotest.matchers.string.shouldNotContain
+import io.kotest.matchers.string.shouldStartWith
+
+class StackTraceRendererTest : DescribeSpec({
+
+    fun frame(className: String, method: String = "invoke", line: Int = 10) =
+        StackTraceElement(className, method, "${className.substringAfterLast('.')}.java", line)
+
+    fun exception(vararg frames: StackTraceElement, cause: Throwable? = null): Throwable =
+        IllegalStateException("boom", cause).apply { stackTrace = arrayOf(*frames) }
+
+    describe("StackTraceRenderer") {
+
+        it("should render the type and frames within budget") {
+            val rendered = StackTraceRenderer().render(
+                exception(frame("com.example.OrderService", "place"), frame("com.example.OrderController", "post"))
+            )
+
+            rendered.truncated shouldBe false
+            rendered.text shouldBe """
+                java.lang.IllegalStateException
+                	at com.example.OrderService.place(OrderService.java:10)
+                	at com.example.OrderController.post(OrderController.java:10)
+            """.trimIndent()
+        }
+
+        it("should fold consecutive frames of configured packages") {
+            val renderer = StackTraceRenderer(foldedPackages = listOf("org.springframework.", "org.apache.catalina."))
+            val rendered = renderer.render(
+                exception(
+                    frame("com.example.OrderService"),
+                    frame("org.springframework.aop.Proxy"),
+                    frame("org.springframework.web.Dispatcher"),
+                    frame("org.apache.catalina.Valve"),
+                    frame("com.example.Filter")
+                )
+            )
+
+            rendered.text shouldContain "\t... 3 frames folded\n\tat com.example.Filter"
+            rendered.text shouldNotContain "org.springframework"
+        }
+
+        it("should stop rendering at the character budget") {
+            val frames = (1..1000).map { frame("com.example.Deep", "level$it", it) }.toTypedArray()
+            val rendered = StackTraceRenderer(maxCharacters = 200).render(exception(*frames))
+
+            rendered.truncated shouldBe true
+            rendered.text.length shouldBeLessThanOrEqual 200
+        }
+
+        it("should render causes and elide frames shared with the enclosing trace") {
+            val shared = frame("com.example.OrderController", "post")
+            val cause = IllegalArgumentException("bad id").apply {
+                stackTrace = arrayOf(frame("com.example.Repository", "find"), shared)
+            }
+            val rendered = StackTraceRenderer().render(exception(frame("com.example.OrderService"), shared, cause = cause))
+
+            rendered.text shouldContain "Caused by: java.lang.IllegalArgumentException: bad id\n" +
+                "\tat com.example.Repository.find(Repository.java:10)\n\t... 1 more"
+        }
+
+        it("should truncate cause chains longer than the limit") {
+            var chain: Throwable = RuntimeException("root")
+            repeat(5) { chain = RuntimeException("wrapper $it", chain) }
+
+            val rendered = StackTraceRenderer(maxCauses = 2).render(chain)
+
+            rendered.truncated shouldBe true
+            rendered.text shouldStartWith "java.lang.RuntimeException"
+            rendered.text shouldContain "wrapper 2"
+            rendered.text shouldNotContain "wrapper 1"
+        }
+
+        it("should reuse the rendering of the same failure site") {
+            val renderer = StackTraceRenderer()
+            val first = renderer.render(exception(frame("com.example.OrderService")))
+            val second = renderer.render(exception(frame("com.example.OrderService")))
+
+            second shouldBe first
+            renderer.cachedRenderings() shouldBe 1
+        }
+
+        it("should not reuse the rendering of a different cause from the same site") {
+            val renderer = StackTraceRenderer()
+            fun failure(cause: Throwable) = exception(frame("com.example.OrderService"), cause = cause)
+
+            val timeout = renderer.render(failure(IllegalStateException("timeout").apply {
+                stackTrace = arrayOf(frame("com.example.Client", "call"))
+            }))
+            val refused = renderer.render(failure(IllegalStateException("connection refused").apply {
+                stackTrace = arrayOf(frame("com.example.Client", "call"))
+            }))
+            val rejected = renderer.render(failure(IllegalArgumentException("bad id").apply {
+                stackTrace = arrayOf(frame("com.example.Validator", "check"))
+            }))
+
+            timeout.text shouldContain "Caused by: java.lang.IllegalStateException: timeout"
+            refused.text shouldContain "Caused by: java.lang.IllegalStateException: connection refused"
+            rejected.text shouldContain "Caused by: java.lang.IllegalArgumentException: bad id\n\tat com.example.Validator.check"
+            renderer.cachedRenderings() shouldBe 2
+        }
+
+        it("should not reuse the rendering of deep stacks that differ past the keyed frames") {
+            val renderer = StackTraceRenderer(maxCharacters = 10_000)
+            fun deep(middle: String) = exception(
+                *Array(8) { frame("com.example.Top", line = it) },
+                frame(middle),
+                *Array(8) { frame("com.example.Bottom", line = it) }
+            )
+
+            renderer.render(deep("com.example.Scheduler"))
+            val rendered = renderer.render(deep("com.example.Controller"))
+
+            rendered.text shouldContain "com.example.Controller"
+            rendered.text shouldNotContain "com.example.Scheduler"
+        }
+    }
+})
@@ -0,0 +1,123 @@
+package com.github.snowykte0426.peanut.butter.notification.discord
+
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import io.kotest.matchers.types.shouldBeInstanceOf
+import org.mockito.kotlin.mock
+import org.springframework.boot.ConfigurableBootstrapContext
+import org.springframework.boot.SpringApplication
+import org.springframework.boot.context.event.ApplicationReadyEvent
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup
+import org.springframework.context.ConfigurableApplicationContext
+import org.springframework.core.env.MapPropertySource
+import org.springframework.core.env.StandardEnvironment
+import org.springframework.core.metrics.ApplicationStartup
+import org.springframework.web.client.RestTemplate
+import java.time.Duration
+
+class StartupTimingSummaryTest : DescribeSpec({
+
+    fun recordBean(startup: BufferingApplicationStartup, beanName: String, millis: Long) {
+        val step = startup.start("spring.beans.instantiate").tag("beanName", beanName)
+        Thread.sleep(millis)
+        step.end()
+    }
+
+    fun readyEvent(startup: ApplicationStartup): ApplicationReadyEvent {
+        val application = SpringApplication().apply { setApplicationStartup(startup) }
+        return ApplicationReadyEvent(application, emptyArray(), mock<ConfigurableApplicationContext>(), Duration.ofMillis(4321))
+    }
+
+    describe("StartupTimingSummary") {
+
+        it("should list the slowest bean instantiations") {
+            val startup = BufferingApplicationStartup(100).apply { startRecording() }
+            recordBean(startup, "fastBean", 1)
+            recordBean(startup, "slowBean", 60)
+            recordBean(startup, "mediumBean", 30)
+
+            val summary = StartupTimingSummary.from(readyEvent(startup), 2, 100)!!
+
+            summary.totalMillis shouldBe 4321L
+            summary.beansCreated shouldBe 3
+            summary.slowestBeans.map { it.beanName } shouldBe listOf("slowBean", "mediumBean")
+            summary.truncated shouldBe false
+        }
+
+        it("should report a full buffer as truncated") {
+            val startup = BufferingApplicationStartup(2).apply { startRecording() }
+            repeat(5) { recordBean(startup, "bean$it", 0) }
+
+            StartupTimingSummary.from(readyEvent(startup), 5, 2)!!.truncated shouldBe true
+        }
+
+        it("should be absent when startup steps are not recorded") {
+            StartupTimingSummary.from(readyEvent(ApplicationStartup.DEFAULT), 5, 100) shouldBe null
+        }
+    }
+
+    describe("DiscordStartupRunListener") {
+
+        fun environment(vararg properties: Pair<String, Any>) = StandardEnvironment().apply {
+            propertySources.addFirst(MapPropertySource("test", mapOf(*properties)))
+        }
+
+        it("should buffer startup steps when startup timing is enabled") {
+            val application = SpringApplication()
+
+            DiscordStartupRunListener(application, emptyArray()).environmentPrepared(
+                mock<ConfigurableBootstrapContext>(),
+                environment(
+                    "peanut-butter.notification.discord.webhook.enabled" to "true",
+                    "peanut-butter.notification.discord.startup-timing.enabled" to "true"
+                )
+            )
+
+            application.applicationStartup.shouldBeInstanceOf<BufferingApplicationStartup>()
+        }
+
+        it("should leave the application startup alone by default") {
+            val application = SpringApplication()
+
+            DiscordStartupRunListener(application, emptyArray()).environmentPrepared(
+                mock<ConfigurableBootstrapContext>(),
+                environment("peanut-butter.notification.discord.webhook.enabled" to "true")
+            )
+
+            application.applicationStartup shouldBe ApplicationStartup.DEFAULT
+        }
+    }
+
+    describe("DiscordWebhookService startup notification") {
+
+        it("should include the startup breakdown when enabled") {
+            DiscordWebhookStandIn().use { standIn ->
+                val service = DiscordWebhookService(
+                    DiscordProperties(
+                        webhook = DiscordProperties.WebhookProperties(enabled = true, url = standIn.url),
+                        startupTiming = DiscordProperties.StartupTimingProperties(enabled = true)
+                    ),
+                    RestTemplate(),
+                    "test-app",
+                    "test"
+                )
+
+                service.sendStartupNotification(
+                    StartupTimingSummary(
+                        totalMillis = 4321,
+                        beansCreated = 120,
+                        slowestBeans = listOf(StartupTimingSummary.BeanTiming("dataSource", 850)),
+                        autoConfigurationsApplied = 42,
+                        truncated = false
+                    )
+                )
+
+                val body = standIn.requestBodies().single()
+                body shouldContain "Startup Time:** 4.32 s"
+                body shouldContain "`dataSource` 850 ms"
+                body shouldContain "Auto-configurations Applied:** 42"
+            }
+        }
+    }
+})
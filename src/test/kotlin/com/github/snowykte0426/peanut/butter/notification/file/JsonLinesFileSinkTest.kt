@@ -0,0 +1,54 @@
+package com.github.snowykte0426.peanut.butter.notification.file
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.github.snowykte0426.peanut.butter.notification.NotificationEvent
+import com.github.snowykte0426.peanut.butter.notification.NotificationSeverity
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.longs.shouldBeLessThanOrEqual
+import io.kotest.matchers.shouldBe
+import java.nio.file.Files
+
+class JsonLinesFileSinkTest : DescribeSpec({
+
+    describe("JsonLinesFileSink") {
+
+        it("should append one JSON object per event") {
+            val directory = Files.createTempDirectory("notification-sink")
+            val path = directory.resolve("notifications.jsonl")
+
+            JsonLinesFileSink(path).use { sink ->
+                sink.deliver(NotificationEvent(type = "startup", title = "Started"))
+                sink.deliver(
+                    NotificationEvent(
+                        type = "exception",
+                        title = "Failure",
+                        severity = NotificationSeverity.ERROR,
+                        exception = IllegalStateException("boom"),
+                        attributes = mapOf("context" to "checkout")
+                    )
+                )
+            }
+
+            val lines = Files.readAllLines(path)
+            lines.size shouldBe 2
+            val failure = ObjectMapper().readTree(lines[1])
+            failure["severity"].asText() shouldBe "ERROR"
+            failure["exception"]["type"].asText() shouldBe "java.lang.IllegalStateException"
+            failure["attributes"]["context"].asText() shouldBe "checkout"
+        }
+
+        it("should roll over by size and keep at most the configured number of files") {
+            val directory = Files.createTempDirectory("notification-sink")
+            val path = directory.resolve("notifications.jsonl")
+
+            JsonLinesFileSink(path, maxFileSize = 300L, maxFiles = 2).use { sink ->
+                repeat(20) { sink.deliver(NotificationEvent(type = "test", title = "event $it")) }
+            }
+
+            Files.exists(path.resolveSibling("notifications.jsonl.1")) shouldBe true
+            Files.exists(path.resolveSibling("notifications.jsonl.2")) shouldBe true
+            Files.exists(path.resolveSibling("notifications.jsonl.3")) shouldBe false
+            Files.size(path) shouldBeLessThanOrEqual 300L
+        }
+    }
+})
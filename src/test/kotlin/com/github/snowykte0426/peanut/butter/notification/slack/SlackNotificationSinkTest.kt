@@ -0,0 +1,46 @@
+package com.github.snowykte0426.peanut.butter.notification.slack
+
+import com.github.snowykte0426.peanut.butter.notification.NotificationEvent
+import com.github.snowykte0426.peanut.butter.notification.NotificationSeverity
+import com.github.snowykte0426.peanut.butter.notification.discord.DiscordWebhookStandIn
+import io.kotest.core.spec.style.DescribeSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import org.springframework.web.client.RestTemplate
+
+class SlackNotificationSinkTest : DescribeSpec({
+
+    describe("SlackNotificationSink") {
+
+        it("should post the rendered message to the webhook") {
+            DiscordWebhookStandIn().use { standIn ->
+                val sink = SlackNotificationSink(standIn.url, RestTemplate())
+
+                sink.deliver(
+                    NotificationEvent(
+                        type = "exception",
+                        title = "Payment failed",
+                        severity = NotificationSeverity.ERROR,
+                        exception = IllegalStateException("boom"),
+                        attributes = mapOf("order" to "42")
+                    )
+                ) shouldBe true
+
+                val body = standIn.requestBodies().single()
+                body shouldContain "*Payment failed*"
+                body shouldContain "#a30200"
+                body shouldContain "java.lang.IllegalStateException: boom"
+                body shouldContain "\"order\""
+            }
+        }
+
+        it("should report failure when the webhook is unavailable") {
+            DiscordWebhookStandIn().use { standIn ->
+                standIn.available = false
+                val sink = SlackNotificationSink(standIn.url, RestTemplate())
+
+                sink.deliver(NotificationEvent(type = "test", title = "Hello")) shouldBe false
+            }
+        }
+    }
+})
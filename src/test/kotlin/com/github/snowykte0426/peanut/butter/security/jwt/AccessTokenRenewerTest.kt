@@ -0,0 +1,65 @@
+package com.github.snowykte0426.peanut.butter.security.jwt
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import java.time.Duration
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+class AccessTokenRenewerTest : FunSpec({
+
+    val properties = JwtProperties(
+        secret = "test-secret-key-that-is-at-least-256-bits-long-for-hmac-sha256-algorithm",
+        accessTokenExpiry = Duration.ofMinutes(2)
+    )
+    val jwtService = DefaultJwtService(properties)
+
+    test("should not renew tokens outside the renewal window") {
+        val renewer = AccessTokenRenewer(jwtService, renewalWindow = Duration.ofSeconds(30))
+        val token = jwtService.generateAccessToken("test-user")
+
+        renewer.renewIfExpiring(token, "test-user", emptyMap()).shouldBeNull()
+    }
+
+    test("should renew tokens inside the renewal window and keep claims") {
+        val renewer = AccessTokenRenewer(jwtService, renewalWindow = Duration.ofMinutes(5))
+        val token = jwtService.generateAccessToken("test-user", mapOf("role" to "USER"))
+
+        val renewed = renewer.renewIfExpiring(token, "test-user", jwtService.extractClaims(token))
+
+        renewed.shouldNotBeNull()
+        renewed shouldNotBe token
+        jwtService.extractSubject(renewed) shouldBe "test-user"
+        jwtService.extractClaims(renewed)?.get("role") shouldBe "USER"
+    }
+
+    test("should issue a single replacement for parallel requests with the same token") {
+        val renewer = AccessTokenRenewer(jwtService, renewalWindow = Duration.ofMinutes(5))
+        val token = jwtService.generateAccessToken("test-user")
+        val executor = Executors.newFixedThreadPool(8)
+
+        try {
+            val results = (1..32).map {
+                executor.submit(Callable { renewer.renewIfExpiring(token, "test-user", emptyMap()) })
+            }.map { it.get() }
+
+            results.toSet().size shouldBe 1
+            renewer.memoizedCount() shouldBe 1
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    test("should not renew tokens that have already expired") {
+        val shortService = DefaultJwtService(properties.copy(accessTokenExpiry = Duration.ofMillis(1)))
+        val renewer = AccessTokenRenewer(shortService, renewalWindow = Duration.ofMinutes(5))
+        val token = shortService.generateAccessToken("test-user")
+
+        Thread.sleep(10)
+
+        renewer.renewIfExpiring(token, "test-user", emptyMap()).shouldBeNull()
+    }
+})
@@ -0,0 +1,73 @@
+package com.github.snowykte0426.peanut.butter.security.jwt
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+
+class AuthorityRegistryTest : FunSpec({
+
+    val registry = AuthorityRegistry(
+        currentVersion = 2,
+        registries = mapOf(
+            1 to listOf("ROLE_USER", "READ"),
+            2 to listOf("ROLE_USER", "ROLE_ADMIN", "READ", "WRITE")
+        )
+    )
+
+    test("should round-trip registered authorities") {
+        val encoded = registry.encode(listOf("ROLE_ADMIN", "WRITE"))
+
+        encoded.value.shouldNotBeNull()
+        encoded.unregistered shouldBe emptyList()
+        registry.decode(encoded.value!!) shouldBe listOf("ROLE_ADMIN", "WRITE")
+    }
+
+    test("should leave unregistered authorities for the string claims") {
+        val encoded = registry.encode(listOf("ROLE_USER", "DELETE"))
+
+        registry.decode(encoded.value!!) shouldBe listOf("ROLE_USER")
+        encoded.unregistered shouldBe listOf("DELETE")
+    }
+
+    test("should decode older registry versions") {
+        registry.decode("1.Aw") shouldBe listOf("ROLE_USER", "READ")
+    }
+
+    test("should reject unknown versions and malformed values") {
+        registry.decode("9.Aw").shouldBeNull()
+        registry.decode("garbage").shouldBeNull()
+        registry.decode("1.@@").shouldBeNull()
+        registry.decode("1._w").shouldBeNull()
+    }
+
+    test("should only be created when enabled with a registry for the current version") {
+        AuthorityRegistry.from(AuthorityEncodingProperties()).shouldBeNull()
+        AuthorityRegistry.from(AuthorityEncodingProperties(enabled = true, version = 3)).shouldBeNull()
+        AuthorityRegistry.from(
+            AuthorityEncodingProperties(enabled = true, version = 1, registries = mapOf(1 to listOf("READ")))
+        ).shouldNotBeNull()
+    }
+
+    test("should encode authorities issued by DefaultJwtService") {
+        val properties = JwtProperties(
+            secret = "test-secret-key-that-is-at-least-256-bits-long-for-hmac-sha256-algorithm",
+            authorityEncoding = AuthorityEncodingProperties(
+                enabled = true,
+                version = 2,
+                registries = mapOf(2 to listOf("ROLE_USER", "ROLE_ADMIN", "READ", "WRITE"))
+            )
+        )
+        val jwtService = DefaultJwtService(properties)
+
+        val token = jwtService.generateAccessToken(
+            "user123",
+            mapOf("roles" to listOf("ADMIN"), "authorities" to listOf("WRITE", "EXPORT"))
+        )
+        val claims = jwtService.extractClaims(token)!!
+
+        claims["roles"].shouldBeNull()
+        claims["authorities"] shouldBe listOf("EXPORT")
+        registry.decode(claims[AuthorityRegistry.CLAIM] as String) shouldBe listOf("ROLE_ADMIN", "WRITE")
+    }
+})
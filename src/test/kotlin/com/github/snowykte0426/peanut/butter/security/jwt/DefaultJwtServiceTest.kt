@@ -136,4 +136,80 @@ class DefaultJwtServiceTest : FunSpec({
         jwtService.extractExpiration("invalid-token") shouldBe null
         jwtService.isTokenExpired("invalid-token") shouldBe true
     }
-})
\ No newline at end of file
+
+    test("should issue opaque reference tokens resolved through the store") {
+        val opaqueProperties = properties.copy(accessTokenType = AccessTokenType.OPAQUE)
+        val opaqueService = DefaultJwtService(opaqueProperties, mockRefreshTokenStore, InMemoryOpaqueTokenStore())
+
+        val token = opaqueService.generateAccessToken("test-user", mapOf("role" to "USER"))
+
+        token.contains('.') shouldBe false
+        opaqueService.validateToken(token) shouldBe true
+        opaqueService.extractSubject(token) shouldBe "test-user"
+        opaqueService.extractClaims(token)?.get("role") shouldBe "USER"
+        opaqueService.extractExpiration(token).shouldNotBeNull()
+    }
+
+    test("should revoke opaque reference tokens immediately") {
+        val opaqueProperties = properties.copy(accessTokenType = AccessTokenType.OPAQUE)
+        val opaqueService = DefaultJwtService(opaqueProperties, mockRefreshTokenStore, InMemoryOpaqueTokenStore())
+        val token = opaqueService.generateAccessToken("test-user")
+
+        opaqueService.revokeAccessToken(token) shouldBe true
+
+        opaqueService.validateToken(token) shouldBe false
+        opaqueService.extractSubject(token) shouldBe null
+    }
+
+    test("should keep refresh tokens as JWTs in opaque mode") {
+        val opaqueProperties = properties.copy(accessTokenType = AccessTokenType.OPAQUE)
+        val opaqueService = DefaultJwtService(opaqueProperties, mockRefreshTokenStore, InMemoryOpaqueTokenStore())
+
+        val refreshToken = opaqueService.generateRefreshToken("test-user")
+        val tokenPair = opaqueService.refreshTokens(refreshToken)
+
+        tokenPair.shouldNotBeNull()
+        tokenPair.accessToken.contains('.') shouldBe false
+        opaqueService.validateToken(tokenPair.accessToken) shouldBe true
+    }
+
+    test("should not revoke self-contained JWT access tokens") {
+        val token = jwtService.generateAccessToken("test-user")
+
+        jwtService.revokeAccessToken(token) shouldBe false
+        jwtService.validateToken(token) shouldBe true
+    }
+
+    test("should issue and validate token batches in input order") {
+        val requests = (1..200).map { AccessTokenRequest("user-$it", mapOf("index" to it)) }
+
+        val tokens = jwtService.generateAccessTokens(requests)
+
+        tokens.size shouldBe 200
+        tokens.mapIndexed { index, token -> jwtService.extractSubject(token) shouldBe "user-${index + 1}" }
+        jwtService.validateTokens(tokens + "invalid-token") shouldBe List(200) { true } + false
+    }
+
+    test("should store and validate refresh token batches") {
+        val store = InMemoryRefreshTokenStore()
+        val storeProperties = properties.copy(refreshTokenMode = RefreshTokenMode.STORE_AND_VALIDATE)
+        val storeService = DefaultJwtService(storeProperties, store)
+
+        val refreshTokens = storeService.generateRefreshTokens(listOf("alice", "bob", "carol"))
+
+        refreshTokens.map { storeService.extractSubject(it) } shouldBe listOf("alice", "bob", "carol")
+        storeService.validateTokens(refreshTokens + storeService.generateAccessToken("dave")) shouldBe
+            listOf(true, true, true, true)
+    }
+
+    test("should reject refresh tokens missing from the store in batch validation") {
+        val batchStore = mock<RefreshTokenStore>()
+        whenever(batchStore.findValidRefreshTokenIds(any())).thenReturn(emptySet())
+        val storeProperties = properties.copy(refreshTokenMode = RefreshTokenMode.STORE_AND_VALIDATE)
+        val storeService = DefaultJwtService(storeProperties, batchStore)
+
+        val refreshToken = storeService.generateRefreshToken("alice")
+
+        storeService.validateTokens(listOf(refreshToken)) shouldBe listOf(false)
+    }
+})
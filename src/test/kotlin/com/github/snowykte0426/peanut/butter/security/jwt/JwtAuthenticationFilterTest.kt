@@ -223,4 +223,69 @@ class JwtAuthenticationFilterTest : FunSpec({
         verify(jwtService).validateToken("token")
         verify(filterChain).doFilter(request, response)
     }
-})
\ No newline at end of file
+
+    test("should return renewed token in response header when token is close to expiry") {
+        val token = "valid.jwt.token"
+        val subject = "user123"
+
+        whenever(request.getHeader("Authorization")).thenReturn("Bearer $token")
+        whenever(request.requestURI).thenReturn("/api/secure")
+        whenever(jwtService.validateToken(token)).thenReturn(true)
+        whenever(jwtService.extractSubject(token)).thenReturn(subject)
+        whenever(jwtService.extractClaims(token)).thenReturn(emptyMap())
+        whenever(jwtService.extractExpiration(token)).thenReturn(java.time.Instant.now().plusSeconds(60))
+        whenever(jwtService.generateAccessToken(subject, emptyMap())).thenReturn("renewed.jwt.token")
+
+        val renewer = AccessTokenRenewer(jwtService, java.time.Duration.ofMinutes(5))
+        val filter = JwtAuthenticationFilter(jwtService, accessTokenRenewer = renewer)
+        filter.doFilter(request, response, filterChain)
+
+        verify(response).setHeader("X-Renewed-Access-Token", "renewed.jwt.token")
+        verify(filterChain).doFilter(request, response)
+    }
+
+    test("should decode bitset-encoded authorities alongside string authorities") {
+        val token = "valid.jwt.token"
+        val subject = "user123"
+        val registry = AuthorityRegistry(1, mapOf(1 to listOf("ROLE_USER", "ROLE_ADMIN", "READ")))
+        val claims = mapOf(
+            AuthorityRegistry.CLAIM to registry.encode(listOf("ROLE_ADMIN", "READ")).value!!,
+            "authorities" to listOf("EXPORT")
+        )
+
+        whenever(request.getHeader("Authorization")).thenReturn("Bearer $token")
+        whenever(request.requestURI).thenReturn("/api/secure")
+        whenever(jwtService.validateToken(token)).thenReturn(true)
+        whenever(jwtService.extractSubject(token)).thenReturn(subject)
+        whenever(jwtService.extractClaims(token)).thenReturn(claims)
+
+        val filter = JwtAuthenticationFilter(jwtService, authorityRegistry = registry)
+        filter.doFilter(request, response, filterChain)
+
+        val authentication = SecurityContextHolder.getContext().authentication
+        authentication.shouldNotBeNull()
+        authentication.authorities.map { it.authority }.toSet() shouldBe setOf("ROLE_ADMIN", "READ", "EXPORT")
+    }
+
+    test("should fall back to string authorities for unknown registry versions") {
+        val token = "valid.jwt.token"
+        val registry = AuthorityRegistry(1, mapOf(1 to listOf("ROLE_USER")))
+        val claims = mapOf(
+            AuthorityRegistry.CLAIM to "7.AQ",
+            "roles" to listOf("USER")
+        )
+
+        whenever(request.getHeader("Authorization")).thenReturn("Bearer $token")
+        whenever(request.requestURI).thenReturn("/api/secure")
+        whenever(jwtService.validateToken(token)).thenReturn(true)
+        whenever(jwtService.extractSubject(token)).thenReturn("user123")
+        whenever(jwtService.extractClaims(token)).thenReturn(claims)
+
+        val filter = JwtAuthenticationFilter(jwtService, authorityRegistry = registry)
+        filter.doFilter(request, response, filterChain)
+
+        val authentication = SecurityContextHolder.getContext().authentication
+        authentication.shouldNotBeNull()
+        authentication.authorities.map { it.authority }.toSet() shouldBe setOf("ROLE_USER")
+    }
+})
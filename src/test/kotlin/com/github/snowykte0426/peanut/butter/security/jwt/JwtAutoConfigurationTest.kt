@@ -1,8 +1,14 @@
 package com.github.snowykte0426.peanut.butter.security.jwt
 
 import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
 import io.kotest.matchers.shouldNotBe
 import io.kotest.matchers.types.shouldBeInstanceOf
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import org.springframework.context.annotation.ConditionContext
+import org.springframework.core.env.MapPropertySource
+import org.springframework.core.env.StandardEnvironment
 
 class JwtAutoConfigurationTest : FunSpec({
 
@@ -38,6 +44,19 @@ class JwtAutoConfigurationTest : FunSpec({
         userProvider shouldNotBe null
     }
 
+    test("should register the tenant registry only when tenants are configured") {
+        fun matches(properties: Map<String, Any>): Boolean {
+            val environment = StandardEnvironment().apply {
+                propertySources.addFirst(MapPropertySource("test", properties))
+            }
+            val context = mock<ConditionContext> { on { getEnvironment() } doReturn environment }
+            return OnJwtTenantsCondition().getMatchOutcome(context, mock()).isMatch
+        }
+
+        matches(emptyMap()) shouldBe false
+        matches(mapOf("peanut-butter.jwt.tenants.acme.secret" to "acme-secret")) shouldBe true
+    }
+
     test("RefreshTokenCleanupTask should be created with store") {
         val configuration = JwtAutoConfiguration()
         val store = InMemoryRefreshTokenStore()
@@ -0,0 +1,98 @@
+package com.github.snowykte0426.peanut.butter.security.jwt
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import java.time.Duration
+
+class MultiTenantJwtServiceTest : FunSpec({
+
+    val baseProperties = JwtProperties(
+        secret = "base-secret-key-that-is-at-least-256-bits-long-for-hmac-sha256-algorithm",
+        tenants = mapOf(
+            "acme" to JwtTenantProperties(
+                secret = "acme-secret-key-that-is-at-least-256-bits-long-for-hmac-sha256-algorithm"
+            ),
+            "globex" to JwtTenantProperties(
+                secret = "globex-secret-key-that-is-at-least-256-bits-long-for-hmac-sha256-algorithm",
+                accessTokenExpiry = Duration.ofMinutes(5)
+            )
+        )
+    )
+
+    test("should issue and validate tokens per tenant") {
+        val registry = JwtTenantRegistry(baseProperties)
+        val service = MultiTenantJwtService(registry)
+
+        val acmeToken = service.generateAccessToken("alice", mapOf("tenant" to "acme"))
+        val globexToken = service.generateAccessTokenForTenant("globex", "bob")
+
+        service.resolveTenantId(acmeToken) shouldBe "acme"
+        service.resolveTenantId(globexToken) shouldBe "globex"
+        service.validateToken(acmeToken) shouldBe true
+        service.validateToken(globexToken) shouldBe true
+        service.extractSubject(globexToken) shouldBe "bob"
+        service.extractClaims(acmeToken)?.get("tenant") shouldBe "acme"
+    }
+
+    test("should reject tokens signed by another tenant") {
+        val registry = JwtTenantRegistry(baseProperties)
+        val acmeToken = registry.find("acme")!!.generateAccessToken("alice")
+        val globexService = DefaultJwtService(
+            JwtTenantProperties(
+                secret = "globex-secret-key-that-is-at-least-256-bits-long-for-hmac-sha256-algorithm"
+            ).applyTo(baseProperties, "globex")
+        )
+
+        globexService.validateToken(acmeToken) shouldBe false
+    }
+
+    test("should add and remove tenants at runtime") {
+        val registry = JwtTenantRegistry(baseProperties)
+        val service = MultiTenantJwtService(registry)
+
+        registry.register(
+            "initech",
+            JwtTenantProperties(secret = "initech-secret-key-that-is-at-least-256-bits-long-for-hmac-sha256")
+        )
+        val token = service.generateAccessTokenForTenant("initech", "peter")
+        service.validateToken(token) shouldBe true
+
+        registry.unregister("initech") shouldBe true
+        service.validateToken(token) shouldBe false
+        registry.tenantIds() shouldBe setOf("acme", "globex")
+    }
+
+    test("should fall back to the default tenant") {
+        val registry = JwtTenantRegistry(baseProperties)
+        val service = MultiTenantJwtService(registry, defaultTenantId = "acme")
+
+        val token = service.generateAccessToken("alice")
+
+        service.resolveTenantId(token) shouldBe "acme"
+        service.validateToken(token) shouldBe true
+    }
+
+    test("should fail issuance without a tenant") {
+        val service = MultiTenantJwtService(JwtTenantRegistry(baseProperties))
+
+        kotlin.runCatching { service.generateAccessToken("alice") }.isFailure shouldBe true
+        service.validateToken("not-a-token") shouldBe false
+    }
+
+    test("should route batch issuance and validation per tenant") {
+        val registry = JwtTenantRegistry(baseProperties)
+        val service = MultiTenantJwtService(registry, defaultTenantId = "acme")
+
+        val tokens = service.generateAccessTokens(
+            listOf(
+                AccessTokenRequest("alice"),
+                AccessTokenRequest("bob", mapOf("tenant" to "globex")),
+                AccessTokenRequest("carol")
+            )
+        )
+
+        tokens.map(service::resolveTenantId) shouldBe listOf("acme", "globex", "acme")
+        tokens.map(service::extractSubject) shouldBe listOf("alice", "bob", "carol")
+        service.validateTokens(tokens + "not-a-token") shouldBe listOf(true, true, true, false)
+    }
+})
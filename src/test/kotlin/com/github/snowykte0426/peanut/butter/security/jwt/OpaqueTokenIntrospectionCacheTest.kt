@@ -0,0 +1,56 @@
+package com.github.snowykte0426.peanut.butter.security.jwt
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.ints.shouldBeLessThanOrEqual
+import io.kotest.matchers.shouldBe
+import java.time.Duration
+import java.time.Instant
+
+class OpaqueTokenIntrospectionCacheTest : FunSpec({
+
+    fun record(reference: String, expiration: Instant = Instant.now().plusSeconds(3600)) =
+        OpaqueTokenRecord(reference, "user-123", mapOf("role" to "USER"), Instant.now(), expiration)
+
+    test("should return cached records") {
+        val cache = OpaqueTokenIntrospectionCache(100, Duration.ofMinutes(1))
+        val cached = record("ref-1")
+
+        cache.put(cached)
+
+        cache.get("ref-1") shouldBe cached
+        cache.get("unknown") shouldBe null
+    }
+
+    test("should invalidate records") {
+        val cache = OpaqueTokenIntrospectionCache(100, Duration.ofMinutes(1))
+        cache.put(record("ref-1"))
+
+        cache.invalidate("ref-1")
+
+        cache.get("ref-1") shouldBe null
+    }
+
+    test("should not serve records past their cache ttl") {
+        val cache = OpaqueTokenIntrospectionCache(100, Duration.ofMillis(1))
+        cache.put(record("ref-1"))
+
+        Thread.sleep(10)
+
+        cache.get("ref-1") shouldBe null
+    }
+
+    test("should stay within its size bound") {
+        val cache = OpaqueTokenIntrospectionCache(10, Duration.ofMinutes(1))
+
+        repeat(100) { cache.put(record("ref-$it")) }
+
+        cache.size() shouldBeLessThanOrEqual 10
+    }
+
+    test("should not cache anything when size is zero") {
+        val cache = OpaqueTokenIntrospectionCache(0, Duration.ofMinutes(1))
+        cache.put(record("ref-1"))
+
+        cache.get("ref-1") shouldBe null
+    }
+})